@@ -84,10 +84,15 @@ const tableStyles = {
     },
 };
 
+const PAGE_SIZE = 50;
+
 const UserManagementPage = () => {
     const [users, setUsers] = useState([]);
     const [loading, setLoading] = useState(true);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const [nextCursor, setNextCursor] = useState(null);
     const [filterText, setFilterText] = useState('');
+    const [searchText, setSearchText] = useState('');
     const MySwal = withReactContent(Swal);
     const { userRoles } = useAuth();
     const isAdmin = userRoles.includes('ADMIN');
@@ -99,16 +104,20 @@ const UserManagementPage = () => {
     const [empleadoCount, setEmpleadoCount] = useState(0);
     const navigate = useNavigate();
 
-    const fetchUsers = async () => {
-        setLoading(true);
+    // Listado paginado por cursor (GET /api/users): la búsqueda y el filtro de supervisor se aplican en el servidor
+    const fetchUsers = async (cursor = null) => {
+        if (cursor) {
+            setLoadingMore(true);
+        } else {
+            setLoading(true);
+        }
         try {
-            const response = await apiClient.get('/users/all');
-            const data = response.data;
-            setUsers(data);
-            setTotalUsers(data.length);
-            setAdminCount(data.filter(u => u.role?.name === 'ADMIN').length);
-            setSupervisorCount(data.filter(u => u.role?.name === 'SUPERVISOR').length);
-            setEmpleadoCount(data.filter(u => u.role?.name === 'EMPLEADO').length);
+            const response = await apiClient.get('/users', {
+                params: { size: PAGE_SIZE, q: searchText || undefined, cursor: cursor || undefined },
+            });
+            const page = response.data;
+            setUsers(prevUsers => (cursor ? [...prevUsers, ...page.content] : page.content));
+            setNextCursor(page.hasNext ? page.nextCursor : null);
         } catch (error) {
             console.error("Error al cargar los usuarios:", error);
             if (isSupervisor) {
@@ -116,24 +125,39 @@ const UserManagementPage = () => {
             }
         } finally {
             setLoading(false);
+            setLoadingMore(false);
+        }
+    };
+
+    // Los indicadores salen de los conteos por rol, no de la página cargada
+    const fetchRoleCounts = async () => {
+        try {
+            const response = await apiClient.get('/reports/users-by-role');
+            const counts = response.data;
+            setTotalUsers(Object.values(counts).reduce((total, count) => total + count, 0));
+            setAdminCount(counts.ADMIN || 0);
+            setSupervisorCount(counts.SUPERVISOR || 0);
+            setEmpleadoCount(counts.EMPLEADO || 0);
+        } catch (error) {
+            console.error("Error al cargar los indicadores de usuarios:", error);
         }
     };
 
     useEffect(() => {
-        fetchUsers();
+        if (isAdmin) {
+            fetchRoleCounts();
+        }
     }, []);
 
-    const filteredUsers = users.filter(user => {
-        const searchText = filterText.toLowerCase();
-        const roleName = user.role?.name?.toLowerCase() || '';
-        return (
-            user.firstName?.toLowerCase().includes(searchText) ||
-            user.lastName?.toLowerCase().includes(searchText) ||
-            user.email?.toLowerCase().includes(searchText) ||
-            user.dni?.toLowerCase().includes(searchText) ||
-            roleName.includes(searchText)
-        );
-    });
+    // Espera a que se deje de escribir antes de buscar en el servidor
+    useEffect(() => {
+        const timer = setTimeout(() => setSearchText(filterText.trim()), 300);
+        return () => clearTimeout(timer);
+    }, [filterText]);
+
+    useEffect(() => {
+        fetchUsers();
+    }, [searchText]);
 
     const handleEdit = (id) => {
         navigate(`/dashboard/users/edit/${id}`);
@@ -154,6 +178,7 @@ const UserManagementPage = () => {
                 try {
                     await apiClient.delete(`/users/${id}`);
                     setUsers(prevUsers => prevUsers.filter(user => user.id !== id));
+                    fetchRoleCounts();
                     MySwal.fire('¡Eliminado!', 'El usuario ha sido eliminado.', 'success');
                 } catch (error) {
                     console.error("Error al eliminar usuario:", error);
@@ -179,7 +204,7 @@ const UserManagementPage = () => {
                     const updatedUser = response.data;
                     setUsers(prevUsers =>
                         prevUsers.map(user =>
-                            user.id === updatedUser.id ? updatedUser : user
+                            user.id === updatedUser.id ? { ...user, enabled: updatedUser.enabled } : user
                         )
                     );
                     MySwal.fire('¡Estado actualizado!', `El estado del usuario ha sido cambiado.`, 'success');
@@ -242,15 +267,15 @@ const UserManagementPage = () => {
         },
         {
             name: 'Rol',
-            selector: row => row.role?.name,
+            selector: row => row.role,
             sortable: true,
             grow: 0.6,
             cell: row => (
                 <span
                     className="px-2 py-1 inline-flex text-xs leading-5 font-semibold rounded-full text-white"
-                    style={{ backgroundColor: getRoleColor(row.role?.name) }}
+                    style={{ backgroundColor: getRoleColor(row.role) }}
                 >
-                    {row.role?.name || 'Sin Rol'}
+                    {row.role || 'Sin Rol'}
                 </span>
             ),
         },
@@ -311,10 +336,6 @@ const UserManagementPage = () => {
         },
     ];
 
-    if (loading) {
-        return <Loader />;
-    }
-
     return (
         <div className="p-4 sm:p-8 bg-gray-100 dark:bg-gray-900 font-sans antialiased">
             <header className="mb-8">
@@ -405,13 +426,26 @@ const UserManagementPage = () => {
 
                 <DataTable
                     columns={columns}
-                    data={filteredUsers}
+                    data={users}
+                    progressPending={loading}
+                    progressComponent={<Loader />}
                     pagination
                     highlightOnHover
                     pointerOnHover
                     responsive
                     customStyles={tableStyles}
                 />
+                {nextCursor && (
+                    <div className="flex justify-center mt-4">
+                        <button
+                            onClick={() => fetchUsers(nextCursor)}
+                            disabled={loadingMore}
+                            className="px-4 py-2.5 rounded-lg shadow-md text-white font-medium bg-indigo-600 hover:bg-indigo-700 disabled:opacity-50 transition duration-150 ease-in-out"
+                        >
+                            {loadingMore ? 'Cargando...' : 'Cargar más'}
+                        </button>
+                    </div>
+                )}
             </div>
         </div>
     );
@@ -20,7 +20,13 @@ export const AuthProvider = ({ children }) => {
     const navigate = useNavigate();
 
     const logout = useCallback(() => {
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (refreshToken) {
+            // Revoca la sesión en el servidor; si falla, el token expirará solo
+            axios.post('http://localhost:8080/api/auth/logout', { refreshToken }).catch(() => {});
+        }
         localStorage.removeItem('jwtToken');
+        localStorage.removeItem('refreshToken');
         localStorage.removeItem('userRoles');
         localStorage.removeItem('userRole');
         localStorage.removeItem('user');
@@ -52,7 +58,7 @@ export const AuthProvider = ({ children }) => {
                 setIsLoading(false);
                 return { success: true, twoFactorRequired: true };
             } else {
-                const { accessToken, id, firstName, lastName, email: userEmail, dni, role, avatarUrl } = response.data;
+                const { accessToken, refreshToken, id, firstName, lastName, email: userEmail, dni, role, avatarUrl } = response.data;
 
                 // ➡️ CORRECCIÓN CLAVE: El backend ya devuelve la URL completa.
                 const fullAvatarUrl = avatarUrl;
@@ -62,6 +68,7 @@ export const AuthProvider = ({ children }) => {
                 const rolesFromLogin = [role];
 
                 localStorage.setItem('jwtToken', accessToken);
+                localStorage.setItem('refreshToken', refreshToken);
                 // ➡️ CORRECCIÓN: Guarda `userFromLogin` que contiene la URL completa
                 localStorage.setItem('user', JSON.stringify(userFromLogin));
                 localStorage.setItem('userRoles', JSON.stringify(rolesFromLogin));
@@ -110,7 +117,7 @@ export const AuthProvider = ({ children }) => {
             });
 
             // Ahora 'response' está definida y podemos usarla.
-            const { accessToken, id, firstName, lastName, email: userEmail, dni, role, avatarUrl } = response.data;
+            const { accessToken, refreshToken, id, firstName, lastName, email: userEmail, dni, role, avatarUrl } = response.data;
 
             // El resto de la lógica de guardado en localStorage y estado
             // del usuario
@@ -119,6 +126,7 @@ export const AuthProvider = ({ children }) => {
             const rolesFromLogin = [role];
 
             localStorage.setItem('jwtToken', accessToken);
+            localStorage.setItem('refreshToken', refreshToken);
             localStorage.setItem('user', JSON.stringify(userFromLogin));
             localStorage.setItem('userRoles', JSON.stringify(rolesFromLogin));
             localStorage.setItem('userRole', role);
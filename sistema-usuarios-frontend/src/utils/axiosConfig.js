@@ -33,14 +33,46 @@ apiClient.interceptors.request.use(
 
 let isRedirecting = false;
 
+// Una sola renovación en curso compartida por todas las peticiones que reciban 401
+let refreshPromise = null;
+
+const refreshAccessToken = () => {
+    if (!refreshPromise) {
+        const refreshToken = localStorage.getItem('refreshToken');
+        refreshPromise = axios.post('http://localhost:8080/api/auth/refresh', { refreshToken })
+            .then((response) => {
+                localStorage.setItem('jwtToken', response.data.accessToken);
+                localStorage.setItem('refreshToken', response.data.refreshToken);
+                return response.data.accessToken;
+            })
+            .finally(() => {
+                refreshPromise = null;
+            });
+    }
+    return refreshPromise;
+};
+
 apiClient.interceptors.response.use(
     (response) => {
         return response;
     },
-    (error) => {
+    async (error) => {
         if (error.response) {
             const { status, config } = error.response;
 
+            // Access token expirado: se renueva con el refresh token y se reintenta una vez
+            if (status === 401 && !config.url.includes('/auth/') && !config._retried
+                && localStorage.getItem('refreshToken')) {
+                try {
+                    const newToken = await refreshAccessToken();
+                    config._retried = true;
+                    config.headers.Authorization = `Bearer ${newToken}`;
+                    return apiClient(config);
+                } catch {
+                    // Sigue al flujo normal de sesión expirada
+                }
+            }
+
             if (status === 401 && !config.url.includes('/auth/login') && !isRedirecting) {
                 isRedirecting = true; // Establece la bandera
                 console.error('Error 401: Token expirado o inválido. Redirigiendo a login.');
@@ -4,16 +4,19 @@ import com.usersystem.sistemausuariosbackend.model.Role;
 import com.usersystem.sistemausuariosbackend.model.User;
 import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.service.RoleRegistry;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @SpringBootApplication
+@EnableScheduling
 public class SistemaUsuariosBackendApplication {
 
 	public static void main(String[] args) {
@@ -21,7 +24,8 @@ public class SistemaUsuariosBackendApplication {
 	}
 
 	@Bean
-	public CommandLineRunner run(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+	public CommandLineRunner run(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder,
+								 RoleRegistry roleRegistry) {
 		return args -> {
 			// 1. Crear los roles si no existen con los nuevos nombres
 			Role adminRole = roleRepository.findByName("ADMIN")
@@ -47,6 +51,7 @@ public class SistemaUsuariosBackendApplication {
 						System.out.println("Rol SUPERVISOR creado.");
 						return roleRepository.save(newRole);
 					});
+			roleRegistry.refresh();
 
 
 			// 2. Crear usuarios de prueba si no existen
@@ -0,0 +1,107 @@
+package com.usersystem.sistemausuariosbackend.config;
+
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migración de log_entries al formato compacto: event_type/result en texto pasan a event_code/result_code,
+ * ip_address a VARBINARY(16) y description a plantilla FREE_TEXT con el texto original como parámetro.
+ * Hibernate (ddl-auto=update) ya ha añadido las columnas nuevas; aquí se rellenan por tramos de id y
+ * después se eliminan las antiguas. Si aparece un tipo o resultado sin código no se toca nada y el arranque
+ * falla: la aplicación no puede escribir auditoría mientras sigan las columnas antiguas.
+ */
+@Component
+@DependsOn("entityManagerFactory") // Hibernate añade antes las columnas nuevas
+public class AuditRowFormatMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditRowFormatMigration.class);
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final List<String> LEGACY_COLUMNS = List.of("event_type", "result", "ip_address", "description");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditRowFormatMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void migrateLegacyRows() {
+        if (!hasLegacyColumns()) {
+            return;
+        }
+        List<String> unknown = new ArrayList<>();
+        jdbcTemplate.queryForList("SELECT DISTINCT event_type FROM log_entries WHERE event_type IS NOT NULL", String.class)
+                .stream().filter(type -> AuditCodes.eventCode(type) == null).forEach(unknown::add);
+        jdbcTemplate.queryForList("SELECT DISTINCT result FROM log_entries WHERE result IS NOT NULL", String.class)
+                .stream().filter(result -> AuditCodes.resultCode(result) == null).forEach(unknown::add);
+        if (!unknown.isEmpty()) {
+            // Con las columnas antiguas (NOT NULL) aún presentes no se podría insertar ninguna entrada nueva:
+            // se detiene el arranque hasta que se registren los códigos en AuditCodes
+            log.error("log_entries migration aborted: values without code in AuditCodes: {}", unknown);
+            throw new IllegalStateException("Migración de log_entries detenida: valores sin código en AuditCodes " + unknown);
+        }
+
+        String update = "UPDATE log_entries SET "
+                + "event_code = " + caseOf("event_type", AuditCodes.eventTypes()) + ", "
+                + "result_code = " + caseOf("result", AuditCodes.results()) + ", "
+                + "ip = INET6_ATON(ip_address), "
+                + "description_template = " + AuditMessage.FREE_TEXT.getId() + ", "
+                + "description_params = description "
+                + "WHERE id >= ? AND id < ? AND event_type IS NOT NULL";
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM log_entries", Long.class);
+        long migrated = 0;
+        for (long from = 0; maxId != null && from <= maxId; from += CHUNK_SIZE) {
+            // Una transacción corta por tramo: no bloquea la tabla entera durante la migración
+            migrated += jdbcTemplate.update(update, from, from + CHUNK_SIZE);
+        }
+        dropLegacyColumns();
+        log.info("log_entries migrated to the compact format ({} rows)", migrated);
+    }
+
+    private boolean hasLegacyColumns() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, "log_entries", "event_type")) {
+                return columns.next();
+            }
+        }));
+    }
+
+    private void dropLegacyColumns() {
+        try {
+            jdbcTemplate.execute("DROP INDEX idx_log_event_type_timestamp ON log_entries");
+        } catch (DataAccessException e) {
+            // Ya eliminado (otro nodo o una ejecución anterior interrumpida)
+        }
+        for (String column : LEGACY_COLUMNS) {
+            try {
+                jdbcTemplate.execute("ALTER TABLE log_entries DROP COLUMN " + column);
+            } catch (DataAccessException e) {
+                log.debug("Column log_entries.{} already dropped", column);
+            }
+        }
+    }
+
+    // CASE columna WHEN 'NOMBRE' THEN código ... END, con los códigos permanentes de AuditCodes
+    private static String caseOf(String column, List<String> names) {
+        StringBuilder sql = new StringBuilder("CASE ").append(column);
+        for (int i = 0; i < names.size(); i++) {
+            sql.append(" WHEN '").append(names.get(i)).append("' THEN ").append(i + 1);
+        }
+        return sql.append(" END").toString();
+    }
+}
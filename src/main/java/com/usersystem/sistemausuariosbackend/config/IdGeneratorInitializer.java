@@ -0,0 +1,53 @@
+package com.usersystem.sistemausuariosbackend.config;
+
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Migración de IDENTITY a IDs por bloques: antes de la primera inserción deja cada fila
+ * de id_generators por encima del MAX(id) existente de su tabla. Es idempotente y nunca
+ * hace retroceder un contador (UPDATE condicional), así que puede ejecutarse en todos los nodos.
+ */
+@Component
+@DependsOn("entityManagerFactory") // Hibernate crea antes la tabla id_generators
+public class IdGeneratorInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    private static final Map<String, String> TABLES = Map.of(
+            IdBlockAllocator.USERS, "users",
+            IdBlockAllocator.ROLES, "roles",
+            IdBlockAllocator.LOG_ENTRIES, "log_entries");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void alignGeneratorsWithExistingRows() {
+        TABLES.forEach((sequenceName, table) -> {
+            String firstFreeId = "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + ")";
+            try {
+                jdbcTemplate.update("INSERT INTO " + IdBlockAllocator.TABLE + " (sequence_name, next_val) "
+                        + "SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + table + " "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM " + IdBlockAllocator.TABLE + " WHERE sequence_name = ?)",
+                        sequenceName, sequenceName);
+            } catch (DuplicateKeyException e) {
+                // Otro nodo creó la fila a la vez: basta con el UPDATE de abajo
+            }
+            jdbcTemplate.update("UPDATE " + IdBlockAllocator.TABLE + " SET next_val = " + firstFreeId
+                    + " WHERE sequence_name = ? AND next_val < " + firstFreeId, sequenceName);
+            log.info("ID generator '{}' aligned with table {}", sequenceName, table);
+        });
+    }
+}
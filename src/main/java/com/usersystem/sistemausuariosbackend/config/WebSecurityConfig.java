@@ -1,9 +1,14 @@
 package com.usersystem.sistemausuariosbackend.config;
 
+import com.usersystem.sistemausuariosbackend.security.BoundedPasswordEncoder;
 import com.usersystem.sistemausuariosbackend.security.CustomAccessDeniedHandler;
+import com.usersystem.sistemausuariosbackend.security.IngestApiKeyFilter;
 import com.usersystem.sistemausuariosbackend.security.JwtAuthFilter;
 import com.usersystem.sistemausuariosbackend.security.JwtAuthEntryPoint;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,18 +38,26 @@ public class WebSecurityConfig {
     private final JwtAuthEntryPoint unauthorizedHandler;
     private final JwtAuthFilter jwtAuthFilter;
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
+    private final IngestApiKeyFilter ingestApiKeyFilter;
 
     public WebSecurityConfig(JwtAuthEntryPoint unauthorizedHandler,
                              JwtAuthFilter jwtAuthFilter,
-                             CustomAccessDeniedHandler customAccessDeniedHandler) {
+                             CustomAccessDeniedHandler customAccessDeniedHandler,
+                             IngestApiKeyFilter ingestApiKeyFilter) {
         this.unauthorizedHandler = unauthorizedHandler;
         this.jwtAuthFilter = jwtAuthFilter;
         this.customAccessDeniedHandler = customAccessDeniedHandler;
+        this.ingestApiKeyFilter = ingestApiKeyFilter;
     }
 
+    // BCrypt en un pool acotado. Subir el coste re-hashea las contraseñas al siguiente login.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength,
+                                           @Value("${security.hashing.threads:0}") int threads,
+                                           @Value("${security.hashing.queue-capacity:64}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -76,8 +89,12 @@ public class WebSecurityConfig {
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
+                        // El despacho ASYNC (exportaciones en streaming, SSE) continúa una petición ya autorizada
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll() // <-- AÑADE ESTA LÍNEA
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .requestMatchers("/api/users/avatars/**").permitAll() // <-- AÑADE ESTA OTRAS LÍNEA
                         .requestMatchers("/api/users/me").authenticated()
                         .requestMatchers("/api/users/me/**").authenticated()
@@ -85,10 +102,12 @@ public class WebSecurityConfig {
                         .requestMatchers("/api/users/**").hasAnyAuthority("ADMIN", "SUPERVISOR")
                         .requestMatchers("/api/logs/**").hasAnyAuthority("ADMIN", "SUPERVISOR")
                         .requestMatchers("/api/reports/**").hasAnyAuthority("ADMIN", "SUPERVISOR")
+                        .requestMatchers("/api/ingest/**").hasAuthority(IngestApiKeyFilter.AUTHORITY)
                         .anyRequest().authenticated()
                 );
 
         http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(ingestApiKeyFilter, JwtAuthFilter.class);
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()));
 
         return http.build();
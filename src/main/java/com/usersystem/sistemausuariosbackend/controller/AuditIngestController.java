@@ -0,0 +1,57 @@
+package com.usersystem.sistemausuariosbackend.controller;
+
+import com.usersystem.sistemausuariosbackend.payload.AuditIngestResult;
+import com.usersystem.sistemausuariosbackend.security.IngestRateLimiter;
+import com.usersystem.sistemausuariosbackend.service.AuditIngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+// Entrada de eventos de auditoría de otros servicios internos (autenticados con X-Api-Key)
+@RestController
+@RequestMapping("/api/ingest")
+public class AuditIngestController {
+
+    private final AuditIngestService auditIngestService;
+    private final IngestRateLimiter ingestRateLimiter;
+
+    public AuditIngestController(AuditIngestService auditIngestService, IngestRateLimiter ingestRateLimiter) {
+        this.auditIngestService = auditIngestService;
+        this.ingestRateLimiter = ingestRateLimiter;
+    }
+
+    /**
+     * Recibe un lote NDJSON (application/x-ndjson, opcionalmente con Content-Encoding: gzip).
+     * El cuerpo se lee directamente del request, sin cargarlo entero en memoria.
+     * 200 si se procesaron todas las líneas (con los errores de cada una), 429 o 503 si la carga se
+     * detuvo antes: las líneas anteriores a resumeFromLine ya están guardadas.
+     */
+    @PostMapping(value = "/audit-events", consumes = {"application/x-ndjson", "application/json"})
+    @PreAuthorize("hasAuthority('AUDIT_INGEST')")
+    public ResponseEntity<AuditIngestResult> ingest(Authentication client, HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body, 64 * 1024);
+        }
+        AuditIngestResult result = auditIngestService.ingest(client.getName(), body);
+        if (AuditIngestService.STOPPED_RATE_LIMITED.equals(result.getStoppedBy())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ingestRateLimiter.retryAfterSeconds()))
+                    .body(result);
+        }
+        if (AuditIngestService.STOPPED_DATABASE_UNAVAILABLE.equals(result.getStoppedBy())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,12 +1,19 @@
 package com.usersystem.sistemausuariosbackend.controller;
 
+import com.usersystem.sistemausuariosbackend.exception.InvalidRefreshTokenException;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
 import com.usersystem.sistemausuariosbackend.model.User;
 import com.usersystem.sistemausuariosbackend.payload.*;
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
 import com.usersystem.sistemausuariosbackend.service.EmailService;
 import com.usersystem.sistemausuariosbackend.service.LogService;
+import com.usersystem.sistemausuariosbackend.service.RefreshTokenService;
+import com.usersystem.sistemausuariosbackend.service.UserService;
+import com.usersystem.sistemausuariosbackend.security.AuthenticatedUser;
 import com.usersystem.sistemausuariosbackend.security.JwtUtil;
+import com.usersystem.sistemausuariosbackend.security.LoginThrottle;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,7 +21,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
@@ -35,6 +41,9 @@ public class AuthController {
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
     private final TwoFactorAuthService twoFactorAuthService;
+    private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginThrottle loginThrottle;
 
     public AuthController(AuthenticationManager authenticationManager,
                           UserRepository userRepository,
@@ -42,7 +51,10 @@ public class AuthController {
                           LogService logService,
                           EmailService emailService,
                           PasswordEncoder passwordEncoder,
-                          TwoFactorAuthService twoFactorAuthService) { // <-- ¡AÑADE ESTO!
+                          TwoFactorAuthService twoFactorAuthService,
+                          UserService userService,
+                          RefreshTokenService refreshTokenService,
+                          LoginThrottle loginThrottle) { // <-- ¡AÑADE ESTO!
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.jwtUtil = jwtUtil;
@@ -50,6 +62,9 @@ public class AuthController {
         this.emailService = emailService;
         this.passwordEncoder = passwordEncoder;
         this.twoFactorAuthService = twoFactorAuthService;
+        this.userService = userService;
+        this.refreshTokenService = refreshTokenService;
+        this.loginThrottle = loginThrottle;
 
     }
 
@@ -57,9 +72,16 @@ public class AuthController {
     public ResponseEntity<?> authenticateUser(@RequestBody LoginDto loginDto, HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
 
+        // Antes de cualquier hash o consulta: límite de intentos por IP y por email
+        if (!loginThrottle.tryAcquire(ipAddress, loginDto.getEmail())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginThrottle.retryAfterSeconds()))
+                    .build();
+        }
+
         if (loginDto.getEmail() == null || loginDto.getPassword() == null) {
             logService.log("LOGIN_ATTEMPT", loginDto.getEmail(), null, null, null,
-                    "Intento de login con credenciales incompletas", "FAILURE", ipAddress);
+                    AuditMessage.LOGIN_INCOMPLETE.with(), "FAILURE", ipAddress);
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
 
@@ -72,16 +94,14 @@ public class AuthController {
             // ya que el token no es el final. Se establecerá después de la verificación 2FA.
             // SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            User loggedInUser = userRepository.findByEmail(loginDto.getEmail()).orElse(null);
-            if (loggedInUser == null) {
-                return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
-            }
+            // El principal ya trae id, rol, 2FA y avatar: no hace falta volver a consultar al usuario
+            AuthenticatedUser loggedInUser = (AuthenticatedUser) authentication.getPrincipal();
 
             // --- Lógica de 2FA (no necesita cambios)
             if (loggedInUser.isTwoFactorEnabled()) {
                 // Genera un token TEMPORAL que solo servirá para el siguiente paso (verificación del 2FA)
                 // No necesita tener el rol para este paso.
-                String tempToken = jwtUtil.generateToken((org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal());
+                String tempToken = jwtUtil.generateToken(loggedInUser);
 
                 // Envía la respuesta para que el frontend pida el código 2FA
                 return ResponseEntity.ok(new Login2FAResponse(tempToken, "Bearer", "Se requiere código 2FA.", true));
@@ -89,10 +109,10 @@ public class AuthController {
             // --- Fin de la lógica 2FA
 
             // Si el 2FA NO está habilitado, procede con el login normal
-            String token = jwtUtil.generateToken((org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal());
-            String roleName = loggedInUser.getRole().getName();
-            logService.log("USER_LOGIN", loggedInUser.getUsername(), loggedInUser.getId(), null, null,
-                    "Inicio de sesión exitoso", "SUCCESS", ipAddress);
+            String token = jwtUtil.generateToken(loggedInUser);
+            String roleName = loggedInUser.getRole();
+            logService.log("USER_LOGIN", loggedInUser.getAppUsername(), loggedInUser.getId(), null, null,
+                    AuditMessage.LOGIN_SUCCESS.with(), "SUCCESS", ipAddress);
 
             // ➡️ CORRECCIÓN CLAVE: Construir y devolver la URL del avatar
             String avatarUrl = null;
@@ -105,13 +125,14 @@ public class AuthController {
             return ResponseEntity.ok(new LoginResponseDto(
                     token, "Bearer", loggedInUser.getId(), loggedInUser.getFirstName(),
                     loggedInUser.getLastName(), loggedInUser.getEmail(), loggedInUser.getDni(), roleName,
-                    avatarUrl // ➡️ Añade el avatarUrl
+                    avatarUrl, // ➡️ Añade el avatarUrl
+                    refreshTokenService.issue(loggedInUser.getId())
             ));
 
         } catch (AuthenticationException e) {
             System.err.println("Authentication failed for email: " + loginDto.getEmail() + " - Error: " + e.getMessage());
             logService.log("LOGIN_ATTEMPT", loginDto.getEmail(), null, null, null,
-                    "Intento de login fallido: " + e.getMessage(), "FAILURE", ipAddress);
+                    AuditMessage.LOGIN_FAILED.with(e.getMessage()), "FAILURE", ipAddress);
             return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
         }
     }
@@ -177,11 +198,29 @@ public class AuthController {
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         user.setPasswordResetToken(null);
         user.setTokenExpirationDate(null);
-        userRepository.save(user);
+        userService.saveUser(user); // También invalida la caché de UserDetails
+        refreshTokenService.revokeAll(user.getId());
 
         return ResponseEntity.ok("Contraseña restablecida exitosamente.");
     }
 
+    // Renueva el access token con un refresh token; no toca el PasswordEncoder
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest request) {
+        try {
+            return ResponseEntity.ok(refreshTokenService.rotate(request.getRefreshToken()));
+        } catch (InvalidRefreshTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    // Revoca el refresh token de la sesión actual
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody TokenRefreshRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/verify-2fa")
     public ResponseEntity<?> verify2fa(@RequestHeader("Authorization") String token,
                                        @RequestBody TwoFactorAuthRequest twoFactorAuthRequest,
@@ -195,16 +234,8 @@ public class AuthController {
             if (twoFactorAuthService.verifyCode(twoFactorAuthRequest.getVerificationCode(), user.getTwoFactorSecret())) {
 
 
-                // --- Corregimos el método generateToken
-                // Necesitamos un objeto UserDetails para generar el token final
-                // Asumimos que tu clase User implementa UserDetails, si no es así,
-                // habría que crear una implementación
-                UserDetails userDetails = new org.springframework.security.core.userdetails.User(
-                        user.getEmail(),
-                        user.getPassword(),
-                        user.getAuthorities() // Asume que tienes un getAuthorities en User
-                );
-                String finalToken = jwtUtil.generateToken(userDetails);
+                // El token final lleva id, rol y versión de seguridad del usuario
+                String finalToken = jwtUtil.generateToken(AuthenticatedUser.fromUser(user));
 
                 String roleName = user.getRole().getName();
 
@@ -219,7 +250,8 @@ public class AuthController {
                 return ResponseEntity.ok(new LoginResponseDto(
                         finalToken, "Bearer", user.getId(), user.getFirstName(),
                         user.getLastName(), user.getEmail(), user.getDni(), roleName,
-                        avatarUrl // ➡️ Añade el avatarUrl
+                        avatarUrl, // ➡️ Añade el avatarUrl
+                        refreshTokenService.issue(user.getId())
                 ));
 
             } else {
@@ -1,26 +1,54 @@
 package com.usersystem.sistemausuariosbackend.controller;
 
 import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.model.RollupGranularity;
+import com.usersystem.sistemausuariosbackend.payload.LogCountEstimate;
+import com.usersystem.sistemausuariosbackend.payload.LogCursorPage;
+import com.usersystem.sistemausuariosbackend.payload.LogStatsPoint;
+import com.usersystem.sistemausuariosbackend.service.LogEventBroadcaster;
+import com.usersystem.sistemausuariosbackend.service.LogExportFormat;
+import com.usersystem.sistemausuariosbackend.service.LogRollupService;
 import com.usersystem.sistemausuariosbackend.service.LogService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/logs")
 public class LogController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+
     private final LogService logService;
+    private final LogEventBroadcaster logEventBroadcaster;
+    private final LogRollupService logRollupService;
+    private final long exportTimeoutMs;
 
-    public LogController(LogService logService) {
+    public LogController(LogService logService, LogEventBroadcaster logEventBroadcaster,
+                         LogRollupService logRollupService,
+                         @Value("${logs.export.timeout-ms:3600000}") long exportTimeoutMs) {
         this.logService = logService;
+        this.logEventBroadcaster = logEventBroadcaster;
+        this.logRollupService = logRollupService;
+        this.exportTimeoutMs = exportTimeoutMs;
     }
 
     @GetMapping
@@ -65,4 +93,165 @@ public class LogController {
         Page<LogEntry> logs = logService.getLogs(eventType, username, targetUsername, startDateTime, endDateTime, pageable);
         return ResponseEntity.ok(logs);
     }
-}
\ No newline at end of file
+
+    // Paginación por cursor (keyset) para tablas grandes: mismos filtros, sin COUNT ni OFFSET
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<LogCursorPage> getLogsByCursor(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String targetUsername,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(logService.getLogsByCursor(eventType, username, targetUsername,
+                    parseStart(startDate), parseEnd(endDate), cursor, size));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Total aproximado, pedido aparte para no pagar el conteo en cada página
+    @GetMapping("/count")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<LogCountEstimate> countLogs(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String targetUsername,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate
+    ) {
+        try {
+            return ResponseEntity.ok(logService.countLogs(eventType, username, targetUsername,
+                    parseStart(startDate), parseEnd(endDate)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Exportación completa (CSV o NDJSON, opcionalmente gzip) transmitida mientras se lee de la BD
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<StreamingResponseBody> exportLogs(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String targetUsername,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            WebRequest request
+    ) {
+        LogExportFormat exportFormat;
+        LocalDateTime startDateTime;
+        LocalDateTime endDateTime;
+        try {
+            exportFormat = LogExportFormat.valueOf(format.toUpperCase());
+            startDateTime = parseStart(startDate);
+            endDateTime = parseEnd(endDate);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Tiempo máximo propio de la exportación; el resto de peticiones asíncronas conserva el general
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportTimeoutMs);
+
+        String filename = "logs." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                logService.exportLogs(eventType, username, targetUsername, startDateTime, endDateTime, exportFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                logService.exportLogs(eventType, username, targetUsername, startDateTime, endDateTime, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .body(body);
+    }
+
+    // Eventos nuevos en vivo (SSE); al reconectar, el navegador envía Last-Event-ID y se reanuda desde ahí
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<SseEmitter> streamLogs(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String result,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId
+    ) {
+        String resumeFrom = lastEventIdHeader != null ? lastEventIdHeader : lastEventId;
+        Long resumeId;
+        try {
+            resumeId = resumeFrom == null || resumeFrom.isEmpty() ? null : Long.valueOf(resumeFrom);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = logEventBroadcaster.subscribe(eventType, username, result, resumeId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Series temporales (por minuto, hora o día) leídas de los rollups, sin recorrer log_entries
+    @GetMapping("/stats")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<List<LogStatsPoint>> getStats(
+            @RequestParam(defaultValue = "HOUR") String granularity,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String result
+    ) {
+        try {
+            RollupGranularity rollupGranularity = RollupGranularity.valueOf(granularity.toUpperCase());
+            LocalDateTime toDateTime = to == null || to.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(to);
+            LocalDateTime fromDateTime = from == null || from.isEmpty() ? toDateTime.minusDays(1) : LocalDateTime.parse(from);
+            return ResponseEntity.ok(logRollupService.getStats(rollupGranularity, fromDateTime, toDateTime, eventType, result));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Reconstruye los rollups de días completos ya pasados [from, to) a partir del histórico
+    @PostMapping("/stats/backfill")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<String> backfillStats(@RequestParam String from, @RequestParam String to) {
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!fromDate.isBefore(toDate) || toDate.isAfter(LocalDate.now())) {
+            return ResponseEntity.badRequest().body("El rango debe cubrir días completos anteriores a hoy");
+        }
+        try {
+            if (!logRollupService.startBackfill(fromDate, toDate)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Ya hay una reconstrucción en curso");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.accepted().body("Reconstrucción iniciada");
+    }
+
+    private static LocalDateTime parseStart(String startDate) {
+        return startDate == null || startDate.isEmpty() ? null : LocalDateTime.parse(startDate + "T00:00:00");
+    }
+
+    private static LocalDateTime parseEnd(String endDate) {
+        return endDate == null || endDate.isEmpty() ? null : LocalDateTime.parse(endDate + "T23:59:59");
+    }
+}
@@ -3,7 +3,7 @@ package com.usersystem.sistemausuariosbackend.controller;
 
 import com.usersystem.sistemausuariosbackend.model.User;
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
-import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.service.RoleRegistry;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -36,11 +36,18 @@ import java.util.stream.Collectors;
 public class ReportController {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
 
-    public ReportController(UserRepository userRepository, RoleRepository roleRepository) {
+    public ReportController(UserRepository userRepository, RoleRegistry roleRegistry) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
+    }
+
+    // Usuarios con rol EMPLEADO (lo que puede ver un supervisor), filtrados por role_id sin JOIN
+    private List<User> employees() {
+        return roleRegistry.findByName("EMPLEADO")
+                .map(userRepository::findByRole)
+                .orElse(List.of());
     }
 
     @GetMapping("/summary")
@@ -84,7 +91,7 @@ public class ReportController {
 
         // ⬅️ CAMBIO: Filtramos la lista de usuarios según el rol
         if (authentication != null && authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("SUPERVISOR"))) {
-            users = userRepository.findByRoleName("EMPLEADO");
+            users = employees();
         } else {
             users = userRepository.findAll();
         }
@@ -154,7 +161,7 @@ public class ReportController {
 
         // ⬅️ CAMBIO: Filtramos la lista de usuarios según el rol
         if (authentication != null && authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("SUPERVISOR"))) {
-            users = userRepository.findByRoleName("EMPLEADO");
+            users = employees();
         } else {
             users = userRepository.findAll();
         }
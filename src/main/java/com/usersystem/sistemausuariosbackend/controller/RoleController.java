@@ -1,7 +1,7 @@
 package com.usersystem.sistemausuariosbackend.controller;
 
 import com.usersystem.sistemausuariosbackend.model.Role;
-import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.service.RoleRegistry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,16 +14,16 @@ import java.util.List;
 @RequestMapping("/api/roles") // Mapeamos el controlador a /api/roles
 public class RoleController {
 
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
 
-    public RoleController(RoleRepository roleRepository) {
-        this.roleRepository = roleRepository;
+    public RoleController(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
     }
 
     @GetMapping("/all") // Creamos el endpoint para obtener todos los roles
     @PreAuthorize("hasAuthority('ADMIN')") // Solo un ADMIN puede crear usuarios, por lo tanto, solo un ADMIN necesita ver la lista de roles
     public ResponseEntity<List<Role>> getAllRoles() {
-        List<Role> roles = roleRepository.findAll();
+        List<Role> roles = roleRegistry.findAll(); // Desde memoria, sin consultar la base de datos
         return ResponseEntity.ok(roles);
     }
 }
\ No newline at end of file
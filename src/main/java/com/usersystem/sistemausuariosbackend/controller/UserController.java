@@ -2,24 +2,35 @@
 
 package com.usersystem.sistemausuariosbackend.controller;
 
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
 import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.BulkUserActionRequest;
+import com.usersystem.sistemausuariosbackend.payload.BulkUserActionResult;
 import com.usersystem.sistemausuariosbackend.payload.ChangePasswordRequest;
 import com.usersystem.sistemausuariosbackend.payload.TwoFactorAuthRequest;
+import com.usersystem.sistemausuariosbackend.payload.UserAvailabilityDto;
+import com.usersystem.sistemausuariosbackend.payload.UserCursorPage;
+import com.usersystem.sistemausuariosbackend.payload.UserImportResult;
 import com.usersystem.sistemausuariosbackend.payload.UserProfileUpdateDto;
 import com.usersystem.sistemausuariosbackend.payload.UserResponseDto;
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
 import com.usersystem.sistemausuariosbackend.service.FileStorageService;
 import com.usersystem.sistemausuariosbackend.service.LogService;
+import com.usersystem.sistemausuariosbackend.service.RoleRegistry;
 import com.usersystem.sistemausuariosbackend.service.TwoFactorAuthService;
+import com.usersystem.sistemausuariosbackend.service.UserAvailabilityIndex;
+import com.usersystem.sistemausuariosbackend.service.UserImportService;
 import com.usersystem.sistemausuariosbackend.service.UserService;
 import com.usersystem.sistemausuariosbackend.model.Role;
-import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.security.AuthenticatedUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid; // Importar la anotación Valid
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder; // <-- Asegúrate de que esta línea esté presente
@@ -34,6 +45,9 @@ import org.springframework.http.MediaType; // Importación nueva
 import java.net.MalformedURLException; // Importación nueva
 
 import java.net.MalformedURLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.io.IOException;
@@ -45,52 +59,104 @@ import java.nio.file.Paths;
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
     private final UserRepository userRepository;
     private final LogService logService;
     private final UserService userService;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
     private final FileStorageService fileStorageService;
     private final TwoFactorAuthService twoFactorAuthService;
+    private final UserImportService userImportService;
+    private final UserAvailabilityIndex availabilityIndex;
 
     public UserController(UserRepository userRepository,
                           LogService logService,
                           UserService userService,
-                          RoleRepository roleRepository,
+                          RoleRegistry roleRegistry,
                           PasswordEncoder passwordEncoder,
                           FileStorageService fileStorageService,
-                          TwoFactorAuthService twoFactorAuthService) { // <-- ¡AÑADE ESTO!
+                          TwoFactorAuthService twoFactorAuthService, // <-- ¡AÑADE ESTO!
+                          UserImportService userImportService,
+                          UserAvailabilityIndex availabilityIndex) {
         this.userRepository = userRepository;
         this.logService = logService;
         this.userService = userService;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
         this.passwordEncoder = passwordEncoder;
         this.fileStorageService = fileStorageService;
         this.twoFactorAuthService = twoFactorAuthService;// <-- ¡AÑADE ESTO!
+        this.userImportService = userImportService;
+        this.availabilityIndex = availabilityIndex;
     }
 
-    @GetMapping("/all")
+    /**
+     * Listado paginado por cursor, filtrado y ordenado en la base de datos.
+     * Devuelve solo los campos de la tabla de usuarios (UserSummaryDto), nunca la entidad completa.
+     * Los supervisores solo ven empleados: se aplica en la consulta, no sobre el resultado.
+     */
+    @GetMapping
     @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
-    public ResponseEntity<List<User>> getAllUsers(Authentication authentication) {
-        // CAMBIO: Lógica para que el SUPERVISOR solo vea EMPLEADOS
+    public ResponseEntity<UserCursorPage> listUsers(
+            Authentication authentication,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) String createdFrom,
+            @RequestParam(required = false) String createdTo,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
         boolean isSupervisor = authentication.getAuthorities().stream()
                 .anyMatch(a -> a.getAuthority().equals("SUPERVISOR"));
+        try {
+            return ResponseEntity.ok(userService.listUsers(role, enabled,
+                    parseStart(createdFrom), parseEnd(createdTo),
+                    q, isSupervisor, sort, !"asc".equalsIgnoreCase(direction), cursor, size));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        if (isSupervisor) {
-            List<User> employees = userRepository.findByRoleName("EMPLEADO");
-            return ResponseEntity.ok(employees);
-        } else {
-            List<User> users = userService.getAllUsers();
-            return ResponseEntity.ok(users);
+    /**
+     * Comprobación en vivo para el formulario de alta: indica si cada valor pedido está libre.
+     * Los valores libres casi siempre se responden desde memoria (UserAvailabilityIndex), sin consultas.
+     */
+    @GetMapping("/availability")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<UserAvailabilityDto> checkAvailability(@RequestParam(required = false) String username,
+                                                                 @RequestParam(required = false) String email,
+                                                                 @RequestParam(required = false) String dni) {
+        if (isBlank(username) && isBlank(email) && isBlank(dni)) {
+            return ResponseEntity.badRequest().build();
         }
+        UserAvailabilityDto availability = new UserAvailabilityDto();
+        if (!isBlank(username)) {
+            availability.setUsername(!availabilityIndex.isTaken(UserAvailabilityIndex.Field.USERNAME, username));
+        }
+        if (!isBlank(email)) {
+            availability.setEmail(!availabilityIndex.isTaken(UserAvailabilityIndex.Field.EMAIL, email));
+        }
+        if (!isBlank(dni)) {
+            availability.setDni(!availabilityIndex.isTaken(UserAvailabilityIndex.Field.DNI, dni));
+        }
+        return ResponseEntity.ok(availability);
     }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 
     @GetMapping("/me")
-    public ResponseEntity<UserResponseDto> getMyProfile(Authentication authentication) {
-        String email = authentication.getName();
-
-        return userRepository.findByEmail(email)
+    public ResponseEntity<UserResponseDto> getMyProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return userRepository.findById(currentUser.getId())
                 .map(user -> {
                     UserResponseDto dto = UserResponseDto.fromUser(user);
 
@@ -110,15 +176,15 @@ public class UserController {
     }
     @DeleteMapping("/{userId}")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long userId, Authentication authentication, HttpServletRequest request) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long userId, @AuthenticationPrincipal AuthenticatedUser currentUser, HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
-        String currentUsername = authentication.getName();
-        Long currentUserId = userRepository.findByEmail(currentUsername).map(User::getId).orElse(null);
+        String currentUsername = currentUser.getEmail();
+        Long currentUserId = currentUser.getId(); // Viene en el token: sin consulta extra
 
         Optional<User> userToDelete = userRepository.findById(userId);
         if (userToDelete.isPresent()) {
             userService.deleteUser(userId);
-            String description = String.format("El usuario '%s' (ID: %d) ha sido eliminado.", userToDelete.get().getUsername(), userToDelete.get().getId());
+            AuditMessage.AuditDescription description = AuditMessage.USER_DELETED.with(userToDelete.get().getUsername(), userToDelete.get().getId());
             logService.log("USER_DELETED", currentUsername, currentUserId, userToDelete.get().getUsername(), userToDelete.get().getId(), description, "SUCCESS", ipAddress);
             return ResponseEntity.ok().build();
         }
@@ -127,16 +193,16 @@ public class UserController {
 
     @PatchMapping("/{userId}/toggle-status")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<User> toggleUserStatus(@PathVariable Long userId, Authentication authentication, HttpServletRequest request) {
+    public ResponseEntity<User> toggleUserStatus(@PathVariable Long userId, @AuthenticationPrincipal AuthenticatedUser currentUser, HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
-        String currentUsername = authentication.getName();
-        Long currentUserId = userRepository.findByEmail(currentUsername).map(User::getId).orElse(null);
+        String currentUsername = currentUser.getEmail();
+        Long currentUserId = currentUser.getId();
 
         Optional<User> updatedUserOptional = userService.toggleUserStatus(userId);
 
         if (updatedUserOptional.isPresent()) {
             User updatedUser = updatedUserOptional.get();
-            String description = String.format("Cambio de estado de la cuenta de '%s' (ID: %d) a %s.",
+            AuditMessage.AuditDescription description = AuditMessage.USER_STATUS_CHANGE.with(
                     updatedUser.getUsername(), updatedUser.getId(), updatedUser.isEnabled() ? "Activo" : "Inactivo");
             logService.log("USER_STATUS_CHANGE", currentUsername, currentUserId,
                     updatedUser.getUsername(), updatedUser.getId(),
@@ -149,25 +215,28 @@ public class UserController {
     @PostMapping("/create")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<?> createUser(@Valid @RequestBody User user,
-                                        Authentication authentication,
+                                        @AuthenticationPrincipal AuthenticatedUser currentUser,
                                         HttpServletRequest request) {
         String ipAddress = request.getRemoteAddr();
-        String adminUsername = authentication.getName();
-        Long adminUserId = userRepository.findByEmail(adminUsername).map(User::getId).orElse(null);
+        String adminUsername = currentUser.getEmail();
+        Long adminUserId = currentUser.getId();
 
         // La anotación @Valid se encarga de la validación inicial del objeto 'user'
 
         // Validaciones de negocio adicionales
-        if (userRepository.findByUsername(user.getUsername()).isPresent() || userRepository.findByEmail(user.getEmail()).isPresent()) {
+        // El índice de disponibilidad solo consulta la base de datos si el valor puede estar ocupado
+        if (availabilityIndex.isTaken(UserAvailabilityIndex.Field.USERNAME, user.getUsername())
+                || availabilityIndex.isTaken(UserAvailabilityIndex.Field.EMAIL, user.getEmail())
+                || availabilityIndex.isTaken(UserAvailabilityIndex.Field.DNI, user.getDni())) {
             logService.log("USER_CREATION_ATTEMPT", adminUsername, adminUserId, null, null,
-                    "Intento de creación de usuario fallido: Username o Email ya en uso.", "FAILURE", ipAddress);
-            return new ResponseEntity<>("Username or Email is already taken!", HttpStatus.BAD_REQUEST);
+                    AuditMessage.USER_CREATION_DUPLICATE.with(), "FAILURE", ipAddress);
+            return new ResponseEntity<>("Username, Email or DNI is already taken!", HttpStatus.BAD_REQUEST);
         }
 
-        Role assignedRole = roleRepository.findByName(user.getRole().getName())
+        Role assignedRole = roleRegistry.findByName(user.getRole().getName())
                 .orElseThrow(() -> {
                     logService.log("USER_CREATION_ATTEMPT", adminUsername, adminUserId, null, null,
-                            "Intento de creación de usuario fallido: Rol '" + user.getRole().getName() + "' no encontrado.", "FAILURE", ipAddress);
+                            AuditMessage.USER_CREATION_ROLE_NOT_FOUND.with(user.getRole().getName()), "FAILURE", ipAddress);
                     return new RuntimeException("Error: Role '" + user.getRole().getName() + "' not found.");
                 });
 
@@ -175,14 +244,114 @@ public class UserController {
         user.setEnabled(true);
         user.setRole(assignedRole); // Asegurar que el rol sea el que se encontró en la BD
 
-        userService.saveUser(user); // Asumo que tienes un método 'saveUser' en tu servicio
+        try {
+            userService.saveUser(user); // Asumo que tienes un método 'saveUser' en tu servicio
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo dio de alta el mismo valor y el índice de disponibilidad aún no lo había visto
+            logService.log("USER_CREATION_ATTEMPT", adminUsername, adminUserId, null, null,
+                    AuditMessage.USER_CREATION_DUPLICATE.with(), "FAILURE", ipAddress);
+            return new ResponseEntity<>("Username, Email or DNI is already taken!", HttpStatus.BAD_REQUEST);
+        }
 
         logService.log("USER_CREATED", adminUsername, adminUserId, user.getUsername(), user.getId(),
-                "Nuevo usuario creado por administrador con rol " + assignedRole.getName(), "SUCCESS", ipAddress);
+                AuditMessage.USER_CREATED.with(assignedRole.getName()), "SUCCESS", ipAddress);
 
         return new ResponseEntity<>("User created successfully with role " + assignedRole.getName() + "!", HttpStatus.CREATED);
     }
 
+    /**
+     * Alta masiva desde CSV (text/csv) o XLSX enviado como cuerpo de la petición (no multipart, para
+     * leerlo en streaming sin el límite de tamaño de los ficheros subidos). La primera fila es la cabecera:
+     * username, email, password, firstName, lastName, role y opcionalmente dni, dateOfBirth, phoneNumber.
+     * Las filas válidas se crean aunque otras fallen; la respuesta incluye el error de cada fila rechazada.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", XLSX_CONTENT_TYPE})
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> importUsers(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                         HttpServletRequest request) throws IOException {
+        UserImportService.Format format = request.getContentType().startsWith(XLSX_CONTENT_TYPE)
+                ? UserImportService.Format.XLSX : UserImportService.Format.CSV;
+        UserImportResult result = new UserImportResult();
+        boolean completed = false;
+        try {
+            userImportService.importUsers(request.getInputStream(), format, result);
+            completed = true;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } finally {
+            // Un único registro de auditoría para toda la importación, también si se corta a medias
+            // (con los usuarios creados hasta ese momento)
+            logService.log("USERS_IMPORTED", currentUser.getEmail(), currentUser.getId(), null, null,
+                    AuditMessage.USERS_IMPORTED.with(result.getRows(), result.getCreated(), result.getRejected()),
+                    completed && result.getCreated() > 0 ? "SUCCESS" : "FAILURE", request.getRemoteAddr());
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Activa, desactiva, cambia de rol o elimina un conjunto de usuarios (por IDs o por filtro) con una
+     * sola sentencia en una transacción, y deja un único registro de auditoría para todo el lote.
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> bulkAction(@Valid @RequestBody BulkUserActionRequest bulkRequest,
+                                        @AuthenticationPrincipal AuthenticatedUser currentUser,
+                                        HttpServletRequest request) {
+        BulkUserActionResult result;
+        try {
+            result = userService.bulkAction(bulkRequest, currentUser.getId());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        String selection = bulkRequest.getFilter() != null
+                ? "filtro: " + describeFilter(bulkRequest.getFilter())
+                : bulkRequest.getIds().size() + " IDs";
+        String eventType;
+        AuditMessage.AuditDescription description;
+        switch (bulkRequest.getAction()) {
+            case CHANGE_ROLE -> {
+                eventType = "USERS_BULK_ROLE_CHANGE";
+                description = AuditMessage.USERS_BULK_ROLE_CHANGE.with(bulkRequest.getRole(), result.getAffected(), selection);
+            }
+            case DELETE -> {
+                eventType = "USERS_BULK_DELETED";
+                description = AuditMessage.USERS_BULK_DELETED.with(result.getAffected(), selection);
+            }
+            default -> {
+                eventType = "USERS_BULK_STATUS_CHANGE";
+                description = AuditMessage.USERS_BULK_STATUS_CHANGE.with(
+                        bulkRequest.getAction() == BulkUserActionRequest.Action.ENABLE ? "Activo" : "Inactivo",
+                        result.getAffected(), selection);
+            }
+        }
+        logService.log(eventType, currentUser.getEmail(), currentUser.getId(), null, null,
+                description, "SUCCESS", request.getRemoteAddr());
+        return ResponseEntity.ok(result);
+    }
+
+    // Solo los criterios informados, con nombres legibles para el registro de auditoría
+    private static String describeFilter(BulkUserActionRequest.Filter filter) {
+        List<String> criteria = new ArrayList<>();
+        if (filter.getRole() != null) {
+            criteria.add("rol " + filter.getRole());
+        }
+        if (filter.getEnabled() != null) {
+            criteria.add(filter.getEnabled() ? "activos" : "inactivos");
+        }
+        if (filter.getCreatedFrom() != null) {
+            criteria.add("creados desde " + filter.getCreatedFrom());
+        }
+        if (filter.getCreatedTo() != null) {
+            criteria.add("creados hasta " + filter.getCreatedTo());
+        }
+        if (filter.getQ() != null && !filter.getQ().isBlank()) {
+            criteria.add("búsqueda \"" + filter.getQ().trim() + "\"");
+        }
+        return criteria.isEmpty() ? "todos los usuarios" : String.join(", ", criteria);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERVISOR')")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
@@ -194,16 +363,22 @@ public class UserController {
     @PutMapping("/{userId}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<User> updateUser(@PathVariable Long userId, @Valid @RequestBody User user) {
-        Optional<User> updatedUserOptional = userService.updateUserWithValidation(userId, user); // Nuevo método en el servicio
+        Optional<User> updatedUserOptional;
+        try {
+            updatedUserOptional = userService.updateUserWithValidation(userId, user); // Nuevo método en el servicio
+        } catch (IllegalArgumentException | DataIntegrityViolationException e) {
+            // Username, email o DNI ya usado por otro usuario (la violación del índice único llega si el
+            // valor se dio de alta en otro nodo y el índice de disponibilidad aún no lo había visto)
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return updatedUserOptional.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PatchMapping("/me")
-    public ResponseEntity<UserResponseDto> updateUserProfile(@Valid @RequestBody UserProfileUpdateDto profileUpdateDto, Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .flatMap(user -> userService.updateUserProfile(user.getId(), profileUpdateDto))
+    public ResponseEntity<UserResponseDto> updateUserProfile(@Valid @RequestBody UserProfileUpdateDto profileUpdateDto,
+                                                             @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return userService.updateUserProfile(currentUser.getId(), profileUpdateDto)
                 .map(UserResponseDto::fromUser)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -211,35 +386,31 @@ public class UserController {
 
     @PatchMapping("/me/change-password")
     public ResponseEntity<?> changeUserPassword(@Valid @RequestBody ChangePasswordRequest request,
-                                                Authentication authentication,
+                                                @AuthenticationPrincipal AuthenticatedUser currentUser,
                                                 HttpServletRequest servletRequest) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email).map(user -> {
-            boolean isPasswordChanged = userService.changePassword(
-                    user.getId(),
-                    request.getCurrentPassword(),
-                    request.getNewPassword(),
-                    passwordEncoder
-            );
-
-            if (isPasswordChanged) {
-                String ipAddress = servletRequest.getRemoteAddr();
-                logService.log("USER_PASSWORD_CHANGE", user.getUsername(), user.getId(), null, null,
-                        "Contraseña del perfil cambiada exitosamente.", "SUCCESS", ipAddress);
-                return ResponseEntity.ok("Contraseña cambiada exitosamente.");
-            } else {
-                return ResponseEntity.badRequest().body("La contraseña actual es incorrecta.");
-            }
-        }).orElse(ResponseEntity.notFound().build());
+        boolean isPasswordChanged = userService.changePassword(
+                currentUser.getId(),
+                request.getCurrentPassword(),
+                request.getNewPassword(),
+                passwordEncoder
+        );
+
+        if (isPasswordChanged) {
+            String ipAddress = servletRequest.getRemoteAddr();
+            logService.log("USER_PASSWORD_CHANGE", currentUser.getAppUsername(), currentUser.getId(), null, null,
+                    AuditMessage.PASSWORD_CHANGED.with(), "SUCCESS", ipAddress);
+            return ResponseEntity.ok("Contraseña cambiada exitosamente.");
+        } else {
+            return ResponseEntity.badRequest().body("La contraseña actual es incorrecta.");
+        }
     }
 
     @PostMapping("/me/avatar")
     public ResponseEntity<?> uploadAvatar(@RequestParam("file") MultipartFile file,
-                                          Authentication authentication,
+                                          @AuthenticationPrincipal AuthenticatedUser currentUser,
                                           HttpServletRequest request) {
         try {
-            String email = authentication.getName();
-            return userRepository.findByEmail(email).map(user -> {
+            return userRepository.findById(currentUser.getId()).map(user -> {
 
                 // ➡️ Paso 1: Guardar el nuevo avatar y obtener su nombre de archivo
                 String fileName = null;
@@ -263,7 +434,7 @@ public class UserController {
 
                 String ipAddress = request.getRemoteAddr();
                 logService.log("USER_AVATAR_UPLOAD", user.getUsername(), user.getId(), null, null,
-                        "Avatar actualizado exitosamente.", "SUCCESS", ipAddress);
+                        AuditMessage.AVATAR_UPDATED.with(), "SUCCESS", ipAddress);
 
                 // Paso 4: Devolver la URL completa al frontend
                 String fileDownloadUri = ServletUriComponentsBuilder.fromCurrentContextPath()
@@ -300,12 +471,11 @@ public class UserController {
     }
 
     @PostMapping("/me/2fa/generate")
-    public ResponseEntity<String> generate2faSecret(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email).map(user -> {
+    public ResponseEntity<String> generate2faSecret(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return userRepository.findById(currentUser.getId()).map(user -> {
             String newSecret = twoFactorAuthService.generateNewSecret();
             user.setTwoFactorSecret(newSecret);
-            userRepository.save(user);
+            userService.saveUser(user);
 
             // --- CAMBIO AQUÍ: Usamos el nuevo metodo que devuelve solo la URL de texto
             String qrCodeText = twoFactorAuthService.getOtpAuthUrl(newSecret, "SistemaUsuarios", user.getEmail());
@@ -315,12 +485,12 @@ public class UserController {
     }
 
     @PostMapping("/me/2fa/enable")
-    public ResponseEntity<?> enable2fa(@Valid @RequestBody TwoFactorAuthRequest request, Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email).map(user -> {
+    public ResponseEntity<?> enable2fa(@Valid @RequestBody TwoFactorAuthRequest request,
+                                       @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return userRepository.findById(currentUser.getId()).map(user -> {
             if (twoFactorAuthService.verifyCode(request.getVerificationCode(), user.getTwoFactorSecret())) {
                 user.setTwoFactorEnabled(true);
-                userRepository.save(user);
+                userService.saveUser(user);
                 return ResponseEntity.ok("2FA habilitado exitosamente.");
             } else {
                 return ResponseEntity.badRequest().body("Código de verificación incorrecto.");
@@ -329,17 +499,25 @@ public class UserController {
     }
 
     @PostMapping("/me/2fa/disable")
-    public ResponseEntity<?> disable2fa(@Valid @RequestBody TwoFactorAuthRequest request, Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email).map(user -> {
+    public ResponseEntity<?> disable2fa(@Valid @RequestBody TwoFactorAuthRequest request,
+                                       @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return userRepository.findById(currentUser.getId()).map(user -> {
             if (twoFactorAuthService.verifyCode(request.getVerificationCode(), user.getTwoFactorSecret())) {
                 user.setTwoFactorEnabled(false);
                 user.setTwoFactorSecret(null); // Borramos el secreto por seguridad
-                userRepository.save(user);
+                userService.saveUser(user);
                 return ResponseEntity.ok("2FA deshabilitado exitosamente.");
             } else {
                 return ResponseEntity.badRequest().body("Código de verificación incorrecto.");
             }
         }).orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    private static LocalDateTime parseStart(String startDate) {
+        return startDate == null || startDate.isEmpty() ? null : LocalDateTime.parse(startDate + "T00:00:00");
+    }
+
+    private static LocalDateTime parseEnd(String endDate) {
+        return endDate == null || endDate.isEmpty() ? null : LocalDateTime.parse(endDate + "T23:59:59");
+    }
+}
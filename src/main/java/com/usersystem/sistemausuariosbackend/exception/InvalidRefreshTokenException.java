@@ -0,0 +1,9 @@
+package com.usersystem.sistemausuariosbackend.exception;
+
+// Refresh token inexistente, expirado, revocado o de un usuario deshabilitado
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
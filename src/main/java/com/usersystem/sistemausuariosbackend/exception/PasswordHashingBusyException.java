@@ -0,0 +1,9 @@
+package com.usersystem.sistemausuariosbackend.exception;
+
+// El pool de hashing de contraseñas está saturado; se responde 503 con Retry-After
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Código asignado a un tipo de evento o resultado que no es de esta aplicación (ver AuditCodes).
+ * Las filas no se borran ni se modifican: log_entries guarda el código, no el nombre.
+ */
+@Entity
+@Table(name = "audit_codes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_audit_codes_kind_name", columnNames = {"kind", "name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditCode {
+
+    // Mismo límite que LogRollupId.eventType (los resultados, 20)
+    public static final int NAME_LENGTH = 50;
+
+    @EmbeddedId
+    private AuditCodeId id;
+
+    @Column(nullable = false, length = NAME_LENGTH)
+    private String name;
+}
@@ -0,0 +1,28 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// Clave de audit_codes: un código es único dentro de su tipo (evento o resultado)
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditCodeId implements Serializable {
+
+    public enum Kind { EVENT, RESULT }
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Kind kind;
+
+    @Column(nullable = false)
+    private short code;
+}
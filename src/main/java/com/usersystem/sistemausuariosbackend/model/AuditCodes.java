@@ -0,0 +1,132 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Códigos numéricos con los que se guardan en log_entries el tipo de evento (SMALLINT) y el resultado (TINYINT).
+ * Los códigos son permanentes: un tipo nuevo se añade al final con el siguiente número, nunca se reutiliza uno.
+ * Los tipos de otros servicios (carga de eventos) reciben código en su primer uso a partir de
+ * {@link #FIRST_CUSTOM_EVENT_CODE} / {@link #FIRST_CUSTOM_RESULT_CODE}; los asigna y persiste
+ * AuditCodeRegistry en la tabla audit_codes y aquí solo se consultan.
+ */
+public final class AuditCodes {
+
+    public static final short FIRST_CUSTOM_EVENT_CODE = 1000;
+    public static final byte FIRST_CUSTOM_RESULT_CODE = 64;
+
+    private static final List<String> EVENT_TYPES = List.of(
+            "USER_LOGIN",               // 1
+            "LOGIN_ATTEMPT",            // 2
+            "LOGIN_THROTTLED",          // 3
+            "USER_CREATED",             // 4
+            "USER_CREATION_ATTEMPT",    // 5
+            "USER_DELETED",             // 6
+            "USER_STATUS_CHANGE",       // 7
+            "USER_PASSWORD_CHANGE",     // 8
+            "USER_AVATAR_UPLOAD",       // 9
+            "USER_UPDATED",             // 10
+            "USERS_IMPORTED",           // 11
+            "USERS_BULK_STATUS_CHANGE", // 12
+            "USERS_BULK_ROLE_CHANGE",   // 13
+            "USERS_BULK_DELETED"        // 14
+    );
+
+    private static final List<String> RESULTS = List.of(
+            "SUCCESS",  // 1
+            "FAILURE"   // 2
+    );
+
+    private static final Map<String, Short> EVENT_CODES = new HashMap<>();
+    private static final Map<String, Byte> RESULT_CODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < EVENT_TYPES.size(); i++) {
+            EVENT_CODES.put(EVENT_TYPES.get(i), (short) (i + 1));
+        }
+        for (int i = 0; i < RESULTS.size(); i++) {
+            RESULT_CODES.put(RESULTS.get(i), (byte) (i + 1));
+        }
+    }
+
+    // Códigos asignados en ejecución (tabla audit_codes); se sustituyen enteros en cada recarga
+    private record CustomCodes(Map<String, Short> eventCodes, Map<Short, String> eventTypes,
+                               Map<String, Byte> resultCodes, Map<Byte, String> results) {
+    }
+
+    private static volatile CustomCodes custom = new CustomCodes(Map.of(), Map.of(), Map.of(), Map.of());
+    // Se llama ante un nombre o código desconocido, por si otro nodo lo acaba de asignar
+    private static volatile Runnable missHandler = () -> { };
+
+    private AuditCodes() {
+    }
+
+    /**
+     * Sustituye los códigos asignados en ejecución (solo AuditCodeRegistry, con el contenido de audit_codes).
+     */
+    public static void useCustomCodes(Map<String, Short> eventCodes, Map<String, Byte> resultCodes) {
+        custom = new CustomCodes(Map.copyOf(eventCodes),
+                eventCodes.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey)),
+                Map.copyOf(resultCodes),
+                resultCodes.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey)));
+    }
+
+    public static void onMiss(Runnable handler) {
+        missHandler = handler;
+    }
+
+    // Solo los tipos y resultados propios de la aplicación, con sus códigos fijos
+    public static List<String> eventTypes() {
+        return EVENT_TYPES;
+    }
+
+    public static List<String> results() {
+        return RESULTS;
+    }
+
+    // null si el tipo no está registrado
+    public static Short eventCode(String eventType) {
+        if (eventType == null) {
+            return null;
+        }
+        Short code = EVENT_CODES.get(eventType);
+        if (code == null && !custom.eventCodes().containsKey(eventType)) {
+            missHandler.run();
+        }
+        return code != null ? code : custom.eventCodes().get(eventType);
+    }
+
+    public static String eventType(short code) {
+        if (code >= 1 && code <= EVENT_TYPES.size()) {
+            return EVENT_TYPES.get(code - 1);
+        }
+        if (!custom.eventTypes().containsKey(code)) {
+            missHandler.run();
+        }
+        return custom.eventTypes().get(code);
+    }
+
+    // null si el resultado no está registrado
+    public static Byte resultCode(String result) {
+        if (result == null) {
+            return null;
+        }
+        Byte code = RESULT_CODES.get(result);
+        if (code == null && !custom.resultCodes().containsKey(result)) {
+            missHandler.run();
+        }
+        return code != null ? code : custom.resultCodes().get(result);
+    }
+
+    public static String result(byte code) {
+        if (code >= 1 && code <= RESULTS.size()) {
+            return RESULTS.get(code - 1);
+        }
+        if (!custom.results().containsKey(code)) {
+            missHandler.run();
+        }
+        return custom.results().get(code);
+    }
+}
@@ -0,0 +1,82 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plantillas de las descripciones de auditoría. log_entries guarda solo el id de la plantilla y sus
+ * parámetros; el texto se compone al leer. Los ids son permanentes (se añaden al final, nunca se reutilizan).
+ */
+public enum AuditMessage {
+    FREE_TEXT(0, "%s"),
+    LOGIN_INCOMPLETE(1, "Intento de login con credenciales incompletas"),
+    LOGIN_FAILED(2, "Intento de login fallido: %s"),
+    LOGIN_SUCCESS(3, "Inicio de sesión exitoso"),
+    LOGIN_THROTTLED(4, "Intentos de login rechazados por límite de frecuencia en el último intervalo: %s"),
+    USER_DELETED(5, "El usuario '%s' (ID: %s) ha sido eliminado."),
+    USER_STATUS_CHANGE(6, "Cambio de estado de la cuenta de '%s' (ID: %s) a %s."),
+    USER_CREATION_DUPLICATE(7, "Intento de creación de usuario fallido: Username o Email ya en uso."),
+    USER_CREATION_ROLE_NOT_FOUND(8, "Intento de creación de usuario fallido: Rol '%s' no encontrado."),
+    USER_CREATED(9, "Nuevo usuario creado por administrador con rol %s"),
+    PASSWORD_CHANGED(10, "Contraseña del perfil cambiada exitosamente."),
+    AVATAR_UPDATED(11, "Avatar actualizado exitosamente."),
+    USERS_IMPORTED(12, "Importación masiva de usuarios: %s filas, %s creados, %s rechazados."),
+    USERS_BULK_STATUS_CHANGE(13, "Cambio de estado en bloque a %s: %s usuarios (%s)."),
+    USERS_BULK_ROLE_CHANGE(14, "Cambio de rol en bloque a %s: %s usuarios (%s)."),
+    USERS_BULK_DELETED(15, "Eliminación en bloque: %s usuarios (%s).");
+
+    // Separador de parámetros en description_params (carácter de control "unit separator")
+    private static final char PARAM_SEPARATOR = '\u001F';
+    private static final AuditMessage[] BY_ID = new AuditMessage[values().length];
+
+    static {
+        for (AuditMessage message : values()) {
+            BY_ID[message.id] = message;
+        }
+    }
+
+    private final short id;
+    private final String pattern;
+
+    AuditMessage(int id, String pattern) {
+        this.id = (short) id;
+        this.pattern = pattern;
+    }
+
+    public short getId() {
+        return id;
+    }
+
+    public static AuditMessage byId(short id) {
+        return id >= 0 && id < BY_ID.length && BY_ID[id] != null ? BY_ID[id] : FREE_TEXT;
+    }
+
+    public AuditDescription with(Object... params) {
+        return new AuditDescription(this, Arrays.stream(params).map(String::valueOf).toList());
+    }
+
+    public String render(List<String> params) {
+        try {
+            return String.format(Locale.ROOT, pattern, params.toArray());
+        } catch (IllegalFormatException e) {
+            return pattern + " " + params;
+        }
+    }
+
+    public static String encodeParams(List<String> params) {
+        return params.isEmpty() ? null : String.join(String.valueOf(PARAM_SEPARATOR), params);
+    }
+
+    public static List<String> decodeParams(String encoded) {
+        return encoded == null ? List.of() : List.of(encoded.split(String.valueOf(PARAM_SEPARATOR), -1));
+    }
+
+    // Descripción sin componer: plantilla + parámetros
+    public record AuditDescription(AuditMessage message, List<String> params) {
+        public String render() {
+            return message.render(params);
+        }
+    }
+}
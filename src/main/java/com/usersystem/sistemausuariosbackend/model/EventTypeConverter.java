@@ -0,0 +1,26 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Tipo de evento <-> código SMALLINT (ver AuditCodes)
+@Converter
+public class EventTypeConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String eventType) {
+        if (eventType == null) {
+            return null;
+        }
+        Short code = AuditCodes.eventCode(eventType);
+        if (code == null) {
+            throw new IllegalArgumentException("Tipo de evento de auditoría no registrado: " + eventType);
+        }
+        return code;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : AuditCodes.eventType(code);
+    }
+}
@@ -0,0 +1,55 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Dirección IP en texto <-> VARBINARY(16): 4 bytes para IPv4 y 16 para IPv6, el mismo formato
+ * que INET6_ATON de MySQL. Solo acepta literales (nunca resuelve nombres por DNS); otro texto se guarda como null.
+ */
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String ipAddress) {
+        return toBytes(ipAddress);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return fromBytes(bytes);
+    }
+
+    public static byte[] toBytes(String ipAddress) {
+        if (ipAddress == null || !isLiteral(ipAddress)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ipAddress).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    public static String fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    // IPv4 con puntos o IPv6 con ':' (InetAddress solo consulta el DNS si no es un literal)
+    private static boolean isLiteral(String ipAddress) {
+        if (ipAddress.indexOf(':') >= 0) {
+            return ipAddress.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == ':' || c == '.' || c == '%');
+        }
+        return ipAddress.matches("\\d{1,3}(\\.\\d{1,3}){3}");
+    }
+}
@@ -1,46 +1,87 @@
     package com.usersystem.sistemausuariosbackend.model;
 
+    import com.fasterxml.jackson.annotation.JsonIgnore;
     import jakarta.persistence.*;
     import java.time.LocalDateTime;
+    import java.time.temporal.ChronoUnit;
 
     @Entity
-    @Table(name = "log_entries") // Nombre de la tabla en la base de datos
+    @Table(name = "log_entries", // Nombre de la tabla en la base de datos
+            indexes = { // Índices para los filtros de /api/logs (InnoDB añade el id al final de cada uno)
+                    @Index(name = "idx_log_timestamp", columnList = "timestamp"),
+                    @Index(name = "idx_log_event_code_timestamp", columnList = "event_code, timestamp"),
+                    @Index(name = "idx_log_username_timestamp", columnList = "username, timestamp"),
+                    @Index(name = "idx_log_target_username_timestamp", columnList = "targetUsername, timestamp")
+            },
+            // Un evento del journal local (AuditJournal) se inserta una sola vez aunque se reproduzca de nuevo
+            uniqueConstraints = @UniqueConstraint(name = "uk_log_journal_id", columnNames = "journal_id"))
     public class LogEntry {
 
+        // Longitud de las columnas username y targetUsername: LogService recorta lo que la supere
+        public static final int USERNAME_LENGTH = 100;
+
+        // IDs por bloques (tabla id_generators): IDENTITY impide que Hibernate agrupe los INSERT
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "log_entries_id")
+        @TableGenerator(name = "log_entries_id", table = "id_generators", pkColumnName = "sequence_name",
+                valueColumnName = "next_val", pkColumnValue = "log_entries", allocationSize = 100)
         private Long id;
 
         @Column(nullable = false)
         private LocalDateTime timestamp;
 
-        @Column(nullable = false, length = 50)
+        // Formato compacto: códigos numéricos (AuditCodes), IP binaria y descripción como plantilla + parámetros
+        @Convert(converter = EventTypeConverter.class)
+        @Column(name = "event_code", nullable = false)
         private String eventType; // Ej: USER_LOGIN, USER_CREATED, USER_STATUS_CHANGE
 
-        @Column(length = 100) // Nombre de usuario que realizó la acción
+        @Column(length = USERNAME_LENGTH) // Nombre de usuario que realizó la acción
         private String username;
 
         @Column // ID del usuario que realizó la acción (puede ser null si el evento no tiene un user_id asociado, ej. login fallido de un usuario inexistente)
         private Long userId;
 
-        @Column(length = 100) // Nombre de usuario afectado por la acción (ej. el usuario cuyo estado fue cambiado)
+        @Column(length = USERNAME_LENGTH) // Nombre de usuario afectado por la acción (ej. el usuario cuyo estado fue cambiado)
         private String targetUsername;
 
         @Column // ID del usuario afectado por la acción
         private Long targetUserId;
 
-        @Column(columnDefinition = "TEXT") // Descripción detallada del evento
+        @Column(nullable = false) // Plantilla de la descripción (AuditMessage)
+        private short descriptionTemplate;
+
+        @Column(columnDefinition = "TEXT") // Parámetros de la plantilla
+        private String descriptionParams;
+
+        @Transient // Descripción detallada del evento, compuesta al leer
         private String description;
 
-        @Column(nullable = false, length = 20)
+        @Convert(converter = ResultConverter.class)
+        @Column(name = "result_code", nullable = false)
         private String result; // Ej: SUCCESS, FAILURE
 
-        @Column(length = 45) // IP desde donde se realizó la acción
+        @Convert(converter = IpAddressConverter.class)
+        @Column(name = "ip", columnDefinition = "varbinary(16)") // IP desde donde se realizó la acción
         private String ipAddress;
 
+        // Política COALESCE: número de repeticiones agrupadas en esta fila (timestamp = la primera)
+        @Column(nullable = false, columnDefinition = "integer default 1")
+        private int occurrenceCount = 1;
+
+        @Column // Última repetición agrupada (null si la fila es un único evento)
+        private LocalDateTime lastTimestamp;
+
+        @Column // Política SAMPLE: esta fila representa 1 de cada sampleRate eventos (null si no se muestrea)
+        private Integer sampleRate;
+
+        @Column(name = "journal_id") // ID del evento en el journal local (null si no pasó por él)
+        private Long journalId;
+
         // --- Constructor sin argumentos (necesario para JPA) ---
         public LogEntry() {
-            this.timestamp = LocalDateTime.now(); // Establece el timestamp por defecto al crear el objeto
+            // Timestamp por defecto al crear el objeto, con la misma precisión que la columna (datetime(6)):
+            // así el valor en memoria coincide con el guardado y los cursores (timestamp, id) son exactos
+            this.timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
         }
 
         // --- Getters y Setters ---
@@ -61,6 +102,13 @@
         //     this.timestamp = timestamp;
         // }
 
+        // Reconstruye un evento leído del journal local (AuditJournal) con su instante original
+        public static LogEntry restored(LocalDateTime timestamp) {
+            LogEntry entry = new LogEntry();
+            entry.timestamp = timestamp;
+            return entry;
+        }
+
         public String getEventType() {
             return eventType;
         }
@@ -102,13 +150,35 @@
         }
 
         public String getDescription() {
+            if (description == null && (descriptionParams != null || descriptionTemplate != AuditMessage.FREE_TEXT.getId())) {
+                description = AuditMessage.byId(descriptionTemplate).render(AuditMessage.decodeParams(descriptionParams));
+            }
             return description;
         }
 
+        // Texto libre (plantilla FREE_TEXT)
         public void setDescription(String description) {
+            this.descriptionTemplate = AuditMessage.FREE_TEXT.getId();
+            this.descriptionParams = description;
             this.description = description;
         }
 
+        public void applyDescription(AuditMessage.AuditDescription description) {
+            this.descriptionTemplate = description.message().getId();
+            this.descriptionParams = AuditMessage.encodeParams(description.params());
+            this.description = null;
+        }
+
+        @JsonIgnore
+        public short getDescriptionTemplate() {
+            return descriptionTemplate;
+        }
+
+        @JsonIgnore
+        public String getDescriptionParams() {
+            return descriptionParams;
+        }
+
         public String getResult() {
             return result;
         }
@@ -125,6 +195,39 @@
             this.ipAddress = ipAddress;
         }
 
+        public int getOccurrenceCount() {
+            return occurrenceCount;
+        }
+
+        public void setOccurrenceCount(int occurrenceCount) {
+            this.occurrenceCount = occurrenceCount;
+        }
+
+        public LocalDateTime getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public void setLastTimestamp(LocalDateTime lastTimestamp) {
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public Integer getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(Integer sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        @JsonIgnore
+        public Long getJournalId() {
+            return journalId;
+        }
+
+        public void setJournalId(Long journalId) {
+            this.journalId = journalId;
+        }
+
         @Override
         public String toString() {
             return "LogEntry{" +
@@ -135,9 +238,12 @@
                     ", userId=" + userId +
                     ", targetUsername='" + targetUsername + '\'' +
                     ", targetUserId=" + targetUserId +
-                    ", description='" + description + '\'' +
+                    ", description='" + getDescription() + '\'' +
                     ", result='" + result + '\'' +
                     ", ipAddress='" + ipAddress + '\'' +
+                    ", occurrenceCount=" + occurrenceCount +
+                    ", lastTimestamp=" + lastTimestamp +
+                    ", sampleRate=" + sampleRate +
                     '}';
         }
     }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Número de entradas de log por intervalo (minuto, hora o día), tipo de evento y resultado.
+ * Se mantiene de forma incremental (LogRollupService) para responder series temporales sin recorrer log_entries.
+ */
+@Entity
+@Table(name = "log_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogRollup {
+
+    @EmbeddedId
+    private LogRollupId id;
+
+    @Column(nullable = false)
+    private long eventCount;
+}
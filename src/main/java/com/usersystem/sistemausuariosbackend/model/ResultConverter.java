@@ -0,0 +1,26 @@
+package com.usersystem.sistemausuariosbackend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Resultado (SUCCESS/FAILURE) <-> código TINYINT (ver AuditCodes)
+@Converter
+public class ResultConverter implements AttributeConverter<String, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(String result) {
+        if (result == null) {
+            return null;
+        }
+        Byte code = AuditCodes.resultCode(result);
+        if (code == null) {
+            throw new IllegalArgumentException("Resultado de auditoría no registrado: " + result);
+        }
+        return code;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte code) {
+        return code == null ? null : AuditCodes.result(code);
+    }
+}
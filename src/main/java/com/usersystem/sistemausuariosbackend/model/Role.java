@@ -1,18 +1,26 @@
 package com.usersystem.sistemausuariosbackend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*; // Importa clases de JPA
 import lombok.Data; // Importa anotación @Data de Lombok
 import lombok.NoArgsConstructor; // Importa anotación @NoArgsConstructor de Lombok
 import lombok.AllArgsConstructor; // Importa anotación @AllArgsConstructor de Lombok
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity // Indica que esta clase es una entidad JPA
 @Table(name = "roles") // Especifica el nombre de la tabla en la DB
+@Cacheable // Caché de segundo nivel: User.role (LAZY) se resuelve sin consultar roles
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "roles")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Campos internos del proxy LAZY
 @Data // Genera automáticamente getters, setters, toString, equals y hashCode con Lombok
 @NoArgsConstructor // Genera un constructor sin argumentos
 @AllArgsConstructor // Genera un constructor con todos los argumentos
 public class Role {
     @Id // Indica que este campo es la clave primaria
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Estrategia para autoincrementar el ID
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "roles_id")
+    @TableGenerator(name = "roles_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "roles", allocationSize = 10) // IDs por bloques, compatibles con batching
     private Long id;
 
     @Column(unique = true, nullable = false, length = 50) // Mapea a una columna, única, no nula, con longitud
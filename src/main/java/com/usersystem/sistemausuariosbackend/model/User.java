@@ -2,6 +2,8 @@
 
 package com.usersystem.sistemausuariosbackend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
@@ -19,6 +21,12 @@ import java.util.List;
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "email"),
         @UniqueConstraint(columnNames = "username")
+}, indexes = { // Índices del listado paginado de /api/users (InnoDB añade el id al final de cada uno)
+        @Index(name = "idx_users_role_enabled_created", columnList = "role_id, enabled, created_at"),
+        @Index(name = "idx_users_enabled_created", columnList = "enabled, created_at"),
+        @Index(name = "idx_users_created", columnList = "created_at"),
+        @Index(name = "idx_users_first_name", columnList = "first_name"),
+        @Index(name = "idx_users_last_name", columnList = "last_name")
 })
 @Data
 @NoArgsConstructor
@@ -26,7 +34,9 @@ import java.util.List;
 public class User {
     // ... (campos existentes, desde id hasta role) ...
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+    @TableGenerator(name = "users_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre de usuario no puede estar vacío")
@@ -43,6 +53,7 @@ public class User {
     @Pattern(regexp = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=!])(?=\\S+$).{8,64}$",
             message = "La contraseña debe tener al menos 8 caracteres, incluyendo una letra mayúscula, una minúscula, un número y un carácter especial (@#$%^&+=!)")
     @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY) // Se recibe al crear o cambiar, nunca se devuelve el hash
     private String password;
 
     @NotBlank(message = "El nombre no puede estar vacío")
@@ -79,13 +90,20 @@ public class User {
     @Column(name = "two_factor_enabled", nullable = false)
     private boolean twoFactorEnabled = false;
 
+    // Se incrementa cuando cambian estado, rol o email: invalida los tokens emitidos antes
+    @JsonIgnore
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion = 0;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    // LAZY: cargar un usuario no hace JOIN con roles. El nombre se obtiene de RoleRegistry con el id
+    // del proxy, o al inicializarlo desde la caché de segundo nivel de Role.
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "role_id", nullable = false)
     @NotNull(message = "El rol no puede ser nulo")
     private Role role;
@@ -0,0 +1,19 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Una línea del NDJSON de /api/ingest/audit-events (timestamp opcional: por defecto, el de recepción)
+@Data
+public class AuditIngestEvent {
+    private LocalDateTime timestamp;
+    private String eventType;
+    private String username;
+    private Long userId;
+    private String targetUsername;
+    private Long targetUserId;
+    private String description;
+    private String result;
+    private String ipAddress;
+}
@@ -0,0 +1,29 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una carga NDJSON: líneas guardadas, líneas rechazadas y el motivo de cada una
+@Data
+@NoArgsConstructor
+public class AuditIngestResult {
+    private long accepted;
+    private long rejected;
+    private List<LineError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    // Si se cortó la carga: motivo (RATE_LIMITED, DATABASE_UNAVAILABLE, LINE_LIMIT) y primera línea sin guardar
+    private String stoppedBy;
+    private Long resumeFromLine;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError {
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,35 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Acción sobre un conjunto de usuarios, elegidos por IDs o por los mismos filtros que el listado (no ambos)
+@Data
+public class BulkUserActionRequest {
+
+    public enum Action { ENABLE, DISABLE, CHANGE_ROLE, DELETE }
+
+    @NotNull(message = "La acción no puede ser nula")
+    private Action action;
+
+    @Size(max = 10_000, message = "Como máximo 10000 IDs por petición; para más usa un filtro")
+    private List<Long> ids;
+
+    private Filter filter;
+
+    // Rol destino de CHANGE_ROLE
+    private String role;
+
+    @Data
+    public static class Filter {
+        private String role;
+        private Boolean enabled;
+        private LocalDate createdFrom;
+        private LocalDate createdTo;
+        private String q;
+    }
+}
@@ -0,0 +1,14 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Usuarios modificados por una acción en bloque (los que ya estaban en el estado pedido no cuentan)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserActionResult {
+    private String action;
+    private int affected;
+}
@@ -0,0 +1,14 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Total aproximado de logs: exact=false si es una estimación o se alcanzó el tope del conteo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogCountEstimate {
+    private long total;
+    private boolean exact;
+}
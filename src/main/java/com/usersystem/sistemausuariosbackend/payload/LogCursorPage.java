@@ -0,0 +1,19 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de logs por cursor (sin COUNT ni OFFSET): nextCursor es null en la última página
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogCursorPage {
+    private List<LogEntry> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
@@ -0,0 +1,18 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Un punto de la serie temporal de /api/logs/stats
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogStatsPoint {
+    private LocalDateTime bucketStart;
+    private String eventType;
+    private String result;
+    private long count;
+}
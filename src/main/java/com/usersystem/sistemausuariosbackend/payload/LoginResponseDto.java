@@ -18,10 +18,16 @@ public class LoginResponseDto {
     private String role;
     // ➡️ CORRECCIÓN CLAVE: Agrega el campo avatarUrl
     private String avatarUrl;
+    // Refresh token rotativo para renovar el access token sin volver a hacer login
+    private String refreshToken;
 
     // ➡️ Agrega el constructor para casos donde el avatar sea nulo
     public LoginResponseDto(String accessToken, String tokenType, Long id, String firstName, String lastName, String email, String dni, String role) {
-        this(accessToken, tokenType, id, firstName, lastName, email, dni, role, null);
+        this(accessToken, tokenType, id, firstName, lastName, email, dni, role, null, null);
+    }
+
+    public LoginResponseDto(String accessToken, String tokenType, Long id, String firstName, String lastName, String email, String dni, String role, String avatarUrl) {
+        this(accessToken, tokenType, id, firstName, lastName, email, dni, role, avatarUrl, null);
     }
 }
 
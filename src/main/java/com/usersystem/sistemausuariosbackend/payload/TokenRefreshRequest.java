@@ -0,0 +1,18 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class TokenRefreshRequest {
+
+    @NotBlank(message = "El refresh token no puede estar vacío")
+    private String refreshToken;
+
+    // Getters y Setters
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,15 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Disponibilidad de los valores consultados en /api/users/availability: true si está libre; solo van los pedidos
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserAvailabilityDto {
+    private Boolean username;
+    private Boolean email;
+    private Boolean dni;
+}
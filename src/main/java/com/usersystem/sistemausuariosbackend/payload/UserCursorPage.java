@@ -0,0 +1,18 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de usuarios por cursor (sin COUNT ni OFFSET): nextCursor es null en la última página
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCursorPage {
+    private List<UserSummaryDto> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
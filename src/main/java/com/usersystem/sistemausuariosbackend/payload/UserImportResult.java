@@ -0,0 +1,29 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una importación masiva: filas leídas, usuarios creados y el motivo de cada fila rechazada
+@Data
+@NoArgsConstructor
+public class UserImportResult {
+    private long rows;
+    private long created;
+    private long rejected;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    // Si se cortó la importación al llegar a users.import.max-rows
+    private boolean truncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+}
@@ -0,0 +1,34 @@
+package com.usersystem.sistemausuariosbackend.payload;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Fila del listado de usuarios: se construye directamente en la consulta (sin cargar entidades ni el hash de la contraseña)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDto {
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String dni;
+    private String role;
+    private boolean enabled;
+    private boolean twoFactorEnabled;
+    private LocalDateTime createdAt;
+    // role_id de la fila: el nombre del rol se completa desde RoleRegistry, sin JOIN con roles
+    @JsonIgnore
+    private Long roleId;
+
+    // Constructor de la consulta del listado (cb.construct)
+    public UserSummaryDto(Long id, String username, String firstName, String lastName, String email, String dni,
+                          Long roleId, boolean enabled, boolean twoFactorEnabled, LocalDateTime createdAt) {
+        this(id, username, firstName, lastName, email, dni, null, enabled, twoFactorEnabled, createdAt, roleId);
+    }
+}
@@ -0,0 +1,57 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Reserva bloques de IDs en la tabla {@code id_generators}, la misma que usan las
+ * entidades con {@code @TableGenerator} (optimizador pooled-lo): el valor guardado es
+ * el primer ID libre y cada reserva lo avanza en una transacción propia con
+ * SELECT ... FOR UPDATE, por lo que es seguro entre varios nodos.
+ * Lo usan las inserciones JDBC en lote, que no pasan por Hibernate.
+ */
+@Component
+public class IdBlockAllocator {
+
+    public static final String TABLE = "id_generators";
+    public static final String USERS = "users";
+    public static final String ROLES = "roles";
+    public static final String LOG_ENTRIES = "log_entries";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public IdBlockAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserva {@code count} IDs consecutivos.
+     * @param sequenceName Fila de id_generators (normalmente el nombre de la tabla).
+     * @param count Cantidad de IDs a reservar.
+     * @return El primer ID del bloque; el bloque es [primero, primero + count).
+     */
+    public long allocate(String sequenceName, int count) {
+        Long first = requiresNew.execute(status -> {
+            List<Long> current = jdbcTemplate.queryForList(
+                    "SELECT next_val FROM " + TABLE + " WHERE sequence_name = ? FOR UPDATE", Long.class, sequenceName);
+            if (current.isEmpty()) {
+                jdbcTemplate.update("INSERT INTO " + TABLE + " (sequence_name, next_val) VALUES (?, ?)",
+                        sequenceName, 1L + count);
+                return 1L;
+            }
+            long next = current.get(0);
+            jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE sequence_name = ?",
+                    next + count, sequenceName);
+            return next;
+        });
+        return first;
+    }
+}
@@ -0,0 +1,84 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros componibles para las consultas de log_entries. Cada filtro nulo se ignora,
+ * de modo que cualquier combinación aplica todos los filtros recibidos. Las igualdades
+ * coinciden con el primer campo de los índices compuestos (campo, timestamp) de LogEntry.
+ */
+public final class LogEntrySpecifications {
+
+    private LogEntrySpecifications() {
+    }
+
+    public static Specification<LogEntry> filtered(String eventType, String username, String targetUsername,
+                                                   LocalDateTime startDate, LocalDateTime endDate) {
+        return Specification.allOf(
+                hasEventType(eventType),
+                hasUsername(username),
+                hasTargetUsername(targetUsername),
+                timestampFrom(startDate),
+                timestampTo(endDate));
+    }
+
+    // Un tipo no registrado en AuditCodes no puede existir en la tabla: no coincide con nada
+    public static Specification<LogEntry> hasEventType(String eventType) {
+        if (eventType != null && !eventType.isEmpty() && AuditCodes.eventCode(eventType) == null) {
+            return (root, query, cb) -> cb.disjunction();
+        }
+        return equalTo("eventType", eventType);
+    }
+
+    public static Specification<LogEntry> hasUsername(String username) {
+        return equalTo("username", username);
+    }
+
+    public static Specification<LogEntry> hasTargetUsername(String targetUsername) {
+        return equalTo("targetUsername", targetUsername);
+    }
+
+    public static Specification<LogEntry> hasResult(String result) {
+        if (result != null && !result.isEmpty() && AuditCodes.resultCode(result) == null) {
+            return (root, query, cb) -> cb.disjunction();
+        }
+        return equalTo("result", result);
+    }
+
+    public static Specification<LogEntry> timestampFrom(LocalDateTime startDate) {
+        return (root, query, cb) -> startDate == null ? null
+                : cb.greaterThanOrEqualTo(root.get("timestamp"), startDate);
+    }
+
+    public static Specification<LogEntry> timestampTo(LocalDateTime endDate) {
+        return (root, query, cb) -> endDate == null ? null
+                : cb.lessThanOrEqualTo(root.get("timestamp"), endDate);
+    }
+
+    /**
+     * Entradas anteriores a la posición (timestamp, id) en orden descendente: equivale a
+     * {@code (timestamp, id) < (?, ?)} escrito como OR, que el optimizador resuelve como
+     * rango sobre los índices (..., timestamp) porque InnoDB les añade el id.
+     */
+    public static Specification<LogEntry> before(LocalDateTime timestamp, Long id) {
+        return (root, query, cb) -> timestamp == null ? null
+                : cb.or(cb.lessThan(root.get("timestamp"), timestamp),
+                        cb.and(cb.equal(root.get("timestamp"), timestamp), cb.lessThan(root.get("id"), id)));
+    }
+
+    // Entradas posteriores a la posición (timestamp, id) en orden ascendente
+    public static Specification<LogEntry> after(LocalDateTime timestamp, Long id) {
+        return (root, query, cb) -> timestamp == null ? null
+                : cb.or(cb.greaterThan(root.get("timestamp"), timestamp),
+                        cb.and(cb.equal(root.get("timestamp"), timestamp), cb.greaterThan(root.get("id"), id)));
+    }
+
+    private static Specification<LogEntry> equalTo(String attribute, String value) {
+        return (root, query, cb) -> value == null || value.isEmpty() ? null
+                : cb.equal(root.get(attribute), value);
+    }
+}
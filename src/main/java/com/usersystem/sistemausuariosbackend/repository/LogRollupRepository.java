@@ -0,0 +1,32 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.model.LogRollup;
+import com.usersystem.sistemausuariosbackend.model.LogRollupId;
+import com.usersystem.sistemausuariosbackend.model.RollupGranularity;
+import com.usersystem.sistemausuariosbackend.payload.LogStatsPoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LogRollupRepository extends JpaRepository<LogRollup, LogRollupId> {
+
+    // Serie temporal desde los contadores agregados (recorre solo el prefijo de la clave primaria)
+    @Query("SELECT new com.usersystem.sistemausuariosbackend.payload.LogStatsPoint("
+            + "r.id.bucketStart, r.id.eventType, r.id.result, r.eventCount) FROM LogRollup r "
+            + "WHERE r.id.granularity = :granularity AND r.id.bucketStart >= :from AND r.id.bucketStart < :to "
+            + "AND (:eventType IS NULL OR r.id.eventType = :eventType) AND (:result IS NULL OR r.id.result = :result) "
+            + "ORDER BY r.id.bucketStart, r.id.eventType, r.id.result")
+    List<LogStatsPoint> findSeries(@Param("granularity") RollupGranularity granularity,
+                                   @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                   @Param("eventType") String eventType, @Param("result") String result);
+
+    @Modifying
+    @Query("DELETE FROM LogRollup r WHERE r.id.bucketStart >= :from AND r.id.bucketStart < :to")
+    int deleteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,31 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Búsqueda por el índice único del hash
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Revoca en una sola sentencia; devuelve 1 solo si el token seguía activo
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.tokenHash = ?1 AND t.revoked = false")
+    int revokeByTokenHash(String tokenHash);
+
+    // Revoca todos los tokens del usuario (reutilización detectada, cambio de contraseña...)
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.userId = ?1 AND t.revoked = false")
+    int revokeAllByUserId(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < ?1")
+    int deleteExpired(LocalDateTime now);
+}
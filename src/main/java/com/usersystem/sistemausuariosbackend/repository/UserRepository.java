@@ -1,8 +1,10 @@
 package com.usersystem.sistemausuariosbackend.repository;
 
+import com.usersystem.sistemausuariosbackend.model.Role;
 import com.usersystem.sistemausuariosbackend.model.User; // Importa tu modelo User
 import org.springframework.data.jpa.repository.JpaRepository; // Importa JpaRepository
 import org.springframework.stereotype.Repository; // Indica que es un componente de repositorio
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -16,6 +18,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Buscar usuario por email
     Optional<User> findByEmail(String email);
 
+    // Confirmación de unicidad de UserAvailabilityIndex (solo cuando su filtro responde "puede estar")
+    boolean existsByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByDni(String dni);
+
     long countByEnabled(boolean enabled);
 
     // Consulta para contar usuarios por el nombre del rol
@@ -28,9 +37,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "ORDER BY FUNCTION('YEAR', u.createdAt) ASC, FUNCTION('MONTH', u.createdAt) ASC")
     List<Object[]> countMonthlyRegistrations();
 
-    // NUEVA CONSULTA
-    @Query("SELECT u FROM User u WHERE u.role.name = ?1")
-    List<User> findByRoleName(String roleName);
+    // Filtra por role_id, sin JOIN con roles (el Role sale de RoleRegistry)
+    List<User> findByRole(Role role);
+
+    // Versión de seguridad vigente, sin cargar la entidad completa
+    @Query("SELECT u.securityVersion FROM User u WHERE u.email = ?1")
+    Optional<Integer> findSecurityVersionByEmail(String email);
+
+    // Re-hash transparente al iniciar sesión (cambio de coste BCrypt)
+    @Modifying
+    @Query("UPDATE User u SET u.password = ?2 WHERE u.email = ?1")
+    int updatePasswordByEmail(String email, String encodedPassword);
 
     // ⬅️ Nuevo metodo para buscar por token de recuperación
     Optional<User> findByPasswordResetToken(String token);
@@ -0,0 +1,90 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.model.User;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Filtros componibles para el listado paginado de usuarios. Cada filtro nulo se ignora.
+ * El rol se filtra por role_id (no por el nombre a través del JOIN) para que las condiciones
+ * coincidan con el índice (role_id, enabled, created_at) de User.
+ */
+public final class UserSpecifications {
+
+    // Columnas por las que se busca con "empieza por"; todas tienen índice propio
+    private static final String[] PREFIX_ATTRIBUTES = {"username", "firstName", "lastName", "email", "dni"};
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> filtered(Long roleId, Boolean enabled, LocalDateTime createdFrom,
+                                               LocalDateTime createdTo, String prefix) {
+        return Specification.allOf(
+                hasRoleId(roleId),
+                isEnabled(enabled),
+                createdFrom(createdFrom),
+                createdTo(createdTo),
+                startsWith(prefix));
+    }
+
+    public static Specification<User> hasRoleId(Long roleId) {
+        return (root, query, cb) -> roleId == null ? null : cb.equal(root.get("role").get("id"), roleId);
+    }
+
+    public static Specification<User> isEnabled(Boolean enabled) {
+        return (root, query, cb) -> enabled == null ? null : cb.equal(root.get("enabled"), enabled);
+    }
+
+    public static Specification<User> createdFrom(LocalDateTime createdFrom) {
+        return (root, query, cb) -> createdFrom == null ? null
+                : cb.greaterThanOrEqualTo(root.get("createdAt"), createdFrom);
+    }
+
+    public static Specification<User> createdTo(LocalDateTime createdTo) {
+        return (root, query, cb) -> createdTo == null ? null
+                : cb.lessThanOrEqualTo(root.get("createdAt"), createdTo);
+    }
+
+    /**
+     * Usuarios cuyo username, nombre, apellido, email o DNI empiezan por {@code prefix}.
+     * Solo prefijos (LIKE 'x%'): cada rama es un rango sobre su índice y MySQL las une con index_merge;
+     * un '%x%' recorrería la tabla entera. Los comodines del texto recibido se escapan.
+     */
+    public static Specification<User> startsWith(String prefix) {
+        return (root, query, cb) -> {
+            if (prefix == null || prefix.isBlank()) {
+                return null;
+            }
+            String pattern = prefix.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            return cb.or(Arrays.stream(PREFIX_ATTRIBUTES)
+                    .map(attribute -> cb.like(root.get(attribute), pattern, '\\'))
+                    .toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Usuarios posteriores a la posición (valor, id) en el orden dado: equivale a
+     * {@code (atributo, id) > (?, ?)} (o {@code <} en descendente) escrito como OR, que se resuelve
+     * como rango sobre el índice del atributo porque InnoDB le añade el id.
+     * Los nulos van como en MySQL (y H2): antes que cualquier valor en ascendente y después en descendente;
+     * {@code value} nulo es una posición dentro de ese tramo de nulos.
+     */
+    public static <T extends Comparable<? super T>> Specification<User> after(String attribute, T value, Long id,
+                                                                             boolean descending) {
+        return (root, query, cb) -> {
+            Path<T> path = root.get(attribute);
+            Path<Long> idPath = root.get("id");
+            if (value == null) {
+                Predicate nextNull = cb.and(cb.isNull(path), descending ? cb.lessThan(idPath, id) : cb.greaterThan(idPath, id));
+                return descending ? nextNull : cb.or(nextNull, cb.isNotNull(path));
+            }
+            return descending
+                    ? cb.or(cb.lessThan(path, value), cb.and(cb.equal(path, value), cb.lessThan(idPath, id)), cb.isNull(path))
+                    : cb.or(cb.greaterThan(path, value), cb.and(cb.equal(path, value), cb.greaterThan(idPath, id)));
+        };
+    }
+}
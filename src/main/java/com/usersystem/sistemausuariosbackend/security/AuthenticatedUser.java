@@ -0,0 +1,160 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.usersystem.sistemausuariosbackend.model.User;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal de Spring Security con la proyección del usuario que necesitan el login
+ * y la decisión de 2FA (id, rol, nombres, DNI, avatar...). Se construye con la misma
+ * consulta que carga las credenciales, así el login no vuelve a buscar al usuario.
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String email;
+    private String password;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String dni;
+    private final String role;
+    private final String avatarUrl;
+    private final boolean enabled;
+    private final boolean twoFactorEnabled;
+    private final int securityVersion;
+
+    public AuthenticatedUser(Long id, String email, String password, String username,
+                             String firstName, String lastName, String dni, String role,
+                             String avatarUrl, boolean enabled, boolean twoFactorEnabled,
+                             int securityVersion) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dni = dni;
+        this.role = role;
+        this.avatarUrl = avatarUrl;
+        this.enabled = enabled;
+        this.twoFactorEnabled = twoFactorEnabled;
+        this.securityVersion = securityVersion;
+    }
+
+    public static AuthenticatedUser fromUser(User user) {
+        return fromUser(user, user.getRole() != null ? user.getRole().getName() : null);
+    }
+
+    // Con el nombre del rol ya resuelto (RoleRegistry), sin inicializar el proxy de User.role
+    public static AuthenticatedUser fromUser(User user, String roleName) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getUsername(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getDni(),
+                roleName,
+                user.getAvatarUrl(),
+                user.isEnabled(),
+                user.isTwoFactorEnabled(),
+                user.getSecurityVersion());
+    }
+
+    /**
+     * Principal construido solo con los claims del token (modo sin estado): lleva id, email,
+     * username, rol y versión de seguridad; el resto de campos de perfil queda a null.
+     */
+    public static AuthenticatedUser fromClaims(VerifiedClaims claims) {
+        // Claim "role"; los tokens anteriores solo traen la lista de authorities
+        String role = claims.getRole() != null ? claims.getRole()
+                : claims.getRoles().isEmpty() ? null : claims.getRoles().get(0);
+        return new AuthenticatedUser(claims.getUserId(), claims.getSubject(), null, claims.getAppUsername(),
+                null, null, null, role, null, true, false, claims.getSecurityVersion());
+    }
+
+    // Copia independiente (la caché entrega copias porque Spring borra la contraseña tras autenticar)
+    public AuthenticatedUser copy() {
+        return withPassword(password);
+    }
+
+    // Copia con otro hash de contraseña (re-hash al iniciar sesión)
+    public AuthenticatedUser withPassword(String newPassword) {
+        return new AuthenticatedUser(id, email, newPassword, username, firstName, lastName, dni, role,
+                avatarUrl, enabled, twoFactorEnabled, securityVersion);
+    }
+
+    // Spring Security identifica al usuario por su email
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return role == null ? List.of() : List.of(new SimpleGrantedAuthority(role));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    // Nombre de usuario de la aplicación (el que se registra en los logs)
+    public String getAppUsername() {
+        return username;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public boolean isTwoFactorEnabled() {
+        return twoFactorEnabled;
+    }
+
+    public int getSecurityVersion() {
+        return securityVersion;
+    }
+}
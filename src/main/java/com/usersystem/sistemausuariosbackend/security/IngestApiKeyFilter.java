@@ -0,0 +1,96 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Autentica a los servicios internos que envían eventos a /api/ingest/** con la cabecera X-Api-Key.
+ * Las claves se configuran solo como hash SHA-256 ({@code audit.ingest.api-keys=cliente:sha256hex,...});
+ * el cliente autenticado recibe la autoridad AUDIT_INGEST y su nombre identifica su límite de frecuencia.
+ */
+@Component
+public class IngestApiKeyFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestApiKeyFilter.class);
+
+    public static final String HEADER = "X-Api-Key";
+    public static final String AUTHORITY = "AUDIT_INGEST";
+
+    private record Client(String name, byte[] keyHash) {
+    }
+
+    private final List<Client> clients = new ArrayList<>();
+
+    public IngestApiKeyFilter(@Value("${audit.ingest.api-keys:}") String[] apiKeys) {
+        for (String apiKey : apiKeys) {
+            int separator = apiKey.indexOf(':');
+            if (separator <= 0) {
+                if (!apiKey.isBlank()) {
+                    log.warn("Ignoring malformed audit.ingest.api-keys entry");
+                }
+                continue;
+            }
+            clients.add(new Client(apiKey.substring(0, separator).trim(),
+                    HexFormat.of().parseHex(apiKey.substring(separator + 1).trim())));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/ingest/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String apiKey = request.getHeader(HEADER);
+        if (apiKey != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String client = clientFor(apiKey);
+            if (client != null) {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        client, null, List.of(new SimpleGrantedAuthority(AUTHORITY))));
+            } else {
+                log.warn("Rejected audit ingest request with an unknown API key from {}", request.getRemoteAddr());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // Nombre del cliente dueño de la clave, o null si no está configurada
+    String clientFor(String apiKey) {
+        byte[] hash = sha256(apiKey);
+        for (Client client : clients) {
+            // Comparación en tiempo constante sobre los hashes
+            if (MessageDigest.isEqual(hash, client.keyHash())) {
+                return client.name();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Límite de eventos por segundo de cada cliente de /api/ingest, con un token bucket por cliente
+ * (un token por evento; la capacidad es la ráfaga admitida).
+ */
+@Component
+public class IngestRateLimiter {
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final long burst;
+    private final long eventsPerSecond;
+    private final MeterRegistry meterRegistry;
+
+    public IngestRateLimiter(@Value("${audit.ingest.rate.events-per-second:20000}") long eventsPerSecond,
+                             @Value("${audit.ingest.rate.burst:50000}") long burst,
+                             MeterRegistry meterRegistry) {
+        this.eventsPerSecond = eventsPerSecond;
+        this.burst = burst;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Consume {@code events} tokens del cliente.
+     * @return false si el cliente ha superado su límite (no se consume nada)
+     */
+    public boolean tryAcquire(String client, int events) {
+        boolean allowed = buckets.get(client, key -> new TokenBucket(burst, eventsPerSecond * 60)).tryConsume(events);
+        if (!allowed) {
+            meterRegistry.counter("audit.ingest.throttled", "client", client).increment(events);
+        }
+        return allowed;
+    }
+
+    // Segundos sugeridos para Retry-After: lo que tarda en reponerse una ráfaga pequeña
+    public long retryAfterSeconds() {
+        return 1;
+    }
+}
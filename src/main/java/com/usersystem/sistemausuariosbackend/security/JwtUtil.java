@@ -1,6 +1,7 @@
 package com.usersystem.sistemausuariosbackend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,9 +10,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import jakarta.annotation.PostConstruct;
+import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import org.springframework.security.core.GrantedAuthority; // <-- ¡AÑADE ESTA LÍNEA!
@@ -34,9 +37,46 @@ public class JwtUtil {
     @Value("${jwt.expiration}") // Inyecta el tiempo de expiración JWT desde application.properties
     private long expiration; // En milisegundos
 
+    // Clave y parser construidos una sola vez: decodificar el secreto y armar el parser
+    // en cada petición aparecía en los perfiles de CPU.
+    private SecretKey signKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secret);
+        this.signKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(signKey)
+                .build();
+    }
+
+    // Nombre del claim con la versión de seguridad del usuario
+    public static final String SECURITY_VERSION_CLAIM = "sv";
+    // ID del usuario y rol principal: permiten conocer al actor sin consultar la BD
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String APP_USERNAME_CLAIM = "usr";
+
     // Genera el token JWT para un usuario
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, 0);
+    }
+
+    // Genera el token JWT del principal autenticado (incluye id, rol y versión de seguridad)
+    public String generateToken(AuthenticatedUser user) {
+        return generateToken(user, user.getSecurityVersion());
+    }
+
+    // Genera el token JWT incluyendo la versión de seguridad vigente del usuario
+    public String generateToken(UserDetails userDetails, int securityVersion) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(SECURITY_VERSION_CLAIM, securityVersion);
+        if (userDetails instanceof AuthenticatedUser user) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole());
+            claims.put(APP_USERNAME_CLAIM, user.getAppUsername());
+        }
         // Aquí puedes añadir claims adicionales como roles si lo necesitas
         claims.put("roles", userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
@@ -56,10 +96,47 @@ public class JwtUtil {
                 .compact(); // Construye el token
     }
 
-    // Obtiene la clave de firma decodificando el secreto
-    private Key getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Devuelve la clave de firma precalculada
+    private SecretKey getSignKey() {
+        return signKey;
+    }
+
+    /**
+     * Parsea y verifica el token exactamente una vez (firma y expiración).
+     * @param token El JWT sin el prefijo "Bearer ".
+     * @return Los claims verificados e inmutables.
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o ha expirado.
+     */
+    public VerifiedClaims verify(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedClaims(
+                claims.getSubject(),
+                extractRoles(claims),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                extractSecurityVersion(claims),
+                extractUserId(claims),
+                claims.get(APP_USERNAME_CLAIM, String.class),
+                claims.get(ROLE_CLAIM, String.class));
+    }
+
+    private Long extractUserId(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
+    }
+
+    // Los tokens emitidos antes de existir el claim se consideran de la versión 0
+    private int extractSecurityVersion(Claims claims) {
+        Object version = claims.get(SECURITY_VERSION_CLAIM);
+        return version instanceof Number number ? number.intValue() : 0;
+    }
+
+    private List<String> extractRoles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (roles instanceof List<?> list) {
+            return list.stream().map(String::valueOf).collect(Collectors.toList());
+        }
+        return List.of();
     }
 
     // Extrae el username del token
@@ -81,11 +158,7 @@ public class JwtUtil {
     // Extrae todos los claims del token
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSignKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
             throw ex; // Re-lanza para que se maneje en el filtro o controlador
@@ -105,24 +178,24 @@ public class JwtUtil {
     }
 
 
+    // Valida claims ya verificados contra el usuario, sin volver a parsear el token
+    public boolean validateToken(VerifiedClaims claims, UserDetails userDetails) {
+        boolean usernameMatches = claims.getSubject() != null && claims.getSubject().equals(userDetails.getUsername());
+        boolean expired = claims.isExpired();
+        if (!usernameMatches || expired) {
+            log.warn("Token validation failed for user {}. Username match: {}, Token expired: {}",
+                    claims.getSubject(), usernameMatches, expired);
+        }
+        return usernameMatches && !expired;
+    }
+
     // Valida si el token es válido para el usuario y si no ha expirado
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            boolean isValid = (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-            if (!isValid) {
-                log.warn("Token validation failed for user {}. Username match: {}, Token expired: {}",
-                        username, username.equals(userDetails.getUsername()), isTokenExpired(token));
-            }
-            return isValid;
+            return validateToken(verify(token), userDetails);
         } catch (Exception e) {
             log.error("Error during token validation: {}", e.getMessage());
             return false;
         }
     }
-
-    // Verifica si el token ha expirado
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.service.LogService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de intentos de login con token buckets en memoria por IP y por email.
+ * Se evalúa antes de cualquier hash BCrypt o acceso a la base de datos.
+ * Los buckets viven en cachés acotadas que desalojan las entradas inactivas, y los
+ * rechazos se registran de forma agregada (un log por minuto), no uno por petición.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, TokenBucket> ipBuckets;
+    private final Cache<String, TokenBucket> emailBuckets;
+    private final long ipCapacity;
+    private final long ipRefillPerMinute;
+    private final long emailCapacity;
+    private final long emailRefillPerMinute;
+
+    private final LogService logService;
+    private final Counter ipRejections;
+    private final Counter emailRejections;
+    private final AtomicLong rejectedSinceLastReport = new AtomicLong();
+
+    public LoginThrottle(@Value("${security.login-throttle.ip.capacity:20}") long ipCapacity,
+                         @Value("${security.login-throttle.ip.refill-per-minute:20}") long ipRefillPerMinute,
+                         @Value("${security.login-throttle.email.capacity:5}") long emailCapacity,
+                         @Value("${security.login-throttle.email.refill-per-minute:5}") long emailRefillPerMinute,
+                         @Value("${security.login-throttle.max-entries:100000}") long maxEntries,
+                         @Value("${security.login-throttle.idle-minutes:15}") long idleMinutes,
+                         LogService logService,
+                         MeterRegistry meterRegistry) {
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerMinute = ipRefillPerMinute;
+        this.emailCapacity = emailCapacity;
+        this.emailRefillPerMinute = emailRefillPerMinute;
+        this.ipBuckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        this.emailBuckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        this.logService = logService;
+        this.ipRejections = Counter.builder("login.throttle.rejected").tag("key", "ip").register(meterRegistry);
+        this.emailRejections = Counter.builder("login.throttle.rejected").tag("key", "email").register(meterRegistry);
+    }
+
+    /**
+     * Consume un intento para la IP y para el email.
+     * @return true si el intento puede continuar, false si debe rechazarse (429).
+     */
+    public boolean tryAcquire(String ipAddress, String email) {
+        if (ipAddress != null
+                && !ipBuckets.get(ipAddress, key -> new TokenBucket(ipCapacity, ipRefillPerMinute)).tryConsume()) {
+            ipRejections.increment();
+            rejectedSinceLastReport.incrementAndGet();
+            return false;
+        }
+        if (email != null) {
+            String key = email.trim().toLowerCase(Locale.ROOT);
+            if (!emailBuckets.get(key, k -> new TokenBucket(emailCapacity, emailRefillPerMinute)).tryConsume()) {
+                emailRejections.increment();
+                rejectedSinceLastReport.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Segundos sugeridos para Retry-After: lo que tarda en reponerse un token de email
+    public long retryAfterSeconds() {
+        return Math.max(1, 60 / Math.max(1, emailRefillPerMinute));
+    }
+
+    // Un único registro de auditoría por minuto con el total de intentos rechazados
+    @Scheduled(fixedRateString = "${security.login-throttle.report-interval-ms:60000}")
+    public void reportRejections() {
+        long rejected = rejectedSinceLastReport.getAndSet(0);
+        if (rejected > 0) {
+            logService.log("LOGIN_THROTTLED", null, null, null, null,
+                    AuditMessage.LOGIN_THROTTLED.with(rejected),
+                    "FAILURE", null);
+        }
+    }
+}
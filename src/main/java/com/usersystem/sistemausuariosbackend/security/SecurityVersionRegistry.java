@@ -0,0 +1,69 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Versión de seguridad vigente por usuario (clave: email), servida desde memoria.
+ * Cada token lleva la versión con la que se emitió; cuando la versión del usuario
+ * cambia (estado, rol, eliminación) los tokens anteriores dejan de ser válidos.
+ * La caché está acotada por tamaño y TTL (Caffeine): los cambios hechos en este nodo se publican
+ * al momento, y los hechos en otros nodos se leen de la base de datos al expirar la entrada
+ * ({@code security.version-cache.ttl-seconds}, el retraso máximo de una revocación entre nodos).
+ */
+@Component
+public class SecurityVersionRegistry {
+
+    // Marca para usuarios eliminados o inexistentes: ningún token coincide con ella
+    private static final int REVOKED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<String, Integer> versions;
+
+    public SecurityVersionRegistry(UserRepository userRepository,
+                                   @Value("${security.version-cache.max-size:100000}") long maxSize,
+                                   @Value("${security.version-cache.ttl-seconds:30}") long ttlSeconds,
+                                   MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "securityVersions");
+    }
+
+    /**
+     * Indica si la versión del token sigue siendo la vigente para el usuario.
+     * @param email El sujeto del token.
+     * @param tokenVersion La versión incluida en el token.
+     * @return true si coincide con la versión actual.
+     */
+    public boolean isCurrent(String email, int tokenVersion) {
+        int current = versions.get(email, key ->
+                userRepository.findSecurityVersionByEmail(key).orElse(REVOKED));
+        return current != REVOKED && current == tokenVersion;
+    }
+
+    // Publica la nueva versión tras guardar el usuario
+    public void update(String email, int version) {
+        versions.put(email, version);
+    }
+
+    // Invalida todos los tokens del email (usuario eliminado o email cambiado)
+    public void revoke(String email) {
+        versions.put(email, REVOKED);
+    }
+
+    // Olvida la entrada para que se vuelva a leer de la base de datos
+    public void evict(String email) {
+        versions.invalidate(email);
+    }
+}
@@ -0,0 +1,43 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket sin locks: el estado (tokens, último relleno) es inmutable y se
+ * reemplaza con CAS.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long lastRefillNanos) {
+    }
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(long capacity, long refillPerMinute) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / (double) Duration.ofMinutes(1).toNanos();
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    boolean tryConsume() {
+        return tryConsume(1);
+    }
+
+    // Consume {@code permits} tokens a la vez, o ninguno si no hay suficientes
+    boolean tryConsume(long permits) {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double refilled = Math.min(capacity, current.tokens() + (now - current.lastRefillNanos()) * tokensPerNano);
+            if (refilled < permits) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(refilled - permits, now))) {
+                return true;
+            }
+        }
+    }
+}
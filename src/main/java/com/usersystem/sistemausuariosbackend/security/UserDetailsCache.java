@@ -0,0 +1,64 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria de UserDetails por email, acotada por tamaño y TTL (Caffeine, W-TinyLFU).
+ * Las cargas concurrentes del mismo email se colapsan en una sola consulta.
+ * Quien modifique un usuario debe llamar a {@link #evict(String)}.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    public UserDetailsCache(@Value("${security.user-cache.max-size:10000}") long maxSize,
+                            @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        // Publica aciertos, fallos y desalojos como métricas "cache.*" con name=userDetails
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    /**
+     * Devuelve el usuario cacheado o lo carga una sola vez aunque haya peticiones concurrentes.
+     * Se entrega siempre una copia: Spring Security borra la contraseña del principal tras
+     * autenticar y no debe afectar a la entrada cacheada.
+     */
+    public UserDetails get(String email, Function<String, UserDetails> loader) {
+        UserDetails cached = cache.get(email, loader);
+        if (cached instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.copy();
+        }
+        return User.withUserDetails(cached).build();
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            cache.invalidate(email);
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
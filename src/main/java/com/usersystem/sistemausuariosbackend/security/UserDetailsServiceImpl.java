@@ -2,55 +2,58 @@
 package com.usersystem.sistemausuariosbackend.security;
 
 import com.usersystem.sistemausuariosbackend.model.User;
-import com.usersystem.sistemausuariosbackend.model.Role; // Importar la entidad Role
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.service.RoleRegistry;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import java.util.Collection;
-// import java.util.Set; // Ya no necesitamos Set
-import java.util.Collections; // Importar Collections para singletons
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final RoleRegistry roleRegistry;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, UserDetailsCache userDetailsCache,
+                                  RoleRegistry roleRegistry) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.roleRegistry = roleRegistry;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        // Los usuarios inexistentes no se cachean: la excepción atraviesa la caché
+        return userDetailsCache.get(email, this::loadFromDatabase);
+    }
+
+    private UserDetails loadFromDatabase(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con email: " + email));
 
-        // --- CAMBIO CLAVE: Mapear el único rol a una colección de GrantedAuthority ---
-        Collection<? extends GrantedAuthority> authorities = mapRoleToAuthorities(user.getRole()); // Ahora pasamos el único objeto Role
-        // --- FIN CAMBIO CLAVE ---
-
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                user.isEnabled(),
-                true,
-                true,
-                true,
-                authorities
-        );
+        // El principal lleva la proyección que usa el login (id, rol, 2FA, avatar...).
+        // Se llama también desde JwtAuthFilter, sin sesión abierta: el rol sale del registro, no del proxy.
+        return AuthenticatedUser.fromUser(user, roleRegistry.nameOf(user.getRole()));
     }
 
-    // --- CAMBIO CLAVE: Método auxiliar para mapear UN solo Role a GrantedAuthority ---
-    private Collection<? extends GrantedAuthority> mapRoleToAuthorities(Role role){
-        // Si el rol es nulo por alguna razón (no debería serlo por el optional=false en @ManyToOne),
-        // devolvemos una colección vacía.
-        if (role == null) {
-            return Collections.emptyList();
+    /**
+     * Llamado por DaoAuthenticationProvider tras un login correcto cuando el hash guardado
+     * usa un coste BCrypt menor al configurado: guarda el hash re-calculado.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+        userDetailsCache.evict(user.getUsername());
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.withPassword(newPassword);
         }
-        return Collections.singletonList(new SimpleGrantedAuthority(role.getName()));
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
     }
-    // --- FIN CAMBIO CLAVE ---
-}
\ No newline at end of file
+}
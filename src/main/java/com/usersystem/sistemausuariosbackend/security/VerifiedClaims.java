@@ -0,0 +1,73 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Resultado inmutable de verificar un JWT una sola vez (firma + expiración).
+ * El filtro lo propaga durante la petición para no volver a parsear el token.
+ */
+public final class VerifiedClaims {
+
+    private final String subject;
+    private final List<String> roles;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final int securityVersion;
+    private final Long userId;
+    private final String appUsername;
+    private final String role;
+
+    public VerifiedClaims(String subject, List<String> roles, Date issuedAt, Date expiration, int securityVersion,
+                          Long userId, String appUsername, String role) {
+        this.subject = subject;
+        this.roles = roles == null ? List.of() : List.copyOf(roles);
+        this.issuedAt = issuedAt == null ? null : new Date(issuedAt.getTime());
+        this.expiration = expiration == null ? null : new Date(expiration.getTime());
+        this.securityVersion = securityVersion;
+        this.userId = userId;
+        this.appUsername = appUsername;
+        this.role = role;
+    }
+
+    // El "sujeto" del token (el email del usuario)
+    public String getSubject() {
+        return subject;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt == null ? null : new Date(issuedAt.getTime());
+    }
+
+    public Date getExpiration() {
+        return expiration == null ? null : new Date(expiration.getTime());
+    }
+
+    // Versión de seguridad del usuario en el momento de emitir el token
+    public int getSecurityVersion() {
+        return securityVersion;
+    }
+
+    // ID del usuario (null en tokens emitidos antes de incluir el claim)
+    public Long getUserId() {
+        return userId;
+    }
+
+    // Nombre de usuario de la aplicación (no el email)
+    public String getAppUsername() {
+        return appUsername;
+    }
+
+    // Rol principal del usuario (null en tokens emitidos antes de incluir el claim)
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -0,0 +1,173 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.AuditCode;
+import com.usersystem.sistemausuariosbackend.model.AuditCodeId.Kind;
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Asigna códigos (tabla audit_codes) a los tipos de evento y resultados que no son de esta aplicación,
+ * para que otros servicios puedan escribir sus propios eventos. Un nombre nuevo recibe el siguiente código
+ * libre de su tipo en su primer uso, en una transacción propia: aunque la petición que lo usó falle, el
+ * código queda asignado y nunca se reutiliza. Si dos nodos asignan a la vez, las claves de audit_codes solo
+ * dejan pasar a uno y el otro vuelve a leer la tabla.
+ * Los códigos asignados en otros nodos se cargan al encontrar uno desconocido (como mucho una vez por
+ * segundo) y periódicamente ({@code audit.codes.refresh-ms}).
+ */
+@Component
+@DependsOn("entityManagerFactory") // Hibernate crea antes la tabla audit_codes
+public class AuditCodeRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditCodeRegistry.class);
+
+    // Mismo límite que LogRollupId.result
+    static final int RESULT_NAME_LENGTH = 20;
+    private static final Pattern NAME = Pattern.compile("[A-Z][A-Z0-9_]*");
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int maxCustomEvents;
+    private final AtomicLong lastMissReload = new AtomicLong(System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS);
+
+    public AuditCodeRegistry(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${audit.codes.max-custom-events:1000}") int maxCustomEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxCustomEvents = maxCustomEvents;
+    }
+
+    @PostConstruct
+    void start() {
+        reload();
+        AuditCodes.onMiss(this::reloadAfterMiss);
+    }
+
+    @PreDestroy
+    void stop() {
+        AuditCodes.onMiss(() -> { });
+    }
+
+    /**
+     * Código del tipo de evento; si es la primera vez que aparece, se le asigna uno nuevo.
+     * @throws IllegalArgumentException si el nombre no es válido o no quedan códigos libres
+     */
+    public short eventCode(String eventType) {
+        Short code = AuditCodes.eventCode(eventType);
+        return code != null ? code : (short) assign(Kind.EVENT, eventType);
+    }
+
+    /**
+     * Código del resultado; si es la primera vez que aparece, se le asigna uno nuevo.
+     * @throws IllegalArgumentException si el nombre no es válido o no quedan códigos libres
+     */
+    public byte resultCode(String result) {
+        Byte code = AuditCodes.resultCode(result);
+        return code != null ? code : (byte) assign(Kind.RESULT, result);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.codes.refresh-ms:300000}", initialDelayString = "${audit.codes.refresh-ms:300000}")
+    public synchronized void reload() {
+        Map<String, Short> events = new HashMap<>();
+        Map<String, Byte> results = new HashMap<>();
+        // Fuera de la transacción del llamante: con REPEATABLE READ no vería lo asignado después por otro nodo
+        requiresNew.executeWithoutResult(status -> jdbcTemplate.query("SELECT kind, code, name FROM audit_codes", rs -> {
+            if (Kind.EVENT.name().equals(rs.getString(1))) {
+                events.put(rs.getString(3), rs.getShort(2));
+            } else {
+                results.put(rs.getString(3), (byte) rs.getShort(2));
+            }
+        }));
+        AuditCodes.useCustomCodes(events, results);
+        log.debug("Audit code registry loaded {} event types and {} results", events.size(), results.size());
+    }
+
+    // Nombres o códigos inventados no provocan una consulta cada uno
+    private void reloadAfterMiss() {
+        long last = lastMissReload.get();
+        long now = System.nanoTime();
+        if (now - last >= MISS_RELOAD_INTERVAL_NANOS && lastMissReload.compareAndSet(last, now)) {
+            try {
+                reload();
+            } catch (DataAccessException e) {
+                log.warn("Could not reload audit codes: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized int assign(Kind kind, String name) {
+        checkName(kind, name);
+        int first = kind == Kind.EVENT ? AuditCodes.FIRST_CUSTOM_EVENT_CODE : AuditCodes.FIRST_CUSTOM_RESULT_CODE;
+        int last = kind == Kind.EVENT ? Math.min(first + maxCustomEvents - 1, Short.MAX_VALUE) : Byte.MAX_VALUE;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            reload();
+            Number known = kind == Kind.EVENT ? (Number) AuditCodes.eventCode(name) : AuditCodes.resultCode(name);
+            if (known != null) {
+                return known.intValue();
+            }
+            try {
+                Integer code = requiresNew.execute(status -> {
+                    int next = jdbcTemplate.queryForObject(
+                            "SELECT COALESCE(MAX(code) + 1, ?) FROM audit_codes WHERE kind = ?", Integer.class,
+                            first, kind.name());
+                    if (next > last) {
+                        return null;
+                    }
+                    jdbcTemplate.update("INSERT INTO audit_codes (kind, code, name) VALUES (?, ?, ?)",
+                            kind.name(), next, name);
+                    return next;
+                });
+                if (code == null) {
+                    throw new IllegalArgumentException(label(kind) + " " + name
+                            + ": no quedan códigos libres para tipos nuevos (máximo " + (last - first + 1) + ")");
+                }
+                reload();
+                log.info("Audit {} code {} assigned to {}", kind, code, name);
+                return code;
+            } catch (DuplicateKeyException e) {
+                // Otro nodo asignó a la vez ese código o ese nombre: se vuelve a leer la tabla
+            }
+        }
+        throw new IllegalStateException("No se pudo asignar un código de auditoría a " + name);
+    }
+
+    private static void checkName(Kind kind, String name) {
+        int maxLength = kind == Kind.EVENT ? AuditCode.NAME_LENGTH : RESULT_NAME_LENGTH;
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException(label(kind) + " obligatorio");
+        }
+        if (name.length() > maxLength) {
+            throw new IllegalArgumentException(label(kind) + " de más de " + maxLength + " caracteres");
+        }
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException(label(kind) + " no válido: " + name
+                    + " (solo mayúsculas, dígitos y '_', empezando por una letra)");
+        }
+    }
+
+    private static String label(Kind kind) {
+        return kind == Kind.EVENT ? "Tipo de evento" : "Resultado";
+    }
+}
@@ -0,0 +1,15 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+
+import java.util.List;
+
+/**
+ * Recibe las entradas de log ya guardadas (con ID), en el hilo que las escribió y, si se escribieron
+ * dentro de una transacción, solo después de su commit.
+ * Las implementaciones no deben bloquear ni conservar la lista recibida (se reutiliza).
+ */
+public interface AuditEventListener {
+
+    void onPersisted(List<LogEntry> entries);
+}
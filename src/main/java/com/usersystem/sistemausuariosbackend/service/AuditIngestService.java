@@ -0,0 +1,252 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.usersystem.sistemausuariosbackend.model.IpAddressConverter;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.payload.AuditIngestEvent;
+import com.usersystem.sistemausuariosbackend.payload.AuditIngestResult;
+import com.usersystem.sistemausuariosbackend.security.IngestRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carga masiva de eventos de auditoría enviados por otros servicios en NDJSON (un evento JSON por línea).
+ * Lee el cuerpo línea a línea con un buffer fijo, valida cada línea por separado (una línea mala no
+ * invalida las demás) y escribe las válidas en lotes de {@code audit.ingest.batch-size} con el INSERT
+ * JDBC en lote de AuditLogWriter, cada lote en una transacción: al reenviar desde la línea indicada no
+ * quedan filas duplicadas de un lote a medias. Cada lote consume del límite de frecuencia del cliente; si
+ * se agota (o falla la base de datos) la carga se detiene y el resultado indica desde qué línea reenviar.
+ * No se aceptan eventos anteriores al horizonte de retención ({@code logs.retention.max-age-days}).
+ * Los tipos de evento y resultados que no son de esta aplicación se registran en AuditCodeRegistry.
+ */
+@Service
+public class AuditIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditIngestService.class);
+
+    public static final String STOPPED_RATE_LIMITED = "RATE_LIMITED";
+    public static final String STOPPED_DATABASE_UNAVAILABLE = "DATABASE_UNAVAILABLE";
+    public static final String STOPPED_LINE_LIMIT = "LINE_LIMIT";
+
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 4_000;
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+    private static final long MAX_CLOCK_SKEW_MINUTES = 5;
+    // Valores especiales de readLine
+    private static final int END_OF_STREAM = -1;
+    private static final int LINE_TOO_LONG = -2;
+
+    private final AuditLogWriter auditLogWriter;
+    private final AuditCodeRegistry auditCodeRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestRateLimiter rateLimiter;
+    private final ObjectReader eventReader;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxLineBytes;
+    private final long maxLines;
+    private final int maxAgeDays;
+
+    public AuditIngestService(AuditLogWriter auditLogWriter,
+                              AuditCodeRegistry auditCodeRegistry,
+                              PlatformTransactionManager transactionManager,
+                              IngestRateLimiter rateLimiter,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${audit.ingest.batch-size:1000}") int batchSize,
+                              @Value("${audit.ingest.max-line-bytes:16384}") int maxLineBytes,
+                              @Value("${audit.ingest.max-lines:200000}") long maxLines,
+                              @Value("${logs.retention.max-age-days:180}") int maxAgeDays) {
+        this.auditLogWriter = auditLogWriter;
+        this.auditCodeRegistry = auditCodeRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rateLimiter = rateLimiter;
+        // Un campo desconocido suele ser una errata del cliente: se informa en vez de ignorarlo
+        this.eventReader = objectMapper.readerFor(AuditIngestEvent.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxLineBytes = maxLineBytes;
+        this.maxLines = maxLines;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    /**
+     * Procesa un cuerpo NDJSON completo (o hasta que se detenga).
+     * @param client Cliente autenticado (clave de su límite de frecuencia)
+     * @param body Cuerpo de la petición; se lee en streaming
+     */
+    public AuditIngestResult ingest(String client, InputStream body) throws IOException {
+        AuditIngestResult result = new AuditIngestResult();
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        long batchFirstLine = 0;
+        byte[] line = new byte[maxLineBytes];
+        InputStream in = new BufferedInputStream(body, 64 * 1024);
+        long lineNumber = 0;
+        while (true) {
+            int length = readLine(in, line);
+            if (length == END_OF_STREAM) {
+                break;
+            }
+            lineNumber++;
+            if (lineNumber > maxLines) {
+                if (batch.isEmpty() || write(client, batch, batchFirstLine, result)) {
+                    stop(result, STOPPED_LINE_LIMIT, lineNumber);
+                }
+                break;
+            }
+            if (length == LINE_TOO_LONG) {
+                reject(result, lineNumber, "Línea de más de " + maxLineBytes + " bytes");
+                continue;
+            }
+            if (isBlank(line, length)) {
+                continue;
+            }
+            LogEntry entry;
+            try {
+                entry = toEntry(eventReader.readValue(line, 0, length));
+            } catch (JsonProcessingException e) {
+                reject(result, lineNumber, "JSON no válido: " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                reject(result, lineNumber, e.getMessage());
+                continue;
+            }
+            if (batch.isEmpty()) {
+                batchFirstLine = lineNumber;
+            }
+            batch.add(entry);
+            if (batch.size() >= batchSize && !write(client, batch, batchFirstLine, result)) {
+                break;
+            }
+        }
+        if (result.getStoppedBy() == null && !batch.isEmpty()) {
+            write(client, batch, batchFirstLine, result);
+        }
+        meterRegistry.counter("audit.ingest.accepted", "client", client).increment(result.getAccepted());
+        meterRegistry.counter("audit.ingest.rejected", "client", client).increment(result.getRejected());
+        return result;
+    }
+
+    // Escribe el lote; false si la carga debe detenerse
+    private boolean write(String client, List<LogEntry> batch, long firstLine, AuditIngestResult result) {
+        if (!rateLimiter.tryAcquire(client, batch.size())) {
+            stop(result, STOPPED_RATE_LIMITED, firstLine);
+            return false;
+        }
+        try {
+            // Todo el lote o nada: el cliente reenvía desde su primera línea
+            transactionTemplate.executeWithoutResult(status -> auditLogWriter.insertBatch(batch));
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Audit ingest from {} stopped at line {}: {}", client, firstLine, e.getMessage());
+            stop(result, STOPPED_DATABASE_UNAVAILABLE, firstLine);
+            return false;
+        }
+        result.setAccepted(result.getAccepted() + batch.size());
+        batch.clear();
+        return true;
+    }
+
+    private static void stop(AuditIngestResult result, String reason, long resumeFromLine) {
+        result.setStoppedBy(reason);
+        result.setResumeFromLine(resumeFromLine);
+    }
+
+    private static void reject(AuditIngestResult result, long line, String message) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new AuditIngestResult.LineError(line, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    LogEntry toEntry(AuditIngestEvent event) {
+        // Los tipos y resultados propios de otros servicios reciben código en su primer uso
+        auditCodeRegistry.eventCode(event.getEventType());
+        auditCodeRegistry.resultCode(event.getResult());
+        checkLength("username", event.getUsername(), MAX_NAME_LENGTH);
+        checkLength("targetUsername", event.getTargetUsername(), MAX_NAME_LENGTH);
+        checkLength("description", event.getDescription(), MAX_DESCRIPTION_LENGTH);
+        if (event.getIpAddress() != null && IpAddressConverter.toBytes(event.getIpAddress()) == null) {
+            throw new IllegalArgumentException("ipAddress no es una dirección IPv4/IPv6");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime timestamp = event.getTimestamp() == null ? now : event.getTimestamp();
+        if (timestamp.isAfter(now.plusMinutes(MAX_CLOCK_SKEW_MINUTES))) {
+            throw new IllegalArgumentException("timestamp en el futuro");
+        }
+        if (timestamp.isBefore(now.minusDays(maxAgeDays))) {
+            // Ya fuera de la tabla: el archivado no vuelve a recoger filas anteriores a lo archivado
+            throw new IllegalArgumentException("timestamp anterior al periodo de retención de " + maxAgeDays + " días");
+        }
+
+        LogEntry entry = LogEntry.restored(timestamp.truncatedTo(ChronoUnit.MICROS));
+        entry.setEventType(event.getEventType());
+        entry.setUsername(event.getUsername());
+        entry.setUserId(event.getUserId());
+        entry.setTargetUsername(event.getTargetUsername());
+        entry.setTargetUserId(event.getTargetUserId());
+        entry.setDescription(event.getDescription());
+        entry.setResult(event.getResult());
+        entry.setIpAddress(event.getIpAddress());
+        return entry;
+    }
+
+    private static void checkLength(String field, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException(field + " de más de " + max + " caracteres");
+        }
+    }
+
+    // Lee hasta '\n' en buffer sin crear objetos por línea; una línea que no cabe se descarta entera
+    private static int readLine(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        boolean tooLong = false;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (length < buffer.length) {
+                buffer[length++] = (byte) b;
+            } else {
+                tooLong = true;
+            }
+        }
+        if (b == -1 && length == 0 && !tooLong) {
+            return END_OF_STREAM;
+        }
+        if (tooLong) {
+            return LINE_TOO_LONG;
+        }
+        if (length > 0 && buffer[length - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    private static boolean isBlank(byte[] line, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(line[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
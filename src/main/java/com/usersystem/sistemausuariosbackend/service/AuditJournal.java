@@ -0,0 +1,599 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local de auditoría: {@link LogService#log} añade cada evento a un fichero de solo anexado
+ * (una escritura sin esperar al disco) y un hilo sincroniza el fichero cada {@code audit.journal.fsync-ms}.
+ * Otro hilo reproduce los eventos ya sincronizados en log_entries, en lotes, cuando la base de datos responde;
+ * si falla, reintenta con espera creciente y los eventos siguen a salvo en disco.
+ * <p>
+ * Cada registro es [longitud][CRC32C][secuencia][evento]. El id del evento en el journal
+ * ({@code journal_id}, único en log_entries) combina un id de instancia guardado en el directorio con la
+ * secuencia: reproducir otra vez un lote tras una caída no duplica filas. El fichero {@code checkpoint}
+ * guarda la última secuencia reproducida; los segmentos ya reproducidos se borran. Al arrancar se descarta
+ * un registro final incompleto (escritura cortada por la caída) y se reanuda desde el checkpoint.
+ * <p>
+ * Si la base de datos rechaza un lote por sus datos (no por estar caída), se parte en mitades hasta aislar
+ * las filas rechazadas, que se copian al fichero {@code dead-letter.log} (mismo formato de registro) y se
+ * saltan: una fila mala no bloquea la reproducción de las demás.
+ */
+@Component
+public class AuditJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String INSTANCE_ID = "instance.id";
+    private static final String DEAD_LETTER = "dead-letter.log";
+    private static final int HEADER_BYTES = 8; // longitud + CRC
+    private static final int SEQUENCE_BITS = 40;
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditLogWriter auditLogWriter;
+    private final boolean enabled;
+    private final Path dir;
+    private final long fsyncIntervalNanos;
+    private final long segmentBytes;
+    private final int batchSize;
+    private final long retryNanos;
+    private final Counter deadLettered;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final Timer flushLatency;
+
+    private final Object appendLock = new Object();
+    private long instancePrefix;
+    private FileChannel active;
+    private Path activePath;
+    private long nextSequence;        // protegido por appendLock
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+    private volatile long checkpointSequence;
+
+    // Posición del replayer (solo la usa su hilo)
+    private Path readPath;
+    private long readOffset;
+
+    private volatile boolean running;
+    private Thread syncThread;
+    private Thread replayThread;
+
+    public AuditJournal(JdbcTemplate jdbcTemplate,
+                        AuditLogWriter auditLogWriter,
+                        @Value("${audit.journal.enabled:true}") boolean enabled,
+                        @Value("${audit.journal.dir:audit-journal}") String dir,
+                        @Value("${audit.journal.fsync-ms:20}") long fsyncIntervalMs,
+                        @Value("${audit.journal.segment-bytes:67108864}") long segmentBytes,
+                        @Value("${audit.journal.replay-batch-size:500}") int batchSize,
+                        @Value("${audit.journal.retry-ms:1000}") long retryMs,
+                        MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditLogWriter = auditLogWriter;
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.segmentBytes = segmentBytes;
+        this.batchSize = batchSize;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+        this.deadLettered = Counter.builder("audit.journal.dead_lettered").register(meterRegistry);
+        // Mismas métricas que AuditLogWriter, etiquetadas pipeline=journal: la profundidad es lo sincronizado
+        // en disco que aún no ha llegado a log_entries
+        Gauge.builder("audit.queue.size", this, journal -> journal.durableSequence - journal.checkpointSequence)
+                .tag(AuditLogWriter.PIPELINE_TAG, "journal").register(meterRegistry);
+        this.failed = Counter.builder("audit.write.failed").tag(AuditLogWriter.PIPELINE_TAG, "journal").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("audit.batch.size")
+                .tag(AuditLogWriter.PIPELINE_TAG, "journal").register(meterRegistry);
+        this.flushLatency = Timer.builder("audit.flush.latency").tag(AuditLogWriter.PIPELINE_TAG, "journal").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        recover();
+        running = true;
+        syncThread = new Thread(this::runSync, "audit-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        replayThread = new Thread(this::runReplay, "audit-journal-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled && active != null;
+    }
+
+    /**
+     * Añade un evento al journal y le asigna su journal_id. No espera al disco: el evento queda
+     * a salvo en la siguiente sincronización (como mucho {@code audit.journal.fsync-ms} después).
+     * @throws IOException si no se puede escribir el fichero (el llamante usa otra vía)
+     */
+    public void append(LogEntry entry) throws IOException {
+        byte[] body = encode(entry);
+        synchronized (appendLock) {
+            long sequence = nextSequence;
+            ByteBuffer frame = frame(sequence, body);
+            long start = active.position();
+            try {
+                while (frame.hasRemaining()) {
+                    active.write(frame);
+                }
+            } catch (IOException e) {
+                // Sin restos de un registro a medias: lo siguiente se anexa tras el último registro válido
+                active.truncate(start);
+                throw e;
+            }
+            nextSequence = sequence + 1;
+            appendedSequence = sequence;
+            entry.setJournalId(journalId(sequence));
+            if (active.position() >= segmentBytes) {
+                rotate();
+            }
+        }
+    }
+
+    // Sincroniza a disco lo escrito hasta ahora; el replayer solo lee hasta lo sincronizado
+    void sync() throws IOException {
+        long upTo = appendedSequence;
+        if (upTo == durableSequence) {
+            return;
+        }
+        FileChannel channel;
+        synchronized (appendLock) {
+            channel = active;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // El segmento se cerró al rotar, y rotate() ya lo sincronizó
+        }
+        markDurable(upTo);
+        if (replayThread != null) {
+            LockSupport.unpark(replayThread);
+        }
+    }
+
+    /**
+     * Reproduce en log_entries el siguiente lote de eventos sincronizados. Los journal_id que ya estén
+     * en la tabla (lote insertado antes de una caída, sin checkpoint) se omiten; los que la base de datos
+     * rechaza por sus datos van al fichero de descartes.
+     * @return true si había eventos que reproducir
+     * @throws RuntimeException si falla la base de datos (el lote se reintentará)
+     */
+    boolean replayOnce() throws IOException {
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        Path path = readPath != null ? readPath : firstSegmentAfter(null);
+        long offset = readPath != null ? readOffset : 0;
+        long lastSequence = checkpointSequence;
+        FileChannel channel = path == null ? null : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            while (channel != null && batch.size() < batchSize) {
+                Frame frame = readFrame(channel, offset);
+                if (frame == null) {
+                    Path next = firstSegmentAfter(path);
+                    if (next.equals(path)) {
+                        break;
+                    }
+                    channel.close();
+                    path = next;
+                    offset = 0;
+                    channel = FileChannel.open(path, StandardOpenOption.READ);
+                    continue;
+                }
+                if (frame.sequence() > durableSequence) {
+                    break;
+                }
+                offset = frame.end();
+                if (frame.sequence() > checkpointSequence) {
+                    batch.add(frame.entry());
+                    lastSequence = frame.sequence();
+                }
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        if (batch.isEmpty()) {
+            readPath = path;
+            readOffset = offset;
+            return false;
+        }
+
+        long started = System.nanoTime();
+        insertIsolatingRejected(batch);
+        flushLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        writeCheckpoint(lastSequence);
+        readPath = path;
+        readOffset = offset;
+        deleteReplayedSegments();
+        return true;
+    }
+
+    // Inserta lo que aún no esté en la tabla; si la base de datos rechaza los datos, reintenta por mitades
+    private void insertIsolatingRejected(List<LogEntry> batch) throws IOException {
+        Set<Long> present = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT journal_id FROM log_entries WHERE journal_id IN ("
+                        + batch.stream().map(entry -> "?").collect(Collectors.joining(",")) + ")",
+                Long.class, batch.stream().map(LogEntry::getJournalId).toArray()));
+        List<LogEntry> missing = batch.stream().filter(entry -> !present.contains(entry.getJournalId())).toList();
+        try {
+            auditLogWriter.insertBatch(missing);
+        } catch (RuntimeException e) {
+            if (!(e instanceof DataIntegrityViolationException)) {
+                // Base de datos no disponible u otro fallo: se reintenta el lote entero más tarde
+                throw e;
+            }
+            if (missing.size() == 1) {
+                deadLetter(missing.get(0), e);
+                return;
+            }
+            // Parte del lote puede haber entrado: cada mitad vuelve a comprobar qué falta
+            int half = missing.size() / 2;
+            insertIsolatingRejected(missing.subList(0, half));
+            insertIsolatingRejected(missing.subList(half, missing.size()));
+        }
+    }
+
+    private void deadLetter(LogEntry entry, RuntimeException cause) throws IOException {
+        long sequence = entry.getJournalId() & ((1L << SEQUENCE_BITS) - 1);
+        try (FileChannel channel = FileChannel.open(dir.resolve(DEAD_LETTER), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer frame = frame(sequence, encode(entry));
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            channel.force(false);
+        }
+        deadLettered.increment();
+        log.error("Audit journal event {} rejected by the database, moved to {}: {}",
+                entry.getJournalId(), DEAD_LETTER, cause.getMessage());
+    }
+
+    private void runSync() {
+        while (running) {
+            LockSupport.parkNanos(fsyncIntervalNanos);
+            try {
+                sync();
+            } catch (IOException e) {
+                log.error("Audit journal fsync failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void runReplay() {
+        long backoff = retryNanos;
+        while (running) {
+            try {
+                if (!replayOnce()) {
+                    LockSupport.parkNanos(fsyncIntervalNanos);
+                }
+                backoff = retryNanos;
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                log.warn("Audit journal replay failed, retrying in {} ms: {}",
+                        TimeUnit.NANOSECONDS.toMillis(backoff), e.getMessage());
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_NANOS);
+            }
+        }
+    }
+
+    // --- Arranque y recuperación ---
+
+    void recover() throws IOException {
+        Files.createDirectories(dir);
+        instancePrefix = loadInstanceId() << SEQUENCE_BITS;
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        checkpointSequence = Files.exists(checkpoint) ? ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong() : 0;
+
+        long lastSequence = checkpointSequence;
+        List<Path> segments = segments();
+        for (Path segment : segments) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long offset = 0;
+                Frame frame;
+                while ((frame = readFrame(channel, offset)) != null) {
+                    lastSequence = Math.max(lastSequence, frame.sequence());
+                    offset = frame.end();
+                }
+                if (offset < channel.size()) {
+                    // Registro final incompleto o corrupto: nunca se confirmó, se descarta
+                    log.warn("Audit journal {}: discarding {} bytes of a torn write", segment.getFileName(),
+                            channel.size() - offset);
+                    channel.truncate(offset);
+                    channel.force(true);
+                }
+            }
+        }
+        nextSequence = lastSequence + 1;
+        appendedSequence = lastSequence;
+        durableSequence = lastSequence;
+        readPath = null;
+        readOffset = 0;
+        openSegment(nextSequence);
+        deleteReplayedSegments();
+        if (lastSequence > checkpointSequence) {
+            log.info("Audit journal recovered {} events pending replay", lastSequence - checkpointSequence);
+        }
+    }
+
+    private long loadInstanceId() throws IOException {
+        Path file = dir.resolve(INSTANCE_ID);
+        if (Files.exists(file)) {
+            return Long.parseLong(Files.readString(file).trim());
+        }
+        // Distingue los journal_id de cada nodo; 23 bits para que journal_id siga siendo positivo
+        long id = ThreadLocalRandom.current().nextLong(1, 1L << 23);
+        writeAtomically(file, String.valueOf(id).getBytes(StandardCharsets.US_ASCII));
+        return id;
+    }
+
+    private long journalId(long sequence) {
+        return instancePrefix | sequence;
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        activePath = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        active = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Llamado con appendLock: cierra el segmento lleno (sincronizado) y abre el siguiente
+    private void rotate() throws IOException {
+        active.force(false);
+        active.close();
+        markDurable(appendedSequence);
+        openSegment(nextSequence);
+    }
+
+    private synchronized void markDurable(long sequence) {
+        if (sequence > durableSequence) {
+            durableSequence = sequence;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    // Primer segmento posterior a current (el primero si current es null); current si no hay otro
+    private Path firstSegmentAfter(Path current) throws IOException {
+        for (Path segment : segments()) {
+            if (current == null || segment.getFileName().toString().compareTo(current.getFileName().toString()) > 0) {
+                return segment;
+            }
+        }
+        return current;
+    }
+
+    private void deleteReplayedSegments() throws IOException {
+        Path current = activePath;
+        for (Path segment : segments()) {
+            // Un segmento cerrado se puede borrar si el replayer ya pasó al siguiente
+            if (segment.equals(current) || readPath == null || segment.compareTo(readPath) >= 0) {
+                continue;
+            }
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        writeAtomically(dir.resolve(CHECKPOINT), ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+        checkpointSequence = sequence;
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(content));
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // --- Formato de registro ---
+
+    private record Frame(long sequence, LogEntry entry, long end) {
+    }
+
+    private static ByteBuffer frame(long sequence, byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + Long.BYTES + body.length);
+        frame.putInt(Long.BYTES + body.length).putInt(0).putLong(sequence).put(body);
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), HEADER_BYTES, Long.BYTES + body.length);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    // null si en offset no hay un registro completo y válido
+    private Frame readFrame(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.read(header, offset) < HEADER_BYTES) {
+            return null;
+        }
+        int length = header.getInt(0);
+        int checksum = header.getInt(Integer.BYTES);
+        if (length < Long.BYTES || offset + HEADER_BYTES + length > channel.size()) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        while (payload.hasRemaining() && channel.read(payload, offset + HEADER_BYTES + payload.position()) > 0) {
+            // Lectura posicional completa del registro
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        if (payload.hasRemaining() || (int) crc.getValue() != checksum) {
+            return null;
+        }
+        long sequence = payload.getLong(0);
+        LogEntry entry = decode(payload.array(), Long.BYTES);
+        entry.setJournalId(journalId(sequence));
+        return new Frame(sequence, entry, offset + HEADER_BYTES + length);
+    }
+
+    private static byte[] encode(LogEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            LocalDateTime timestamp = entry.getTimestamp();
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+            writeString(out, entry.getEventType());
+            writeString(out, entry.getUsername());
+            writeLong(out, entry.getUserId());
+            writeString(out, entry.getTargetUsername());
+            writeLong(out, entry.getTargetUserId());
+            out.writeShort(entry.getDescriptionTemplate());
+            writeString(out, entry.getDescriptionParams());
+            writeString(out, entry.getResult());
+            writeString(out, entry.getIpAddress());
+            out.writeInt(entry.getOccurrenceCount());
+            LocalDateTime last = entry.getLastTimestamp();
+            out.writeBoolean(last != null);
+            if (last != null) {
+                out.writeLong(last.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(last.getNano());
+            }
+            out.writeInt(entry.getSampleRate() == null ? 0 : entry.getSampleRate());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static LogEntry decode(byte[] payload, int offset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, offset, payload.length - offset));
+        LogEntry entry = LogEntry.restored(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+        entry.setEventType(readString(in));
+        entry.setUsername(readString(in));
+        entry.setUserId(readLong(in));
+        entry.setTargetUsername(readString(in));
+        entry.setTargetUserId(readLong(in));
+        AuditMessage template = AuditMessage.byId(in.readShort());
+        entry.applyDescription(new AuditMessage.AuditDescription(template, AuditMessage.decodeParams(readString(in))));
+        entry.setResult(readString(in));
+        entry.setIpAddress(readString(in));
+        entry.setOccurrenceCount(in.readInt());
+        if (in.readBoolean()) {
+            entry.setLastTimestamp(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+        }
+        int sampleRate = in.readInt();
+        entry.setSampleRate(sampleRate == 0 ? null : sampleRate);
+        return entry;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    /**
+     * Sincroniza y reproduce lo pendiente antes de cerrar el contexto; lo que no llegue a la base
+     * de datos se queda en el journal y se reproduce en el siguiente arranque.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(syncThread);
+        LockSupport.unpark(replayThread);
+        syncThread.join(TimeUnit.SECONDS.toMillis(5));
+        replayThread.join(TimeUnit.SECONDS.toMillis(30));
+        try {
+            sync();
+            while (replayOnce()) {
+                // Vacía lo pendiente mientras el DataSource sigue abierto
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Audit journal left events pending replay on shutdown: {}", e.getMessage());
+        }
+        synchronized (appendLock) {
+            try {
+                active.close();
+            } catch (IOException e) {
+                log.warn("Could not close audit journal: {}", e.getMessage());
+            }
+        }
+    }
+}
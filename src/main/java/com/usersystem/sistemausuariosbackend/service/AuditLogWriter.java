@@ -0,0 +1,287 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.IpAddressConverter;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Escritor asíncrono del registro de auditoría. {@link LogService#log} solo encola la
+ * entrada en un ring buffer sin locks; un hilo dedicado la inserta en lotes JDBC
+ * (multi-fila con rewriteBatchedStatements) cuando se llena el lote o vence el intervalo.
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    static final String INSERT_SQL = "INSERT INTO log_entries "
+            + "(id, timestamp, event_code, username, user_id, target_username, target_user_id, "
+            + "description_template, description_params, result_code, ip, occurrence_count, last_timestamp, sample_rate, "
+            + "journal_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Etiqueta que distingue en las métricas compartidas el buffer en memoria del replayer del journal
+    static final String PIPELINE_TAG = "pipeline";
+
+    // Qué hacer cuando el buffer está lleno
+    public enum Backpressure { BLOCK, DROP, CALLER_RUNS }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LogEntryRepository logEntryRepository;
+    private final IdBlockAllocator idBlockAllocator;
+    private final List<AuditEventListener> listeners;
+    private final MpscRingBuffer<LogEntry> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long blockTimeoutNanos;
+    private final Backpressure backpressure;
+
+    private final Counter dropped;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final Timer flushLatency;
+
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private Thread writerThread;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate,
+                          LogEntryRepository logEntryRepository,
+                          IdBlockAllocator idBlockAllocator,
+                          List<AuditEventListener> listeners,
+                          @Value("${audit.async.capacity:8192}") int capacity,
+                          @Value("${audit.async.batch-size:500}") int batchSize,
+                          @Value("${audit.async.flush-interval-ms:200}") long flushIntervalMs,
+                          @Value("${audit.async.backpressure:CALLER_RUNS}") Backpressure backpressure,
+                          @Value("${audit.async.block-timeout-ms:1000}") long blockTimeoutMs,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.logEntryRepository = logEntryRepository;
+        this.idBlockAllocator = idBlockAllocator;
+        this.listeners = listeners;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.backpressure = backpressure;
+
+        Gauge.builder("audit.queue.size", buffer, MpscRingBuffer::size)
+                .tag(PIPELINE_TAG, "ring-buffer").register(meterRegistry);
+        this.dropped = Counter.builder("audit.dropped").register(meterRegistry);
+        this.failed = Counter.builder("audit.write.failed").tag(PIPELINE_TAG, "ring-buffer").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("audit.batch.size")
+                .tag(PIPELINE_TAG, "ring-buffer").register(meterRegistry);
+        this.flushLatency = Timer.builder("audit.flush.latency").tag(PIPELINE_TAG, "ring-buffer").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Encola una entrada. Si el buffer está lleno aplica la política configurada.
+     */
+    public void submit(LogEntry entry) {
+        if (!running) {
+            insertNow(entry);
+            return;
+        }
+        if (buffer.offer(entry)) {
+            wakeWriterIfNeeded();
+            return;
+        }
+        switch (backpressure) {
+            case DROP -> dropped.increment();
+            case CALLER_RUNS -> insertNow(entry);
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (!buffer.offer(entry)) {
+                    if (System.nanoTime() > deadline) {
+                        dropped.increment();
+                        return;
+                    }
+                    wakeWriterIfNeeded();
+                    LockSupport.parkNanos(100_000);
+                }
+                wakeWriterIfNeeded();
+            }
+        }
+    }
+
+    private void wakeWriterIfNeeded() {
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void runWriter() {
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+        while (running || buffer.size() > 0) {
+            if (batch.isEmpty()) {
+                batchStartedAt = System.nanoTime();
+            }
+            buffer.drainTo(batch, batchSize - batch.size());
+
+            boolean full = batch.size() >= batchSize;
+            boolean due = !batch.isEmpty() && System.nanoTime() - batchStartedAt >= flushIntervalNanos;
+            if (full || due || (!running && !batch.isEmpty())) {
+                flush(batch);
+                batch.clear();
+                continue;
+            }
+
+            // Sin trabajo suficiente: duerme hasta el vencimiento del lote o hasta que llegue algo
+            writerParked = true;
+            if (buffer.size() == 0 && running) {
+                long waitNanos = batch.isEmpty()
+                        ? flushIntervalNanos
+                        : flushIntervalNanos - (System.nanoTime() - batchStartedAt);
+                LockSupport.parkNanos(Math.max(waitNanos, 1));
+            }
+            writerParked = false;
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<LogEntry> batch) {
+        batchSizes.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            insertBatch(batch);
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("Could not write {} audit log entries: {}", batch.size(), e.getMessage());
+        } finally {
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Inserta un lote con un único INSERT JDBC en lote y avisa a los listeners (tras el commit si hay una
+     * transacción activa). Lo usa también el replayer de AuditJournal, que gestiona él mismo los fallos
+     * (reintenta desde el journal).
+     * @throws RuntimeException si la base de datos rechaza el lote
+     */
+    void insertBatch(List<LogEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Un bloque de IDs por lote, del mismo generador que usa Hibernate
+        long nextId = idBlockAllocator.allocate(IdBlockAllocator.LOG_ENTRIES, batch.size());
+        for (LogEntry entry : batch) {
+            entry.setId(nextId++);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getId());
+            ps.setTimestamp(2, Timestamp.valueOf(entry.getTimestamp()));
+            ps.setShort(3, AuditCodes.eventCode(entry.getEventType()));
+            ps.setString(4, entry.getUsername());
+            setNullableLong(ps, 5, entry.getUserId());
+            ps.setString(6, entry.getTargetUsername());
+            setNullableLong(ps, 7, entry.getTargetUserId());
+            ps.setShort(8, entry.getDescriptionTemplate());
+            ps.setString(9, entry.getDescriptionParams());
+            ps.setByte(10, AuditCodes.resultCode(entry.getResult()));
+            ps.setBytes(11, IpAddressConverter.toBytes(entry.getIpAddress()));
+            ps.setInt(12, entry.getOccurrenceCount());
+            ps.setTimestamp(13, entry.getLastTimestamp() == null ? null : Timestamp.valueOf(entry.getLastTimestamp()));
+            if (entry.getSampleRate() == null) {
+                ps.setNull(14, Types.INTEGER);
+            } else {
+                ps.setInt(14, entry.getSampleRate());
+            }
+            setNullableLong(ps, 15, entry.getJournalId());
+        });
+        notifyListeners(batch);
+    }
+
+    /**
+     * Avisa a los interesados (SSE, rollups); un fallo en uno no afecta a la escritura ni a los demás.
+     * Dentro de una transacción el aviso espera al commit: si se deshace, nadie ve eventos que no se guardaron.
+     */
+    void notifyListeners(List<LogEntry> entries) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<LogEntry> persisted = List.copyOf(entries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyNow(persisted);
+                }
+            });
+        } else {
+            notifyNow(entries);
+        }
+    }
+
+    private void notifyNow(List<LogEntry> entries) {
+        for (AuditEventListener listener : listeners) {
+            try {
+                listener.onPersisted(entries);
+            } catch (RuntimeException e) {
+                log.warn("Audit listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    // Escritura síncrona en el hilo llamante (política CALLER_RUNS o tras el apagado)
+    private void insertNow(LogEntry entry) {
+        try {
+            notifyListeners(List.of(logEntryRepository.save(entry)));
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Could not write audit log entry {}: {}", entry.getEventType(), e.getMessage());
+        }
+    }
+
+    /**
+     * Vacía el buffer antes de cerrar el contexto (y con él el DataSource).
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        if (writerThread.isAlive()) {
+            log.warn("Audit log writer did not drain within 30s; {} entries pending", buffer.size());
+        }
+    }
+}
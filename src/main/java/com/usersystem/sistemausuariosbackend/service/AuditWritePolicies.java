@@ -0,0 +1,170 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Política de escritura de cada tipo de evento de auditoría ({@code audit.policies}, p. ej.
+ * {@code USER_LOGIN:SAMPLE:10,LOGIN_ATTEMPT:COALESCE:60}):
+ * <ul>
+ *     <li>ALWAYS: una fila por evento (comportamiento por defecto).</li>
+ *     <li>SAMPLE:N: se guarda 1 de cada N eventos, con sampleRate = N.</li>
+ *     <li>COALESCE:segundos: la primera ocurrencia abre una ventana para su clave (eventType, username,
+ *     ip, result) y se retiene junto con sus repeticiones; al cerrar la ventana se escribe una sola fila con
+ *     occurrenceCount y la primera/última marca de tiempo. Ningún evento agrupado aparece antes de que
+ *     cierre su ventana.</li>
+ * </ul>
+ * Los eventos de {@code audit.policy.exact-events} son siempre ALWAYS, aunque se configuren de otra forma.
+ */
+@Component
+public class AuditWritePolicies {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditWritePolicies.class);
+
+    public enum Mode { ALWAYS, SAMPLE, COALESCE }
+
+    record Policy(Mode mode, int sampleRate, Duration window) {
+        static final Policy ALWAYS = new Policy(Mode.ALWAYS, 1, Duration.ZERO);
+    }
+
+    private record CoalesceKey(String eventType, String username, String ipAddress, String result) {
+    }
+
+    // Primera ocurrencia de una clave con sus repeticiones: la fila que se escribirá al cerrar la ventana
+    private static final class Window {
+        final LocalDateTime closesAt;
+        final LogEntry row;
+
+        Window(LogEntry first, Duration length) {
+            this.closesAt = first.getTimestamp().plus(length);
+            this.row = first;
+        }
+    }
+
+    private final Map<String, Policy> policies;
+    private final int maxCoalesceKeys;
+    private final Map<String, AtomicLong> sampleCounters = new ConcurrentHashMap<>();
+    private final Map<CoalesceKey, Window> windows = new ConcurrentHashMap<>();
+    // Filas cuya ventana se reemplazó antes de que el volcado periódico la recogiera
+    private final List<LogEntry> pendingClosed = new ArrayList<>();
+
+    public AuditWritePolicies(@Value("${audit.policies:}") String[] policies,
+                              @Value("${audit.policy.exact-events:USER_DELETED,USER_CREATED,USER_STATUS_CHANGE,USER_PASSWORD_CHANGE,USERS_BULK_DELETED,USERS_BULK_STATUS_CHANGE,USERS_BULK_ROLE_CHANGE,USERS_IMPORTED}")
+                              Set<String> exactEvents,
+                              @Value("${audit.coalesce.max-keys:10000}") int maxCoalesceKeys) {
+        this.policies = parse(policies, exactEvents);
+        this.maxCoalesceKeys = maxCoalesceKeys;
+    }
+
+    Policy policyFor(String eventType) {
+        return policies.getOrDefault(eventType, Policy.ALWAYS);
+    }
+
+    /**
+     * Decide si la entrada se escribe ahora. Con SAMPLE puede marcarla con su sampleRate;
+     * con COALESCE puede quedarse con ella hasta que cierre su ventana (ver {@link #drainClosedWindows}).
+     * @return true si hay que escribirla inmediatamente
+     */
+    public boolean admit(LogEntry entry) {
+        Policy policy = policyFor(entry.getEventType());
+        return switch (policy.mode()) {
+            case ALWAYS -> true;
+            case SAMPLE -> admitSample(entry, policy);
+            case COALESCE -> admitCoalesced(entry, policy);
+        };
+    }
+
+    private boolean admitSample(LogEntry entry, Policy policy) {
+        long seen = sampleCounters.computeIfAbsent(entry.getEventType(), type -> new AtomicLong())
+                .getAndIncrement();
+        if (seen % policy.sampleRate() != 0) {
+            return false;
+        }
+        entry.setSampleRate(policy.sampleRate());
+        return true;
+    }
+
+    private boolean admitCoalesced(LogEntry entry, Policy policy) {
+        CoalesceKey key = new CoalesceKey(entry.getEventType(), entry.getUsername(), entry.getIpAddress(), entry.getResult());
+        Window existing = windows.get(key);
+        if (existing == null && windows.size() >= maxCoalesceKeys) {
+            // Demasiadas claves distintas (p. ej. ataque desde muchas IPs): se escribe sin agrupar
+            return true;
+        }
+        windows.compute(key, (k, window) -> {
+            if (window == null || !entry.getTimestamp().isBefore(window.closesAt)) {
+                if (window != null) {
+                    // La ventana anterior expiró sin volcarse todavía: se cierra y se abre otra
+                    synchronized (pendingClosed) {
+                        pendingClosed.add(window.row);
+                    }
+                }
+                return new Window(entry, policy.window());
+            }
+            window.row.setOccurrenceCount(window.row.getOccurrenceCount() + 1);
+            window.row.setLastTimestamp(entry.getTimestamp());
+            return window;
+        });
+        return false;
+    }
+
+    /**
+     * Retira las ventanas cerradas y devuelve su fila agrupada, lista para escribir.
+     * @param now Instante de referencia (con {@code LocalDateTime.MAX} se retiran todas)
+     */
+    public List<LogEntry> drainClosedWindows(LocalDateTime now) {
+        List<LogEntry> closed = new ArrayList<>();
+        for (Map.Entry<CoalesceKey, Window> entry : windows.entrySet()) {
+            if (!now.isBefore(entry.getValue().closesAt)) {
+                // remove(key, value) evita retirar una ventana nueva abierta entre medias
+                if (windows.remove(entry.getKey(), entry.getValue())) {
+                    closed.add(entry.getValue().row);
+                }
+            }
+        }
+        synchronized (pendingClosed) {
+            closed.addAll(pendingClosed);
+            pendingClosed.clear();
+        }
+        return closed;
+    }
+
+    private static Map<String, Policy> parse(String[] definitions, Set<String> exactEvents) {
+        Map<String, Policy> parsed = new HashMap<>();
+        for (String definition : definitions) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            String[] parts = definition.trim().split(":");
+            String eventType = parts[0];
+            Mode mode = Mode.valueOf(parts[1].toUpperCase());
+            if (exactEvents.contains(eventType) && mode != Mode.ALWAYS) {
+                log.warn("Ignoring audit policy {} for {}: security events are always written exactly", mode, eventType);
+                continue;
+            }
+            Policy policy = switch (mode) {
+                case ALWAYS -> Policy.ALWAYS;
+                case SAMPLE -> new Policy(mode, Integer.parseInt(parts[2]), Duration.ZERO);
+                case COALESCE -> new Policy(mode, 1, Duration.ofSeconds(Long.parseLong(parts[2])));
+            };
+            if (policy.sampleRate() < 1 || policy.window().isNegative()) {
+                throw new IllegalArgumentException("Invalid audit policy: " + definition);
+            }
+            parsed.put(eventType, policy);
+        }
+        return Map.copyOf(parsed);
+    }
+}
@@ -0,0 +1,353 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.LogEntrySpecifications;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Retención de log_entries: cada día mueve las entradas más antiguas que {@code logs.retention.max-age-days}
+ * a segmentos NDJSON comprimidos en {@code logs.retention.archive-dir} y después las borra por lotes.
+ * Los segmentos se escriben una vez y no se modifican; cada uno tiene al lado un índice JSON (rango de
+ * timestamps, último id y tipos de evento) que es lo que lo da por válido y lo que permite descartarlo en
+ * las consultas sin descomprimirlo. Los segmentos se generan en orden (timestamp, id), así que el último
+ * índice marca hasta dónde está archivado todo: si el borrado se interrumpe, la siguiente ejecución lo completa
+ * borrando los ids que contiene el último segmento.
+ * El archivo es local: la retención está desactivada por defecto y se activa en un único nodo.
+ */
+@Service
+public class LogArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(LogArchiveService.class);
+
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx.json";
+
+    /** Índice de un segmento: rango (timestamp, id) que contiene y tipos de evento presentes. */
+    record Segment(String file, LocalDateTime from, LocalDateTime to, long lastId, long rows, Set<String> eventTypes) {
+    }
+
+    /** Filtros de /api/logs aplicados a las entradas archivadas (nulos o vacíos no filtran). */
+    public record Filter(String eventType, String username, String targetUsername,
+                         LocalDateTime startDate, LocalDateTime endDate) {
+
+        boolean overlaps(Segment segment) {
+            return (startDate == null || !segment.to().isBefore(startDate))
+                    && (endDate == null || !segment.from().isAfter(endDate))
+                    && (isBlank(eventType) || segment.eventTypes().contains(eventType));
+        }
+
+        boolean matches(LogEntry entry) {
+            return (isBlank(eventType) || eventType.equals(entry.getEventType()))
+                    && (isBlank(username) || username.equals(entry.getUsername()))
+                    && (isBlank(targetUsername) || targetUsername.equals(entry.getTargetUsername()))
+                    && (startDate == null || !entry.getTimestamp().isBefore(startDate))
+                    && (endDate == null || !entry.getTimestamp().isAfter(endDate));
+        }
+
+        private static boolean isBlank(String value) {
+            return value == null || value.isEmpty();
+        }
+    }
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxAgeDays;
+    private final Path archiveDir;
+    private final int segmentRows;
+    private final int deleteBatchSize;
+    private final int fetchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Segmentos válidos en orden cronológico; se sustituye entera tras cada archivado
+    private volatile List<Segment> segments = List.of();
+
+    public LogArchiveService(EntityManager entityManager,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${logs.retention.enabled:false}") boolean enabled,
+                             @Value("${logs.retention.max-age-days:180}") int maxAgeDays,
+                             @Value("${logs.retention.archive-dir:audit-archive}") String archiveDir,
+                             @Value("${logs.retention.segment-rows:100000}") int segmentRows,
+                             @Value("${logs.retention.delete-batch-size:5000}") int deleteBatchSize,
+                             @Value("${logs.export.fetch-size:1000}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxAgeDays = maxAgeDays;
+        this.archiveDir = Paths.get(archiveDir);
+        this.segmentRows = segmentRows;
+        this.deleteBatchSize = deleteBatchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    @PostConstruct
+    void loadSegments() throws IOException {
+        if (!Files.isDirectory(archiveDir)) {
+            return;
+        }
+        List<Segment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            for (Path index : files.filter(path -> path.getFileName().toString().endsWith(INDEX_SUFFIX)).toList()) {
+                loaded.add(objectMapper.readValue(index.toFile(), Segment.class));
+            }
+        }
+        loaded.sort(Comparator.comparing(Segment::to).thenComparingLong(Segment::lastId));
+        segments = List.copyOf(loaded);
+    }
+
+    /**
+     * Archiva y borra las entradas anteriores al horizonte de retención. Cada segmento se escribe en un
+     * fichero temporal, se sincroniza a disco y se renombra; solo entonces se escribe su índice y se
+     * borran de la tabla sus filas, por lotes de {@code logs.retention.delete-batch-size}.
+     * @return número de entradas archivadas en esta ejecución
+     */
+    @Scheduled(cron = "${logs.retention.cron:0 30 3 * * *}")
+    public long archiveExpired() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            Files.createDirectories(archiveDir);
+            Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null) {
+                // Filas de un segmento ya escrito cuyo borrado no llegó a terminar: solo las que contiene
+                // el segmento, no otras de ese rango de fechas que llegaran tarde y no estén archivadas
+                List<Long> archivedIds = new ArrayList<>();
+                readSegment(last, entry -> archivedIds.add(entry.getId()));
+                deleteIds(archivedIds);
+            }
+            LocalDateTime horizon = retentionHorizon();
+            long archived = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                Segment segment = writeSegment(horizon, last, ids);
+                if (segment == null) {
+                    break;
+                }
+                List<Segment> updated = new ArrayList<>(segments);
+                updated.add(segment);
+                segments = List.copyOf(updated);
+                deleteIds(ids);
+                archived += segment.rows();
+                last = segment;
+                if (segment.rows() < segmentRows) {
+                    break;
+                }
+            }
+            if (archived > 0) {
+                log.info("Archived {} log entries older than {} into {}", archived, horizon, archiveDir);
+            }
+            return archived;
+        } catch (IOException e) {
+            log.error("Log retention run failed; rows stay in log_entries until the next run", e);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public LocalDateTime retentionHorizon() {
+        return LocalDateTime.now().minusDays(maxAgeDays);
+    }
+
+    /** true si una consulta desde {@code startDate} alcanza entradas ya archivadas. */
+    public boolean reaches(LocalDateTime startDate) {
+        List<Segment> current = segments;
+        return startDate != null && !current.isEmpty() && !startDate.isAfter(current.get(current.size() - 1).to());
+    }
+
+    /** Número de entradas archivadas que cumplen los filtros. */
+    public long count(Filter filter) {
+        long[] count = {0};
+        scan(filter, entry -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Entradas archivadas que cumplen los filtros, desde la posición {@code from} y como mucho {@code limit}.
+     * @param newestFirst orden descendente por (timestamp, id); si no, ascendente
+     * @param total resultado de {@link #count(Filter)} para los mismos filtros (necesario en orden descendente)
+     */
+    public List<LogEntry> slice(Filter filter, long from, int limit, boolean newestFirst, long total) {
+        // Los segmentos se leen siempre en orden ascendente: en descendente se toma el tramo simétrico
+        long start = newestFirst ? Math.max(0, total - from - limit) : from;
+        long end = newestFirst ? total - from : from + limit;
+        List<LogEntry> result = new ArrayList<>();
+        if (limit <= 0 || end <= start) {
+            return result;
+        }
+        long[] position = {0};
+        scan(filter, entry -> {
+            if (position[0] >= start && position[0] < end) {
+                result.add(entry);
+            }
+            position[0]++;
+        });
+        if (newestFirst) {
+            Collections.reverse(result);
+        }
+        return result;
+    }
+
+    private void scan(Filter filter, Consumer<LogEntry> consumer) {
+        for (Segment segment : segments) {
+            if (filter.overlaps(segment)) {
+                readSegment(segment, entry -> {
+                    if (filter.matches(entry)) {
+                        consumer.accept(entry);
+                    }
+                });
+            }
+        }
+    }
+
+    private void readSegment(Segment segment, Consumer<LogEntry> consumer) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archiveDir.resolve(segment.file())), 64 * 1024),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(objectMapper.readValue(line, LogEntry.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el segmento de auditoría " + segment.file(), e);
+        }
+    }
+
+    // Escribe el siguiente segmento (como mucho segmentRows filas posteriores a previous y anteriores al horizonte)
+    private Segment writeSegment(LocalDateTime horizon, Segment previous, List<Long> ids) throws IOException {
+        Path tmp = Files.createTempFile(archiveDir, "segment-", ".tmp");
+        try {
+            Segment segment = readTransaction.execute(status -> {
+                try {
+                    return writeRows(tmp, horizon, previous, ids);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (segment == null) {
+                return null;
+            }
+            Files.move(tmp, archiveDir.resolve(segment.file()), StandardCopyOption.ATOMIC_MOVE);
+            // El índice se escribe el último: un segmento sin índice se ignora y se vuelve a generar
+            Path indexTmp = Files.createTempFile(archiveDir, "segment-", ".tmp");
+            try (FileOutputStream out = new FileOutputStream(indexTmp.toFile())) {
+                out.write(objectMapper.writeValueAsBytes(segment));
+                out.getChannel().force(true);
+            }
+            Files.move(indexTmp, archiveDir.resolve(segment.file().replace(SEGMENT_SUFFIX, INDEX_SUFFIX)),
+                    StandardCopyOption.ATOMIC_MOVE);
+            return segment;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Segment writeRows(Path tmp, LocalDateTime horizon, Segment previous, List<Long> ids) throws IOException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LogEntry> query = cb.createQuery(LogEntry.class);
+        Root<LogEntry> root = query.from(LogEntry.class);
+        if (previous == null) {
+            query.where(cb.lessThan(root.get("timestamp"), horizon));
+        } else {
+            query.where(cb.lessThan(root.get("timestamp"), horizon),
+                    LogEntrySpecifications.after(previous.to(), previous.lastId()).toPredicate(root, query, cb));
+        }
+        query.orderBy(cb.asc(root.get("timestamp")), cb.asc(root.get("id")));
+
+        LocalDateTime from = null;
+        LogEntry last = null;
+        Set<String> eventTypes = new TreeSet<>();
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             ServerCursorFetch cursor = ServerCursorFetch.enable(entityManager);
+             Stream<LogEntry> rows = entityManager.createQuery(query)
+                     .setMaxResults(segmentRows)
+                     .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                     .setHint(HibernateHints.HINT_READ_ONLY, true)
+                     .getResultStream()) {
+            GZIPOutputStream gzip = new GZIPOutputStream(file, 64 * 1024);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+            Iterator<LogEntry> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                LogEntry entry = iterator.next();
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.write('\n');
+                if (from == null) {
+                    from = entry.getTimestamp();
+                }
+                eventTypes.add(entry.getEventType());
+                ids.add(entry.getId());
+                last = entry;
+                entityManager.detach(entry);
+            }
+            writer.flush();
+            gzip.finish();
+            file.getChannel().force(true);
+        }
+        if (last == null) {
+            return null;
+        }
+        String name = "segment-" + last.getTimestamp().toLocalDate() + "-" + last.getId() + SEGMENT_SUFFIX;
+        return new Segment(name, from, last.getTimestamp(), last.getId(), ids.size(), eventTypes);
+    }
+
+    private void deleteIds(List<Long> ids) {
+        // Cada lote se confirma por separado: no se mantiene un bloqueo largo sobre log_entries
+        for (int i = 0; i < ids.size(); i += deleteBatchSize) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + deleteBatchSize));
+            String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(","));
+            jdbcTemplate.update("DELETE FROM log_entries WHERE id IN (" + placeholders + ")", chunk.toArray());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import com.usersystem.sistemausuariosbackend.repository.LogEntrySpecifications;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difusión en proceso de las entradas de log recién guardadas a los clientes SSE de /api/logs/stream.
+ * Cada suscriptor tiene su propia cola acotada y un envío en un hilo virtual: publish() nunca
+ * bloquea al escritor de auditoría, y un cliente cuya cola se llena se expulsa (debe reconectar).
+ * Las últimas {@code logs.stream.replay-size} entradas se guardan para reanudar por Last-Event-ID.
+ */
+@Component
+public class LogEventBroadcaster implements AuditEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LogEventBroadcaster.class);
+
+    // Marca en la cola de un suscriptor: enviar un comentario de keep-alive
+    private static final LogEntry HEARTBEAT = new LogEntry();
+
+    private final LogEntryRepository logEntryRepository;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final int replaySize;
+    private final long emitterTimeoutMs;
+    private final ArrayDeque<LogEntry> recent;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("log-stream-", 0).factory());
+    private final Counter evicted;
+
+    public LogEventBroadcaster(LogEntryRepository logEntryRepository,
+                               @Value("${logs.stream.queue-capacity:256}") int queueCapacity,
+                               @Value("${logs.stream.max-subscribers:100}") int maxSubscribers,
+                               @Value("${logs.stream.replay-size:1000}") int replaySize,
+                               @Value("${logs.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                               MeterRegistry meterRegistry) {
+        this.logEntryRepository = logEntryRepository;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.replaySize = replaySize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.recent = new ArrayDeque<>(replaySize);
+        Gauge.builder("audit.stream.subscribers", subscribers, List::size).register(meterRegistry);
+        this.evicted = Counter.builder("audit.stream.evicted").register(meterRegistry);
+    }
+
+    @Override
+    public void onPersisted(List<LogEntry> entries) {
+        publish(entries);
+    }
+
+    /**
+     * Reparte entradas ya guardadas (con ID) entre los suscriptores cuyos filtros coinciden.
+     * Solo encola: el envío ocurre en el hilo de cada suscriptor.
+     */
+    public void publish(List<LogEntry> entries) {
+        synchronized (recent) {
+            for (LogEntry entry : entries) {
+                if (recent.size() == replaySize) {
+                    recent.pollFirst();
+                }
+                recent.addLast(entry);
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.matches(entry)) {
+                        subscriber.enqueue(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Registra un nuevo cliente.
+     * @param lastEventId ID del último evento recibido (cabecera Last-Event-ID), o nulo
+     * @return El emisor SSE, o nulo si se alcanzó el máximo de suscriptores
+     */
+    public SseEmitter subscribe(String eventType, String username, String result, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, eventType, username, result);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscriber.close(false));
+        emitter.onError(e -> subscriber.close(false));
+
+        List<LogEntry> replay = new ArrayList<>();
+        boolean foundInMemory = false;
+        // Instantánea del historial y alta en la misma sección crítica: sin huecos ni duplicados
+        synchronized (recent) {
+            if (lastEventId != null) {
+                for (LogEntry entry : recent) {
+                    if (foundInMemory && subscriber.matches(entry)) {
+                        replay.add(entry);
+                    } else if (entry.getId() != null && entry.getId().equals(lastEventId)) {
+                        foundInMemory = true;
+                    }
+                }
+                if (!foundInMemory) {
+                    replay.clear();
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        boolean fromDatabase = lastEventId != null && !foundInMemory;
+        // El hilo del suscriptor envía primero lo pendiente y luego su cola en vivo
+        senders.execute(() -> subscriber.replay(fromDatabase ? replayFromDatabase(subscriber, lastEventId) : replay,
+                fromDatabase));
+        return emitter;
+    }
+
+    // El último evento ya no está en memoria (reinicio u otro nodo): se busca en la BD por (timestamp, id)
+    private List<LogEntry> replayFromDatabase(Subscriber subscriber, long lastEventId) {
+        return logEntryRepository.findById(lastEventId)
+                .map(last -> {
+                    Specification<LogEntry> spec = LogEntrySpecifications
+                            .filtered(subscriber.eventType, subscriber.username, null, null, null)
+                            .and(LogEntrySpecifications.hasResult(subscriber.result))
+                            .and(LogEntrySpecifications.after(last.getTimestamp(), last.getId()));
+                    return logEntryRepository.findBy(spec, query -> query
+                            .sortBy(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("id")))
+                            .limit(replaySize)
+                            .all());
+                })
+                .orElse(List.of());
+    }
+
+    // Mantiene viva la conexión y detecta clientes desconectados aunque no haya eventos
+    @Scheduled(fixedDelayString = "${logs.stream.heartbeat-ms:15000}")
+    void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(HEARTBEAT);
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.close(true));
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String eventType;
+        private final String username;
+        private final String result;
+        private final BlockingQueue<LogEntry> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // true mientras un hilo está enviando (empieza en true hasta terminar la reanudación)
+        private final AtomicBoolean draining = new AtomicBoolean(true);
+        private Set<Long> replayedIds = Set.of();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, String eventType, String username, String result) {
+            this.emitter = emitter;
+            this.eventType = blankToNull(eventType);
+            this.username = blankToNull(username);
+            this.result = blankToNull(result);
+        }
+
+        boolean matches(LogEntry entry) {
+            return (eventType == null || eventType.equals(entry.getEventType()))
+                    && (username == null || username.equals(entry.getUsername()))
+                    && (result == null || result.equals(entry.getResult()));
+        }
+
+        void enqueue(LogEntry entry) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(entry)) {
+                // Consumidor lento: se expulsa en lugar de frenar a los demás o acumular memoria
+                evicted.increment();
+                log.info("Evicting slow log stream subscriber ({} pending events)", queue.size());
+                close(true);
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void replay(List<LogEntry> entries, boolean deduplicate) {
+            try {
+                for (LogEntry entry : entries) {
+                    send(entry);
+                }
+                if (deduplicate) {
+                    // Lo leído de la BD puede haber llegado también en vivo durante la consulta
+                    Set<Long> ids = new HashSet<>();
+                    entries.forEach(entry -> ids.add(entry.getId()));
+                    replayedIds = ids;
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(false);
+            } finally {
+                draining.set(false);
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                LogEntry entry;
+                while (!closed && (entry = queue.poll()) != null) {
+                    if (entry == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else if (!replayedIds.contains(entry.getId())) {
+                        send(entry);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(false);
+            } finally {
+                draining.set(false);
+            }
+            scheduleDrain();
+        }
+
+        private void send(LogEntry entry) throws IOException {
+            emitter.send(SseEmitter.event().id(String.valueOf(entry.getId())).name("log").data(entry));
+        }
+
+        void close(boolean complete) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            if (complete) {
+                // complete() puede esperar a un envío bloqueado: nunca en el hilo que publica
+                senders.execute(emitter::complete);
+            }
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+// Formatos de exportación de logs, con su tipo de contenido y extensión de archivo
+public enum LogExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    LogExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
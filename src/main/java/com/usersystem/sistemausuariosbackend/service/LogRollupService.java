@@ -0,0 +1,247 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.model.LogRollupId;
+import com.usersystem.sistemausuariosbackend.model.RollupGranularity;
+import com.usersystem.sistemausuariosbackend.payload.LogStatsPoint;
+import com.usersystem.sistemausuariosbackend.repository.LogRollupRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Mantiene log_rollups de forma incremental: cuenta en memoria, por minuto, tipo de evento y resultado,
+ * las entradas que se van guardando y cada {@code logs.rollup.flush-ms} suma esos contadores a las filas
+ * de minuto, hora y día con un upsert. Las sumas son aditivas, así que varios nodos pueden volcar a la vez.
+ */
+@Service
+public class LogRollupService implements AuditEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LogRollupService.class);
+
+    static final String UPSERT_SQL = "INSERT INTO log_rollups (granularity, bucket_start, event_type, result, event_count) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE event_count = event_count + VALUES(event_count)";
+
+    private record MinuteKey(LocalDateTime minute, String eventType, String result) {
+    }
+
+    private final LogRollupRepository logRollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchSize;
+    private final int maxAgeDays;
+    private final ConcurrentHashMap<MinuteKey, Long> pending = new ConcurrentHashMap<>();
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-rollup-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    public LogRollupService(LogRollupRepository logRollupRepository,
+                            JdbcTemplate jdbcTemplate,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${logs.export.fetch-size:1000}") int fetchSize,
+                            @Value("${logs.retention.max-age-days:180}") int maxAgeDays) {
+        this.logRollupRepository = logRollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fetchSize = fetchSize;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    @Override
+    public void onPersisted(List<LogEntry> entries) {
+        for (LogEntry entry : entries) {
+            pending.merge(new MinuteKey(RollupGranularity.MINUTE.bucketOf(entry.getTimestamp()),
+                    entry.getEventType(), entry.getResult()), eventsRepresented(entry), Long::sum);
+        }
+    }
+
+    // Eventos reales que representa una fila: repeticiones agrupadas y, si se muestreó, la tasa de muestreo
+    static long eventsRepresented(LogEntry entry) {
+        long occurrences = Math.max(entry.getOccurrenceCount(), 1);
+        return entry.getSampleRate() == null ? occurrences : occurrences * entry.getSampleRate();
+    }
+
+    /**
+     * Vuelca los contadores pendientes en una sola transacción. Si falla, se devuelven a memoria para el siguiente intento.
+     */
+    @Scheduled(fixedDelayString = "${logs.rollup.flush-ms:10000}")
+    public synchronized void flush() {
+        Map<MinuteKey, Long> drained = new HashMap<>();
+        // remove() es atómico respecto a merge(): ningún incremento se pierde entre la lectura y el borrado
+        for (MinuteKey key : pending.keySet()) {
+            Long count = pending.remove(key);
+            if (count != null) {
+                drained.put(key, count);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        Map<LogRollupId, Long> rows = new HashMap<>();
+        drained.forEach((key, count) -> {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                rows.merge(new LogRollupId(granularity, granularity.bucketOf(key.minute()), key.eventType(), key.result()),
+                        count, Long::sum);
+            }
+        });
+        try {
+            // Todos los trozos del batchUpdate en una transacción: si falla, no queda ninguno sumado
+            // y la devolución a memoria no cuenta dos veces lo ya escrito
+            transactionTemplate.executeWithoutResult(status -> writeRows(UPSERT_SQL, rows));
+        } catch (RuntimeException e) {
+            drained.forEach((key, count) -> pending.merge(key, count, Long::sum));
+            log.error("Could not flush {} audit rollup rows: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Serie temporal de conteos, leída solo de log_rollups (no incluye lo pendiente de volcar en memoria).
+     */
+    public List<LogStatsPoint> getStats(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                        String eventType, String result) {
+        return logRollupRepository.findSeries(granularity, granularity.bucketOf(from), to,
+                blankToNull(eventType), blankToNull(result));
+    }
+
+    /**
+     * Reconstruye en segundo plano los rollups de los días completos [from, to) a partir de log_entries,
+     * un día por transacción. Reemplaza lo que hubiera para esos días, así que puede repetirse.
+     * Solo admite días posteriores al horizonte de retención: las entradas anteriores pueden estar ya en
+     * los segmentos de archivo (en otro nodo) y reconstruir solo con la tabla dejaría conteos incompletos.
+     * @return false si ya hay una reconstrucción en curso
+     * @throws IllegalArgumentException si el rango empieza antes de {@link #firstBackfillDay()}
+     */
+    public boolean startBackfill(LocalDate from, LocalDate to) {
+        if (from.isBefore(firstBackfillDay())) {
+            throw new IllegalArgumentException("Solo se pueden reconstruir días a partir del "
+                    + firstBackfillDay() + ": los anteriores pueden estar archivados");
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillExecutor.execute(() -> {
+            try {
+                backfill(from, to);
+            } catch (RuntimeException e) {
+                log.error("Audit rollup backfill {} - {} failed: {}", from, to, e.getMessage());
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    // Primer día completo cuyas entradas siguen todas en log_entries (posterior al horizonte de retención)
+    public LocalDate firstBackfillDay() {
+        return LocalDateTime.now().minusDays(maxAgeDays).toLocalDate().plusDays(1);
+    }
+
+    void backfill(LocalDate from, LocalDate to) {
+        flush();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            if (day.isBefore(firstBackfillDay())) {
+                // El horizonte avanzó mientras tanto (el archivado puede haber empezado con este día)
+                log.warn("Audit rollups for {} not rebuilt: the day may already be archived", day);
+                continue;
+            }
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = dayStart.plusDays(1);
+            long rows = rebuildDay(dayStart, dayEnd);
+            log.info("Audit rollups rebuilt for {} ({} rows)", day, rows);
+        }
+    }
+
+    // Con el cerrojo de flush(): ningún volcado escribe contadores de este día entre el borrado y la reescritura
+    private synchronized long rebuildDay(LocalDateTime dayStart, LocalDateTime dayEnd) {
+        Map<MinuteKey, Long> taken = new HashMap<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<LogRollupId, Long> counts = new HashMap<>();
+                // Solo las columnas necesarias, leídas en streaming por el índice de timestamp
+                try (ServerCursorFetch cursor = ServerCursorFetch.enable(entityManager);
+                     Stream<Object[]> stream = entityManager.createQuery(
+                                "SELECT e.timestamp, e.eventType, e.result, e.occurrenceCount * COALESCE(e.sampleRate, 1) "
+                                        + "FROM LogEntry e WHERE e.timestamp >= :from AND e.timestamp < :to", Object[].class)
+                        .setParameter("from", dayStart)
+                        .setParameter("to", dayEnd)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    stream.forEach(row -> {
+                        LocalDateTime timestamp = (LocalDateTime) row[0];
+                        for (RollupGranularity granularity : RollupGranularity.values()) {
+                            counts.merge(new LogRollupId(granularity, granularity.bucketOf(timestamp),
+                                    (String) row[1], (String) row[2]), ((Number) row[3]).longValue(), Long::sum);
+                        }
+                    });
+                }
+                // Los contadores en memoria de este día son de filas que la lectura ya ha contado:
+                // volcarlos después de reescribir el día las sumaría dos veces
+                for (MinuteKey key : pending.keySet()) {
+                    if (!key.minute().isBefore(dayStart) && key.minute().isBefore(dayEnd)) {
+                        Long count = pending.remove(key);
+                        if (count != null) {
+                            taken.put(key, count);
+                        }
+                    }
+                }
+                logRollupRepository.deleteBuckets(dayStart, dayEnd);
+                writeRows(UPSERT_SQL, counts);
+                return (long) counts.size();
+            });
+        } catch (RuntimeException e) {
+            // El rollback deja los buckets como estaban: los contadores vuelven a memoria
+            taken.forEach((key, count) -> pending.merge(key, count, Long::sum));
+            throw e;
+        }
+    }
+
+    private void writeRows(String sql, Map<LogRollupId, Long> rows) {
+        List<Map.Entry<LogRollupId, Long>> batch = new ArrayList<>(rows.entrySet());
+        jdbcTemplate.batchUpdate(sql, batch, 500, (ps, row) -> {
+            LogRollupId id = row.getKey();
+            ps.setString(1, id.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(id.getBucketStart()));
+            ps.setString(3, id.getEventType());
+            ps.setString(4, id.getResult());
+            ps.setLong(5, row.getValue());
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfillExecutor.shutdownNow();
+        flush();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
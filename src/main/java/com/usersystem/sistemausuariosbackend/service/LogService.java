@@ -1,20 +1,101 @@
 package com.usersystem.sistemausuariosbackend.service;
 
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
 import com.usersystem.sistemausuariosbackend.model.LogEntry;
 import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import com.usersystem.sistemausuariosbackend.repository.LogEntrySpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersystem.sistemausuariosbackend.payload.LogCountEstimate;
+import com.usersystem.sistemausuariosbackend.payload.LogCursorPage;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.criteria.JpaPath;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.criteria.JpaSubQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class LogService {
 
+    private static final Logger log = LoggerFactory.getLogger(LogService.class);
+
+    private static final String CSV_HEADER =
+            "id,timestamp,eventType,username,userId,targetUsername,targetUserId,description,result,ipAddress,"
+                    + "occurrenceCount,lastTimestamp,sampleRate\n";
+
     private final LogEntryRepository logEntryRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditWritePolicies writePolicies;
+    private final boolean asyncEnabled;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final int countCap;
+    private final ObjectMapper objectMapper;
+    private final int exportFetchSize;
+    private final LogArchiveService logArchiveService;
+    private final AuditJournal auditJournal;
+    private final AuditCodeRegistry auditCodeRegistry;
 
-    public LogService(LogEntryRepository logEntryRepository) {
+    // Orden de la paginación por cursor: el mismo que recorren los índices (..., timestamp, id)
+    private static final Sort CURSOR_SORT = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+
+    public LogService(LogEntryRepository logEntryRepository,
+                      AuditLogWriter auditLogWriter,
+                      AuditWritePolicies writePolicies,
+                      @Value("${audit.async.enabled:true}") boolean asyncEnabled,
+                      EntityManager entityManager,
+                      JdbcTemplate jdbcTemplate,
+                      @Value("${logs.count.cap:100000}") int countCap,
+                      ObjectMapper objectMapper,
+                      @Value("${logs.export.fetch-size:1000}") int exportFetchSize,
+                      LogArchiveService logArchiveService,
+                      AuditJournal auditJournal,
+                      AuditCodeRegistry auditCodeRegistry) {
         this.logEntryRepository = logEntryRepository;
+        this.auditLogWriter = auditLogWriter;
+        this.writePolicies = writePolicies;
+        this.asyncEnabled = asyncEnabled;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.countCap = countCap;
+        this.objectMapper = objectMapper;
+        this.exportFetchSize = exportFetchSize;
+        this.logArchiveService = logArchiveService;
+        this.auditJournal = auditJournal;
+        this.auditCodeRegistry = auditCodeRegistry;
     }
 
     /**
@@ -27,26 +108,85 @@ public class LogService {
      * @param description Descripción detallada del evento
      * @param result Resultado de la operación (SUCCESS/FAILURE)
      * @param ipAddress Dirección IP de la solicitud
-     * @return La LogEntry guardada
+     * @return La LogEntry registrada (en modo asíncrono aún sin ID: se inserta en lote más tarde, pasando
+     *         antes por el journal local si está activo, así que sobrevive a una base de datos lenta o caída).
+     *         Según la política de su tipo de evento (AuditWritePolicies) puede no llegar a escribirse
+     *         (muestreo) o escribirse agrupada con sus repeticiones al cerrar la ventana.
      */
     public LogEntry log(String eventType, String username, Long userId,
                         String targetUsername, Long targetUserId,
                         String description, String result, String ipAddress) {
+        return log(eventType, username, userId, targetUsername, targetUserId,
+                description == null ? AuditMessage.FREE_TEXT.with() : AuditMessage.FREE_TEXT.with(description),
+                result, ipAddress);
+    }
+
+    /**
+     * Igual que {@link #log(String, String, Long, String, Long, String, String, String)}, pero con la
+     * descripción como plantilla + parámetros (formato compacto; el texto se compone al leer).
+     * @throws IllegalArgumentException si el tipo de evento o el resultado no son nombres válidos (los nuevos
+     *         reciben código en AuditCodeRegistry)
+     */
+    public LogEntry log(String eventType, String username, Long userId,
+                        String targetUsername, Long targetUserId,
+                        AuditMessage.AuditDescription description, String result, String ipAddress) {
+        // Se registra (o rechaza) aquí: un código desconocido en el escritor por lotes haría fallar el lote entero
+        auditCodeRegistry.eventCode(eventType);
+        auditCodeRegistry.resultCode(result);
         LogEntry logEntry = new LogEntry();
         // El timestamp se establece automáticamente en el constructor de LogEntry
         logEntry.setEventType(eventType);
-        logEntry.setUsername(username);
+        // Un nombre más largo que la columna (p. ej. el email de un login fallido) haría fallar el lote entero
+        logEntry.setUsername(truncate(username, LogEntry.USERNAME_LENGTH));
         logEntry.setUserId(userId);
-        logEntry.setTargetUsername(targetUsername);
+        logEntry.setTargetUsername(truncate(targetUsername, LogEntry.USERNAME_LENGTH));
         logEntry.setTargetUserId(targetUserId);
-        logEntry.setDescription(description);
+        logEntry.applyDescription(description);
         logEntry.setResult(result);
         logEntry.setIpAddress(ipAddress);
-        return logEntryRepository.save(logEntry);
+        if (!writePolicies.admit(logEntry)) {
+            return logEntry;
+        }
+        return write(logEntry);
+    }
+
+    private LogEntry write(LogEntry logEntry) {
+        if (!asyncEnabled) {
+            LogEntry saved = logEntryRepository.save(logEntry);
+            // Mismo aviso que las escrituras por lotes: el fallo de un listener no afecta a los demás
+            auditLogWriter.notifyListeners(List.of(saved));
+            return saved;
+        }
+        if (auditJournal.isEnabled()) {
+            try {
+                auditJournal.append(logEntry);
+                return logEntry;
+            } catch (IOException e) {
+                log.error("Could not append audit entry to the local journal, writing it directly: {}", e.getMessage());
+            }
+        }
+        auditLogWriter.submit(logEntry);
+        return logEntry;
+    }
+
+    // Escribe las filas agrupadas (política COALESCE) cuya ventana ya se cerró
+    @Scheduled(fixedDelayString = "${audit.coalesce.check-ms:1000}")
+    void flushCoalesced() {
+        writePolicies.drainClosedWindows(LocalDateTime.now()).forEach(this::write);
+    }
+
+    // Se destruye antes que AuditLogWriter (depende de él): lo agrupado aún llega a escribirse
+    @PreDestroy
+    void shutdown() {
+        writePolicies.drainClosedWindows(LocalDateTime.MAX).forEach(this::write);
     }
 
     /**
      * Obtiene una página de entradas de log, con opciones de filtrado.
+     * Se aplican todos los filtros no nulos a la vez (ver LogEntrySpecifications).
+     * Si la fecha de inicio llega a entradas ya archivadas (LogArchiveService), la página combina la
+     * tabla y el archivo: las archivadas son siempre más antiguas que las de la tabla y se colocan
+     * según el orden por timestamp (detrás de las de la tabla en cualquier otro orden).
      * @param eventType Filtro por tipo de evento (puede ser nulo)
      * @param username Filtro por usuario que realizó la acción (puede ser nulo)
      * @param targetUsername Filtro por usuario afectado (puede ser nulo)
@@ -58,24 +198,207 @@ public class LogService {
     public Page<LogEntry> getLogs(String eventType, String username, String targetUsername,
                                   LocalDateTime startDate, LocalDateTime endDate,
                                   Pageable pageable) {
-        // Implementa la lógica de filtrado aquí.
-        // Esto puede volverse complejo con muchas combinaciones.
-        // Para simplificar, aquí hay un ejemplo básico, pero podrías usar
-        // Specifications de JPA o Querydsl para filtros más dinámicos.
-
-        if (eventType != null && username != null && startDate != null && endDate != null) {
-            return logEntryRepository.findByEventTypeAndUsernameAndTimestampBetween(
-                    eventType, username, startDate, endDate, pageable);
-        } else if (eventType != null) {
-            return logEntryRepository.findByEventType(eventType, pageable);
-        } else if (username != null) {
-            return logEntryRepository.findByUsername(username, pageable);
-        } else if (targetUsername != null) {
-            return logEntryRepository.findByTargetUsername(targetUsername, pageable);
-        } else if (startDate != null && endDate != null) {
-            return logEntryRepository.findByTimestampBetween(startDate, endDate, pageable);
+        Specification<LogEntry> spec = LogEntrySpecifications.filtered(eventType, username, targetUsername, startDate, endDate);
+        if (!logArchiveService.reaches(startDate)) {
+            return logEntryRepository.findAll(spec, pageable);
+        }
+        LogArchiveService.Filter filter = new LogArchiveService.Filter(eventType, username, targetUsername, startDate, endDate);
+        long archived = logArchiveService.count(filter);
+        Sort.Order timestampOrder = pageable.getSort().getOrderFor("timestamp");
+        boolean archiveFirst = timestampOrder != null && timestampOrder.isAscending();
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+
+        List<LogEntry> content = new ArrayList<>(size);
+        long hotTotal;
+        if (archiveFirst) {
+            hotTotal = logEntryRepository.count(spec);
+            if (offset < archived) {
+                content.addAll(logArchiveService.slice(filter, offset, size, false, archived));
+            }
+            content.addAll(hotSlice(spec, pageable.getSort(), Math.max(0, offset - archived), size - content.size()));
         } else {
-            return logEntryRepository.findAll(pageable);
+            Page<LogEntry> hot = logEntryRepository.findAll(spec, pageable);
+            hotTotal = hot.getTotalElements();
+            content.addAll(hot.getContent());
+            content.addAll(logArchiveService.slice(filter, Math.max(0, offset - hotTotal), size - content.size(), true, archived));
+        }
+        return new PageImpl<>(content, pageable, hotTotal + archived);
+    }
+
+    // Entradas de la tabla desde una posición arbitraria (no múltiplo del tamaño de página)
+    private List<LogEntry> hotSlice(Specification<LogEntry> spec, Sort sort, long offset, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LogEntry> query = cb.createQuery(LogEntry.class);
+        Root<LogEntry> root = query.from(LogEntry.class);
+        applyFilters(spec, root, query, cb);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query).setFirstResult(Math.toIntExact(offset)).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Obtiene entradas de log por cursor (keyset), de la más reciente a la más antigua.
+     * No ejecuta COUNT ni OFFSET: el coste de cada página es el mismo sea cual sea su profundidad.
+     * @param cursor Cursor opaco devuelto en la página anterior (nulo para la primera página)
+     * @param size Número de entradas por página
+     * @return La página con el cursor de la siguiente (nulo si no hay más)
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    @Transactional(readOnly = true)
+    public LogCursorPage getLogsByCursor(String eventType, String username, String targetUsername,
+                                         LocalDateTime startDate, LocalDateTime endDate,
+                                         String cursor, int size) {
+        Specification<LogEntry> spec = LogEntrySpecifications.filtered(eventType, username, targetUsername, startDate, endDate);
+        if (cursor != null && !cursor.isEmpty()) {
+            LogCursor position = LogCursor.decode(cursor);
+            spec = spec.and(LogEntrySpecifications.before(position.timestamp(), position.id()));
+        }
+        // Se pide una entrada de más para saber si existe una página siguiente
+        List<LogEntry> rows = logEntryRepository.findBy(spec, query -> query.sortBy(CURSOR_SORT).limit(size + 1).all());
+        boolean hasNext = rows.size() > size;
+        List<LogEntry> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            LogEntry last = content.get(content.size() - 1);
+            nextCursor = new LogCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        return new LogCursorPage(content, nextCursor, hasNext, size);
+    }
+
+    /**
+     * Total aproximado de entradas para los filtros dados, pensado para pedirse aparte de las páginas.
+     * Sin filtros usa la estimación de filas de InnoDB (information_schema); con filtros cuenta
+     * como mucho {@code logs.count.cap} filas sobre el índice y marca el resultado como inexacto si llega al tope.
+     */
+    @Transactional(readOnly = true)
+    public LogCountEstimate countLogs(String eventType, String username, String targetUsername,
+                                      LocalDateTime startDate, LocalDateTime endDate) {
+        boolean unfiltered = isBlank(eventType) && isBlank(username) && isBlank(targetUsername)
+                && startDate == null && endDate == null;
+        if (unfiltered) {
+            Long estimate = jdbcTemplate.query(
+                    "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'log_entries'",
+                    rs -> rs.next() ? rs.getLong(1) : null);
+            if (estimate != null) {
+                return new LogCountEstimate(estimate, false);
+            }
+        }
+        Specification<LogEntry> spec = LogEntrySpecifications.filtered(eventType, username, targetUsername, startDate, endDate);
+        // SELECT COUNT(*) FROM (SELECT id FROM log_entries WHERE ... LIMIT cap + 1): se cuenta en la base
+        // de datos sin traer los ids, y el LIMIT acota el recorrido del índice
+        HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        JpaCriteriaQuery<Long> query = cb.createQuery(Long.class);
+        JpaSubQuery<Long> capped = query.subquery(Long.class);
+        JpaRoot<LogEntry> root = capped.from(LogEntry.class);
+        JpaPath<Long> id = root.get("id");
+        id.alias("id"); // Hibernate exige alias en las columnas de una subconsulta del FROM
+        capped.select(id);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            capped.where(predicate);
+        }
+        capped.fetch(countCap + 1);
+        query.from(capped);
+        query.select(cb.count());
+        long counted = entityManager.createQuery(query).getSingleResult();
+        return counted > countCap ? new LogCountEstimate(countCap, false) : new LogCountEstimate(counted, true);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * Escribe en {@code out} todas las entradas que cumplen los filtros, en orden cronológico,
+     * leyendo de un cursor del servidor ({@link ServerCursorFetch}, fetch size {@code logs.export.fetch-size}) y desacoplando
+     * cada entidad tras escribirla: la memoria usada no depende del número de filas.
+     * Si el cliente se desconecta, la escritura falla con IOException y la consulta se cierra.
+     */
+    @Transactional(readOnly = true)
+    public long exportLogs(String eventType, String username, String targetUsername,
+                           LocalDateTime startDate, LocalDateTime endDate,
+                           LogExportFormat format, OutputStream out) throws IOException {
+        Specification<LogEntry> spec = LogEntrySpecifications.filtered(eventType, username, targetUsername, startDate, endDate);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LogEntry> query = cb.createQuery(LogEntry.class);
+        Root<LogEntry> root = query.from(LogEntry.class);
+        applyFilters(spec, root, query, cb);
+        query.orderBy(cb.asc(root.get("timestamp")), cb.asc(root.get("id")));
+
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (ServerCursorFetch cursor = ServerCursorFetch.enable(entityManager);
+             Stream<LogEntry> stream = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            if (format == LogExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            Iterator<LogEntry> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Exportación de logs cancelada");
+                }
+                LogEntry entry = iterator.next();
+                if (format == LogExportFormat.CSV) {
+                    writeCsvRow(writer, entry);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.write('\n');
+                }
+                entityManager.detach(entry);
+                rows++;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.info("Exportación de logs interrumpida tras {} filas: {}", rows, e.getMessage());
+            throw e;
+        }
+        return rows;
+    }
+
+    private static void applyFilters(Specification<LogEntry> spec, Root<LogEntry> root,
+                                     CriteriaQuery<?> query, CriteriaBuilder cb) {
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, LogEntry entry) throws IOException {
+        writer.write(String.valueOf(entry.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(entry.getTimestamp()));
+        for (Object value : new Object[]{entry.getEventType(), entry.getUsername(), entry.getUserId(),
+                entry.getTargetUsername(), entry.getTargetUserId(), entry.getDescription(),
+                entry.getResult(), entry.getIpAddress(), entry.getOccurrenceCount(), entry.getLastTimestamp(),
+                entry.getSampleRate()}) {
+            writer.write(',');
+            writer.write(csv(value));
+        }
+        writer.write('\n');
+    }
+
+    // Entrecomilla los campos con separadores y neutraliza fórmulas al abrir el CSV en una hoja de cálculo
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
         }
+        return text;
     }
-}
\ No newline at end of file
+}
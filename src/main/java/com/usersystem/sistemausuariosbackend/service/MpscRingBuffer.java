@@ -0,0 +1,79 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer acotado sin locks para muchos productores y un único consumidor.
+ * Los productores reservan posición con CAS sobre {@code tail}; el consumidor
+ * avanza {@code head} y libera los huecos que ya ha leído.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final int capacity;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity) {
+        // Potencia de dos para calcular el índice con una máscara
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Encola el elemento si hay espacio.
+     * @return false si el buffer está lleno.
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long currentTail = tail.get();
+            if (currentTail - head.get() >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(currentTail, currentTail + 1)) {
+                slots.lazySet((int) (currentTail & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Extrae hasta {@code max} elementos en orden. Solo debe llamarlo el hilo consumidor.
+     * Se detiene en el primer hueco reservado pero aún no publicado por su productor.
+     * @return El número de elementos añadidos a {@code target}.
+     */
+    public int drainTo(List<? super E> target, int max) {
+        long currentHead = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (currentHead & mask);
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            target.add(element);
+            currentHead++;
+            drained++;
+        }
+        head.lazySet(currentHead);
+        return drained;
+    }
+
+    // Aproximado: solo sirve para métricas y para decidir si despertar al consumidor
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,132 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.exception.InvalidRefreshTokenException;
+import com.usersystem.sistemausuariosbackend.model.RefreshToken;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.TokenRefreshResponse;
+import com.usersystem.sistemausuariosbackend.repository.RefreshTokenRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.security.AuthenticatedUser;
+import com.usersystem.sistemausuariosbackend.security.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Emite y rota refresh tokens. Renovar el access token no pasa por el
+ * AuthenticationManager ni por BCrypt: solo un SHA-256 y una búsqueda por índice.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final long refreshExpiration; // En milisegundos
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               JwtUtil jwtUtil,
+                               @Value("${jwt.refresh-expiration}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    /**
+     * Crea un nuevo refresh token para el usuario.
+     * @param userId El ID del usuario autenticado.
+     * @return El valor en claro del token (solo se entrega una vez al cliente).
+     */
+    @Transactional
+    public String issue(Long userId) {
+        byte[] randomBytes = new byte[32];
+        secureRandom.nextBytes(randomBytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUserId(userId);
+        refreshToken.setCreatedAt(LocalDateTime.now());
+        refreshToken.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    /**
+     * Consume un refresh token y devuelve un access token nuevo junto con un refresh token nuevo.
+     * Si se presenta un token ya rotado se asume robo y se revocan todos los del usuario.
+     * @param rawToken El refresh token enviado por el cliente.
+     * @return El nuevo par de tokens.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public TokenRefreshResponse rotate(String rawToken) {
+        String tokenHash = hash(rawToken);
+        RefreshToken current = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Refresh token inválido."));
+
+        if (current.isRevoked()) {
+            log.warn("Reuse of rotated refresh token detected for user id {}. Revoking all its tokens.", current.getUserId());
+            refreshTokenRepository.revokeAllByUserId(current.getUserId());
+            throw new InvalidRefreshTokenException("Refresh token revocado.");
+        }
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRefreshTokenException("Refresh token expirado.");
+        }
+        // Si otra petición lo rotó en paralelo, esta pierde la carrera
+        if (refreshTokenRepository.revokeByTokenHash(tokenHash) == 0) {
+            throw new InvalidRefreshTokenException("Refresh token ya utilizado.");
+        }
+
+        User user = userRepository.findById(current.getUserId())
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Usuario inexistente o deshabilitado."));
+
+        String accessToken = jwtUtil.generateToken(AuthenticatedUser.fromUser(user));
+        return new TokenRefreshResponse(accessToken, issue(user.getId()), "Bearer");
+    }
+
+    // Cierra la sesión asociada al refresh token (idempotente)
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.revokeByTokenHash(hash(rawToken));
+    }
+
+    // Revoca todas las sesiones del usuario (p. ej. al cambiar o restablecer la contraseña)
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    // Limpieza diaria de tokens expirados
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 0 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("Purged {} expired refresh tokens", deleted);
+    }
+
+    static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
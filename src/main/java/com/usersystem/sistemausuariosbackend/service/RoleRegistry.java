@@ -0,0 +1,123 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Todos los roles en memoria, por nombre y por id. Son pocos y casi nunca cambian, así que se cargan
+ * con una sola consulta y las búsquedas no vuelven a la base de datos.
+ * Quien cree, renombre o borre un rol debe llamar a {@link #refresh()}; además se recargan
+ * periódicamente ({@code roles.registry.refresh-ms}) por si otro nodo los cambia.
+ * Un nombre o id desconocido fuerza una recarga antes de responder que no existe, y se recuerda como
+ * inexistente hasta la siguiente recarga periódica o {@link #refresh()}: repetirlo no vuelve a consultar.
+ * Caben como mucho {@value #MAX_MISSES} desconocidos por recarga; a partir de ahí los nuevos se responden
+ * como inexistentes sin consultar, para que nombres inventados no provoquen una recarga cada uno.
+ * Los nombres no distinguen mayúsculas, igual que la collation _ci de MySQL con la que se buscaban antes.
+ * Las instancias devueltas son copias: modificarlas no altera el registro.
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleRegistry.class);
+
+    static final int MAX_MISSES = 1000;
+
+    // Los desconocidos se comparten entre las recargas por fallo y se vacían en cada refresh()
+    private record Snapshot(List<Role> all, Map<String, Role> byName, Map<Long, Role> byId,
+                            Set<String> missingNames, Set<Long> missingIds) {
+    }
+
+    private final RoleRepository roleRepository;
+    private volatile Snapshot snapshot;
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    public List<Role> findAll() {
+        return current().all().stream().map(RoleRegistry::copy).toList();
+    }
+
+    public Optional<Role> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        return lookup(nameKey(name), Snapshot::byName, Snapshot::missingNames);
+    }
+
+    public Optional<Role> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return lookup(id, Snapshot::byId, Snapshot::missingIds);
+    }
+
+    // Nombre del rol sin inicializar el proxy LAZY de User.role (solo se lee su id)
+    public String nameOf(Role role) {
+        return role == null ? null : findById(role.getId()).map(Role::getName).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${roles.registry.refresh-ms:300000}", initialDelayString = "${roles.registry.refresh-ms:300000}")
+    public void refresh() {
+        reload(false);
+    }
+
+    private <K> Optional<Role> lookup(K key, Function<Snapshot, Map<K, Role>> index,
+                                      Function<Snapshot, Set<K>> misses) {
+        Snapshot loaded = current();
+        Role role = index.apply(loaded).get(key);
+        Set<K> missing = misses.apply(loaded);
+        if (role == null && !missing.contains(key) && missing.size() < MAX_MISSES) {
+            loaded = reload(true);
+            role = index.apply(loaded).get(key);
+            if (role == null) {
+                misses.apply(loaded).add(key);
+            }
+        }
+        return Optional.ofNullable(role).map(RoleRegistry::copy);
+    }
+
+    private synchronized Snapshot reload(boolean keepMisses) {
+        Snapshot previous = snapshot;
+        List<Role> roles = roleRepository.findAll().stream()
+                .map(RoleRegistry::copy)
+                .sorted(Comparator.comparing(Role::getId))
+                .toList();
+        Snapshot loaded = new Snapshot(roles,
+                roles.stream().collect(Collectors.toUnmodifiableMap(role -> nameKey(role.getName()), Function.identity(),
+                        (first, second) -> first)),
+                roles.stream().collect(Collectors.toUnmodifiableMap(Role::getId, Function.identity())),
+                keepMisses && previous != null ? previous.missingNames() : ConcurrentHashMap.newKeySet(),
+                keepMisses && previous != null ? previous.missingIds() : ConcurrentHashMap.newKeySet());
+        snapshot = loaded;
+        log.debug("Role registry loaded {} roles", roles.size());
+        return loaded;
+    }
+
+    private Snapshot current() {
+        Snapshot loaded = snapshot;
+        return loaded != null ? loaded : reload(false);
+    }
+
+    private static String nameKey(String name) {
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    private static Role copy(Role role) {
+        return new Role(role.getId(), role.getName());
+    }
+}
@@ -0,0 +1,58 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.conf.PropertySet;
+import com.mysql.cj.conf.RuntimeProperty;
+import com.mysql.cj.jdbc.JdbcConnection;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+/**
+ * Activa el cursor del servidor de MySQL (useCursorFetch) solo en la conexión de la transacción actual
+ * y solo mientras está abierto: las consultas preparadas dentro del bloque leen de {@code fetch size} en
+ * {@code fetch size} filas en vez de traer el resultado entero a memoria. Al cerrar se restauran los
+ * valores anteriores, antes de que la conexión vuelva al pool. Con otros drivers (H2 en los tests) no hace nada.
+ * Debe usarse dentro de una transacción, para que la consulta vaya por la misma conexión.
+ */
+final class ServerCursorFetch implements AutoCloseable {
+
+    private final PropertySet properties;
+    private final boolean previousCursorFetch;
+    private final boolean previousServerPrepStmts;
+
+    private ServerCursorFetch(PropertySet properties) {
+        this.properties = properties;
+        this.previousCursorFetch = properties != null && cursorFetch(properties).getValue();
+        this.previousServerPrepStmts = properties != null && serverPrepStmts(properties).getValue();
+    }
+
+    static ServerCursorFetch enable(EntityManager entityManager) {
+        ServerCursorFetch scope = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                new ServerCursorFetch(connection.isWrapperFor(JdbcConnection.class)
+                        ? connection.unwrap(JdbcConnection.class).getPropertySet()
+                        : null));
+        // El cursor solo se abre con sentencias preparadas en el servidor
+        scope.apply(true, true);
+        return scope;
+    }
+
+    @Override
+    public void close() {
+        apply(previousCursorFetch, previousServerPrepStmts);
+    }
+
+    private void apply(boolean cursorFetch, boolean serverPrepStmts) {
+        if (properties != null) {
+            cursorFetch(properties).setValue(cursorFetch);
+            serverPrepStmts(properties).setValue(serverPrepStmts);
+        }
+    }
+
+    private static RuntimeProperty<Boolean> cursorFetch(PropertySet properties) {
+        return properties.getBooleanProperty(PropertyKey.useCursorFetch);
+    }
+
+    private static RuntimeProperty<Boolean> serverPrepStmts(PropertySet properties) {
+        return properties.getBooleanProperty(PropertyKey.useServerPrepStmts);
+    }
+}
@@ -0,0 +1,223 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de los username, email y DNI ocupados, con un filtro de Bloom por campo.
+ * Un "no está" del filtro es definitivo y se responde sin ir a la base de datos; un "puede estar"
+ * se confirma con una consulta exists. Se construye al arrancar con una sola consulta en streaming
+ * y las altas y cambios de este nodo se añaden tras el commit. Las altas de otros nodos solo se ven tras la
+ * siguiente reconstrucción periódica ({@code users.availability.rebuild-ms}, un minuto por defecto): hasta
+ * entonces el filtro puede responder "libre" para un valor ya ocupado, y es el índice único de la base de
+ * datos el que rechaza el alta (los controladores responden igual que a un duplicado).
+ * Las bajas no se pueden quitar de un filtro de Bloom: dejan falsos positivos (que la consulta de
+ * confirmación descarta) hasta esa misma reconstrucción, que también lo redimensiona si ha crecido.
+ * Las claves van en minúsculas, como compara la collation (_ci) de los índices únicos de MySQL.
+ */
+@Component
+public class UserAvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAvailabilityIndex.class);
+
+    public enum Field { USERNAME, EMAIL, DNI }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails, BloomFilter dnis) {
+
+        static Filters sized(long expectedUsers, double falsePositiveRate) {
+            return new Filters(new BloomFilter(expectedUsers, falsePositiveRate),
+                    new BloomFilter(expectedUsers, falsePositiveRate),
+                    new BloomFilter(expectedUsers, falsePositiveRate));
+        }
+
+        BloomFilter of(Field field) {
+            return switch (field) {
+                case USERNAME -> usernames;
+                case EMAIL -> emails;
+                case DNI -> dnis;
+            };
+        }
+
+        void put(String username, String email, String dni) {
+            if (username != null) {
+                usernames.put(key(username));
+            }
+            if (email != null) {
+                emails.put(key(email));
+            }
+            if (dni != null) {
+                dnis.put(key(dni));
+            }
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final int fetchSize;
+
+    private final Object lock = new Object();
+    // Nulo hasta la primera construcción: mientras tanto todo se confirma en la base de datos
+    private volatile Filters filters;
+    // Altas confirmadas durante una reconstrucción en curso, que el streaming puede no ver (guarded by lock)
+    private List<String[]> addedDuringRebuild;
+    // Valores añadidos al filtro actual (guarded by lock)
+    private long insertions;
+
+    public UserAvailabilityIndex(UserRepository userRepository,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${users.availability.expected-users:100000}") long expectedUsers,
+                                 @Value("${users.availability.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${users.availability.fetch-size:1000}") int fetchSize) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Indica si el valor ya lo usa algún usuario. Solo consulta la base de datos si el filtro
+     * responde "puede estar" (o si aún no se ha construido).
+     */
+    public boolean isTaken(Field field, String value) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+        Filters current = filters;
+        if (current != null && !current.of(field).mightContain(key(value))) {
+            count(field, "negative");
+            return false;
+        }
+        boolean taken = switch (field) {
+            case USERNAME -> userRepository.existsByUsername(value);
+            case EMAIL -> userRepository.existsByEmail(value);
+            case DNI -> userRepository.existsByDni(value);
+        };
+        count(field, current == null ? "not_ready" : taken ? "confirmed" : "false_positive");
+        return taken;
+    }
+
+    public void add(User user) {
+        add(user.getUsername(), user.getEmail(), user.getDni());
+    }
+
+    /**
+     * Registra valores ocupados. Dentro de una transacción se aplica tras el commit (un rollback no
+     * deja falsos positivos y la reconstrucción no se salta filas aún no confirmadas).
+     */
+    public void add(String username, String email, String dni) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(username, email, dni);
+                }
+            });
+        } else {
+            put(username, email, dni);
+        }
+    }
+
+    private void put(String username, String email, String dni) {
+        synchronized (lock) {
+            Filters current = filters;
+            if (current != null) {
+                current.put(username, email, dni);
+                insertions++;
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(new String[]{username, email, dni});
+            }
+        }
+    }
+
+    /**
+     * Reconstruye los filtros desde la tabla de usuarios (quita los valores de usuarios borrados) y
+     * los sustituye de golpe. Se dimensiona para el doble de los valores actuales, como mínimo
+     * {@code users.availability.expected-users}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${users.availability.rebuild-ms:60000}", initialDelayString = "${users.availability.rebuild-ms:60000}")
+    public synchronized void rebuild() {
+        long capacity;
+        synchronized (lock) {
+            capacity = Math.max(expectedUsers, insertions * 2);
+            addedDuringRebuild = new ArrayList<>();
+        }
+        Filters fresh = Filters.sized(capacity, falsePositiveRate);
+        long loaded;
+        try {
+            loaded = readOnlyTransaction.execute(status -> {
+                long rows = 0;
+                try (ServerCursorFetch cursor = ServerCursorFetch.enable(entityManager);
+                     Stream<Object[]> stream = entityManager.createQuery(
+                                "SELECT u.username, u.email, u.dni FROM User u", Object[].class)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    Iterator<Object[]> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        Object[] row = iterator.next();
+                        fresh.put((String) row[0], (String) row[1], (String) row[2]);
+                        rows++;
+                    }
+                }
+                return rows;
+            });
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                addedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            addedDuringRebuild.forEach(values -> fresh.put(values[0], values[1], values[2]));
+            insertions = loaded + addedDuringRebuild.size();
+            addedDuringRebuild = null;
+            filters = fresh;
+        }
+        log.info("User availability index built from {} users (capacity {})", loaded, capacity);
+        if (loaded > capacity) {
+            // Más usuarios de los previstos: la tasa de falsos positivos se dispara; se redimensiona ya
+            rebuild();
+        }
+    }
+
+    private void count(Field field, String outcome) {
+        meterRegistry.counter("users.availability.checks",
+                "field", field.name().toLowerCase(Locale.ROOT), "outcome", outcome).increment();
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición (campo de orden, valor, id) del último usuario devuelto, codificada como texto opaco
+ * en base64url. Incluye el campo de orden para rechazar un cursor usado con otro orden distinto.
+ * El valor puede ser nulo (p. ej. createdAt de usuarios antiguos): se codifica con su propia marca,
+ * distinta de cualquier texto.
+ */
+record UserCursor(String sort, String value, long id) {
+
+    // Prefijo del valor: presente o nulo
+    private static final char PRESENT = '=';
+    private static final char NULL = '~';
+
+    String encode() {
+        String encodedValue = value == null ? String.valueOf(NULL) : PRESENT + value;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sort + "|" + encodedValue + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static UserCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf('|');
+            int last = raw.lastIndexOf('|');
+            if (first < 0 || first == last) {
+                throw new IllegalArgumentException("Cursor de usuarios inválido");
+            }
+            String encodedValue = raw.substring(first + 1, last);
+            String value = switch (encodedValue.charAt(0)) {
+                case PRESENT -> encodedValue.substring(1);
+                case NULL -> null;
+                default -> throw new IllegalArgumentException("Cursor de usuarios inválido");
+            };
+            return new UserCursor(raw.substring(0, first), value, Long.parseLong(raw.substring(last + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de usuarios inválido", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Lectura fila a fila de los ficheros de importación de usuarios, sin cargar el fichero entero:
+ * CSV con un parser propio (RFC 4180, separador ',' o ';') y XLSX con el modelo de eventos SAX de POI
+ * (XSSFSheetXMLHandler), que nunca construye el XSSFWorkbook. Las filas se entregan al handler en orden,
+ * con su número de fila en el fichero (1 = cabecera).
+ */
+final class UserImportRows {
+
+    @FunctionalInterface
+    interface Handler {
+        void row(long rowNumber, List<String> cells);
+    }
+
+    private UserImportRows() {
+    }
+
+    static void csv(InputStream in, Handler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        reader.mark(64 * 1024);
+        if (reader.read() != '\uFEFF') { // BOM de Excel
+            reader.reset();
+        }
+        char separator = detectSeparator(reader);
+
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        long rowNumber = 1;
+        boolean quoted = false;
+        boolean rowStarted = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.isEmpty()) {
+                quoted = true;
+                rowStarted = true;
+            } else if (c == separator) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                rowStarted = true;
+            } else if (c == '\n') {
+                String last = stripCarriageReturn(cell);
+                if (rowStarted || !last.isEmpty()) {
+                    cells.add(last);
+                    handler.row(rowNumber, cells);
+                    cells = new ArrayList<>();
+                }
+                cell.setLength(0);
+                rowStarted = false;
+                rowNumber++;
+            } else {
+                cell.append((char) c);
+            }
+        }
+        String last = stripCarriageReturn(cell);
+        if (rowStarted || !last.isEmpty()) {
+            cells.add(last);
+            handler.row(rowNumber, cells);
+        }
+    }
+
+    // Excel en configuración regional española exporta CSV con ';'
+    private static char detectSeparator(BufferedReader reader) throws IOException {
+        reader.mark(64 * 1024);
+        String header = reader.readLine();
+        reader.reset();
+        if (header == null) {
+            return ',';
+        }
+        return header.chars().filter(ch -> ch == ';').count() > header.chars().filter(ch -> ch == ',').count() ? ';' : ',';
+    }
+
+    private static String stripCarriageReturn(StringBuilder cell) {
+        int length = cell.length();
+        return length > 0 && cell.charAt(length - 1) == '\r' ? cell.substring(0, length - 1) : cell.toString();
+    }
+
+    /**
+     * Lee la primera hoja. El ZIP necesita acceso aleatorio, así que el cuerpo se copia a un fichero
+     * temporal (OPCPackage.open(InputStream) lo descomprimiría entero en memoria).
+     */
+    static void xlsx(InputStream in, Handler handler) throws IOException {
+        Path file = Files.createTempFile("user-import-", ".xlsx");
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    return;
+                }
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null,
+                        new ReadOnlySharedStringsTable(pkg), new SheetRows(handler), new DataFormatter(), false));
+                try (InputStream sheet = sheets.next()) {
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException | POIXMLException e) {
+            throw new IllegalArgumentException("El fichero no es un XLSX válido", e);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Convierte los eventos de celda de POI en listas de celdas por fila (las celdas vacías llegan como "")
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Handler handler;
+        private List<String> cells;
+
+        private SheetRows(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new ArrayList<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cells.stream().anyMatch(cell -> !cell.isBlank())) {
+                handler.row(rowNum + 1L, cells);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = new CellReference(cellReference).getCol();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue == null ? "" : formattedValue);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.UserImportResult;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Alta masiva de usuarios desde CSV o XLSX (primera fila = cabecera con los nombres de campo de User).
+ * <ul>
+ *     <li>El fichero se lee fila a fila (UserImportRows) y cada fila se valida con las mismas
+ *     restricciones que /api/users/create.</li>
+ *     <li>La unicidad de username, email y DNI se comprueba contra conjuntos en memoria cargados con
+ *     una sola consulta al empezar, a los que se añaden las filas aceptadas (detecta también duplicados
+ *     dentro del fichero).</li>
+ *     <li>Las contraseñas de cada bloque se hashean en paralelo en un pool propio: el del PasswordEncoder
+ *     de la aplicación está acotado para los logins y una importación lo saturaría.</li>
+ *     <li>Cada bloque se inserta con un INSERT JDBC en lote, con IDs de IdBlockAllocator. Si un bloque choca
+ *     con un alta concurrente se reintenta fila a fila para rechazar solo las filas en conflicto.</li>
+ * </ul>
+ * Solo se ejecuta una importación a la vez.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    public enum Format { CSV, XLSX }
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("username", "email", "password", "firstName", "lastName", "role");
+    private static final List<String> OPTIONAL_COLUMNS = List.of("dni", "dateOfBirth", "phoneNumber");
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private static final String INSERT_SQL = "INSERT INTO users (id, username, email, password, first_name, last_name, dni, "
+            + "date_of_birth, phone_number, enabled, two_factor_enabled, security_version, created_at, updated_at, role_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RoleRegistry roleRegistry;
+    private final IdBlockAllocator idBlockAllocator;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final UserDetailsCache userDetailsCache;
+    private final UserAvailabilityIndex availabilityIndex;
+    private final PasswordEncoder hashingEncoder;
+    private final ExecutorService hashingPool;
+    private final int chunkSize;
+    private final long maxRows;
+    private final ReentrantLock importLock = new ReentrantLock();
+
+    public UserImportService(JdbcTemplate jdbcTemplate,
+                             RoleRegistry roleRegistry,
+                             IdBlockAllocator idBlockAllocator,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager,
+                             SecurityVersionRegistry securityVersionRegistry,
+                             UserDetailsCache userDetailsCache,
+                             UserAvailabilityIndex availabilityIndex,
+                             @Value("${security.bcrypt.strength:10}") int bcryptStrength,
+                             @Value("${users.import.hash-threads:0}") int hashThreads,
+                             @Value("${users.import.chunk-size:1000}") int chunkSize,
+                             @Value("${users.import.max-rows:100000}") long maxRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.roleRegistry = roleRegistry;
+        this.idBlockAllocator = idBlockAllocator;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.userDetailsCache = userDetailsCache;
+        this.availabilityIndex = availabilityIndex;
+        // Mismo formato y coste que el encoder de la aplicación, sin pasar por su pool acotado
+        this.hashingEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hashingPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hashing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Importa los usuarios del fichero.
+     * @return Filas leídas, usuarios creados y errores por fila
+     * @throws IllegalArgumentException si el fichero no se puede leer o a la cabecera le faltan columnas
+     * @throws IllegalStateException si ya hay otra importación en curso
+     */
+    public UserImportResult importUsers(InputStream body, Format format) throws IOException {
+        return importUsers(body, format, new UserImportResult());
+    }
+
+    /**
+     * Igual que {@link #importUsers(InputStream, Format)}, pero va anotando el progreso en {@code result}:
+     * si la importación se corta (error de lectura o de base de datos) el llamante sigue sabiendo cuántos
+     * usuarios llegaron a crearse.
+     */
+    public UserImportResult importUsers(InputStream body, Format format, UserImportResult result) throws IOException {
+        if (!importLock.tryLock()) {
+            throw new IllegalStateException("Ya hay una importación de usuarios en curso");
+        }
+        try {
+            Run run = new Run(result);
+            try {
+                if (format == Format.XLSX) {
+                    UserImportRows.xlsx(body, run::row);
+                } else {
+                    UserImportRows.csv(body, run::row);
+                }
+            } catch (RowLimitReached e) {
+                run.result.setTruncated(true);
+            }
+            if (run.columns == null) {
+                throw new IllegalArgumentException("El fichero está vacío");
+            }
+            run.flush();
+            log.info("User import finished: {} rows, {} created, {} rejected",
+                    run.result.getRows(), run.result.getCreated(), run.result.getRejected());
+            return run.result;
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    private record Pending(long row, User user) {
+    }
+
+    // Se lanza desde el handler de filas para dejar de leer el fichero
+    private static final class RowLimitReached extends RuntimeException {
+        private RowLimitReached() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Estado de una importación
+    private final class Run {
+
+        private final UserImportResult result;
+        private final Map<String, Role> rolesByName = new HashMap<>();
+        private final Set<String> usernames = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> dnis = new HashSet<>();
+        private final List<Pending> pending = new ArrayList<>(chunkSize);
+        private Map<String, Integer> columns;
+
+        private Run(UserImportResult result) {
+            this.result = result;
+            roleRegistry.findAll().forEach(role -> rolesByName.put(role.getName().toUpperCase(Locale.ROOT), role));
+            // Una sola consulta para todas las comprobaciones de unicidad. Las claves van en minúsculas:
+            // la collation de MySQL (_ci) tampoco distingue mayúsculas en los índices únicos.
+            jdbcTemplate.query("SELECT username, email, dni FROM users", rs -> {
+                usernames.add(key(rs.getString(1)));
+                emails.add(key(rs.getString(2)));
+                String dni = rs.getString(3);
+                if (dni != null) {
+                    dnis.add(key(dni));
+                }
+            });
+        }
+
+        private void row(long rowNumber, List<String> cells) {
+            if (columns == null) {
+                columns = header(cells);
+                return;
+            }
+            if (result.getRows() >= maxRows) {
+                throw new RowLimitReached();
+            }
+            result.setRows(result.getRows() + 1);
+
+            User user;
+            try {
+                user = toUser(cells);
+            } catch (IllegalArgumentException e) {
+                reject(rowNumber, e.getMessage());
+                return;
+            }
+            Set<ConstraintViolation<User>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                reject(rowNumber, violations.stream()
+                        .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            String duplicate = usernames.contains(key(user.getUsername())) ? "username"
+                    : emails.contains(key(user.getEmail())) ? "email"
+                    : user.getDni() != null && dnis.contains(key(user.getDni())) ? "dni" : null;
+            if (duplicate != null) {
+                reject(rowNumber, duplicate + ": ya existe");
+                return;
+            }
+            usernames.add(key(user.getUsername()));
+            emails.add(key(user.getEmail()));
+            if (user.getDni() != null) {
+                dnis.add(key(user.getDni()));
+            }
+
+            pending.add(new Pending(rowNumber, user));
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private Map<String, Integer> header(List<String> cells) {
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String name = cells.get(i).trim();
+                for (String column : REQUIRED_COLUMNS) {
+                    if (column.equalsIgnoreCase(name)) {
+                        indexes.put(column, i);
+                    }
+                }
+                for (String column : OPTIONAL_COLUMNS) {
+                    if (column.equalsIgnoreCase(name)) {
+                        indexes.put(column, i);
+                    }
+                }
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !indexes.containsKey(column)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Faltan columnas en la cabecera: " + String.join(", ", missing));
+            }
+            return indexes;
+        }
+
+        private User toUser(List<String> cells) {
+            User user = new User();
+            user.setUsername(cell(cells, "username"));
+            user.setEmail(cell(cells, "email"));
+            user.setPassword(cell(cells, "password"));
+            user.setFirstName(cell(cells, "firstName"));
+            user.setLastName(cell(cells, "lastName"));
+            user.setDni(cell(cells, "dni"));
+            user.setPhoneNumber(cell(cells, "phoneNumber"));
+            String dateOfBirth = cell(cells, "dateOfBirth");
+            if (dateOfBirth != null) {
+                try {
+                    user.setDateOfBirth(LocalDate.parse(dateOfBirth));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("dateOfBirth: formato esperado yyyy-MM-dd");
+                }
+            }
+            String roleName = cell(cells, "role");
+            Role role = roleName == null ? null : rolesByName.get(roleName.toUpperCase(Locale.ROOT));
+            if (role == null) {
+                throw new IllegalArgumentException("role: rol desconocido '" + roleName + "'");
+            }
+            user.setRole(role);
+            user.setEnabled(true);
+            return user;
+        }
+
+        private String cell(List<String> cells, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= cells.size()) {
+                return null;
+            }
+            String value = cells.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private void reject(long row, String message) {
+            result.setRejected(result.getRejected() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new UserImportResult.RowError(row, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        // Hashea las contraseñas del bloque en paralelo y lo inserta
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Callable<String>> hashes = pending.stream()
+                    .<Callable<String>>map(p -> () -> hashingEncoder.encode(p.user().getPassword()))
+                    .toList();
+            try {
+                List<Future<String>> encoded = hashingPool.invokeAll(hashes);
+                for (int i = 0; i < pending.size(); i++) {
+                    pending.get(i).user().setPassword(encoded.get(i).get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido hasheando contraseñas", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("No se pudo hashear una contraseña", e.getCause());
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            long firstId = idBlockAllocator.allocate(IdBlockAllocator.USERS, pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                User user = pending.get(i).user();
+                user.setId(firstId + i);
+                user.setCreatedAt(now);
+                user.setUpdatedAt(now);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL,
+                        pending.stream().map(Pending::user).toList(), pending.size(), UserImportService::bind));
+                pending.forEach(p -> created(p.user()));
+            } catch (DataIntegrityViolationException e) {
+                // Un alta hecha mientras tanto por otra vía: se aíslan las filas en conflicto
+                log.warn("User import batch conflicted with existing rows, retrying row by row: {}", e.getMessage());
+                for (Pending p : pending) {
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, p.user()));
+                        created(p.user());
+                    } catch (DataIntegrityViolationException rowConflict) {
+                        reject(p.row(), "username, email o dni: ya existe");
+                    }
+                }
+            }
+            pending.clear();
+        }
+
+        private void created(User user) {
+            result.setCreated(result.getCreated() + 1);
+            securityVersionRegistry.evict(user.getEmail());
+            userDetailsCache.evict(user.getEmail());
+            availabilityIndex.add(user);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, User user) throws SQLException {
+        ps.setLong(1, user.getId());
+        ps.setString(2, user.getUsername());
+        ps.setString(3, user.getEmail());
+        ps.setString(4, user.getPassword());
+        ps.setString(5, user.getFirstName());
+        ps.setString(6, user.getLastName());
+        ps.setString(7, user.getDni());
+        if (user.getDateOfBirth() != null) {
+            ps.setObject(8, user.getDateOfBirth());
+        } else {
+            ps.setNull(8, Types.DATE);
+        }
+        ps.setString(9, user.getPhoneNumber());
+        ps.setBoolean(10, user.isEnabled());
+        ps.setBoolean(11, false);
+        ps.setInt(12, 0);
+        ps.setTimestamp(13, Timestamp.valueOf(user.getCreatedAt()));
+        ps.setTimestamp(14, Timestamp.valueOf(user.getUpdatedAt()));
+        ps.setLong(15, user.getRole().getId());
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+}
@@ -1,12 +1,35 @@
 package com.usersystem.sistemausuariosbackend.service;
 
+import com.usersystem.sistemausuariosbackend.model.RefreshToken;
+import com.usersystem.sistemausuariosbackend.model.Role;
 import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.BulkUserActionRequest;
+import com.usersystem.sistemausuariosbackend.payload.BulkUserActionResult;
+import com.usersystem.sistemausuariosbackend.payload.UserCursorPage;
 import com.usersystem.sistemausuariosbackend.payload.UserProfileUpdateDto;
+import com.usersystem.sistemausuariosbackend.payload.UserSummaryDto;
 import com.usersystem.sistemausuariosbackend.repository.UserRepository;
-import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserSpecifications;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.time.LocalDateTime;
 
@@ -15,11 +38,31 @@ import java.time.LocalDateTime;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final UserDetailsCache userDetailsCache;
+    private final UserAvailabilityIndex availabilityIndex;
+    private final RefreshTokenService refreshTokenService;
+    private final EntityManager entityManager;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository) {
+    // Campos por los que se puede ordenar el listado: todos tienen índice (al que InnoDB añade el id)
+    private static final List<String> SORTABLE_FIELDS = List.of("createdAt", "username", "email", "lastName", "id");
+    // Rol al que se limita el listado para los supervisores
+    private static final String SUPERVISOR_SCOPE_ROLE = "EMPLEADO";
+
+    public UserService(UserRepository userRepository, RoleRegistry roleRegistry,
+                       SecurityVersionRegistry securityVersionRegistry,
+                       UserDetailsCache userDetailsCache,
+                       UserAvailabilityIndex availabilityIndex,
+                       RefreshTokenService refreshTokenService,
+                       EntityManager entityManager) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.userDetailsCache = userDetailsCache;
+        this.availabilityIndex = availabilityIndex;
+        this.refreshTokenService = refreshTokenService;
+        this.entityManager = entityManager;
     }
 
     /**
@@ -28,7 +71,11 @@ public class UserService {
      * @return El usuario guardado.
      */
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        securityVersionRegistry.evict(saved.getEmail());
+        userDetailsCache.evict(saved.getEmail());
+        availabilityIndex.add(saved);
+        return saved;
     }
 
     /**
@@ -39,6 +86,222 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Listado paginado por cursor (keyset) de usuarios, proyectado a UserSummaryDto en la propia consulta.
+     * El alcance del supervisor (solo empleados) se aplica como un filtro más de la consulta.
+     * @param role Nombre del rol (nulo para todos)
+     * @param prefix Texto por el que empieza el username, nombre, apellido, email o DNI
+     * @param employeesOnly Si el listado se limita a los empleados (supervisores)
+     * @param sort Campo de orden: createdAt, username, email, lastName o id
+     * @param cursor Cursor opaco devuelto en la página anterior (nulo para la primera página)
+     * @return La página con el cursor de la siguiente (nulo si no hay más)
+     * @throws IllegalArgumentException si el campo de orden o el cursor no son válidos
+     */
+    @Transactional(readOnly = true)
+    public UserCursorPage listUsers(String role, Boolean enabled, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                    String prefix, boolean employeesOnly,
+                                    String sort, boolean descending, String cursor, int size) {
+        if (!SORTABLE_FIELDS.contains(sort)) {
+            throw new IllegalArgumentException("Campo de orden no permitido: " + sort);
+        }
+        String roleName = role == null || role.isBlank() ? null : role;
+        if (employeesOnly) {
+            if (roleName != null && !roleName.equals(SUPERVISOR_SCOPE_ROLE)) {
+                return new UserCursorPage(List.of(), null, false, size);
+            }
+            roleName = SUPERVISOR_SCOPE_ROLE;
+        }
+        Long roleId = null;
+        if (roleName != null) {
+            Optional<Role> found = roleRegistry.findByName(roleName);
+            if (found.isEmpty()) {
+                return new UserCursorPage(List.of(), null, false, size);
+            }
+            roleId = found.get().getId();
+        }
+
+        Specification<User> spec = UserSpecifications.filtered(roleId, enabled, createdFrom, createdTo, prefix);
+        if (cursor != null && !cursor.isEmpty()) {
+            UserCursor position = UserCursor.decode(cursor);
+            if (!position.sort().equals(sort)) {
+                throw new IllegalArgumentException("El cursor no corresponde al orden pedido");
+            }
+            spec = spec.and(afterPosition(sort, position, descending));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserSummaryDto> query = cb.createQuery(UserSummaryDto.class);
+        Root<User> root = query.from(User.class);
+        // role.id es la propia FK (role_id): no genera JOIN con roles
+        query.select(cb.construct(UserSummaryDto.class,
+                root.get("id"), root.get("username"), root.get("firstName"), root.get("lastName"),
+                root.get("email"), root.get("dni"), root.get("role").get("id"), root.get("enabled"),
+                root.get("twoFactorEnabled"), root.get("createdAt")));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(descending
+                ? List.of(cb.desc(root.get(sort)), cb.desc(root.get("id")))
+                : List.of(cb.asc(root.get(sort)), cb.asc(root.get("id"))));
+
+        // Se pide un usuario de más para saber si existe una página siguiente
+        List<UserSummaryDto> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<UserSummaryDto> content = hasNext ? rows.subList(0, size) : rows;
+        content.forEach(row -> row.setRole(roleRegistry.findById(row.getRoleId()).map(Role::getName).orElse(null)));
+        String nextCursor = null;
+        if (hasNext) {
+            UserSummaryDto last = content.get(content.size() - 1);
+            Object lastValue = sortValue(sort, last);
+            nextCursor = new UserCursor(sort, lastValue == null ? null : String.valueOf(lastValue), last.getId()).encode();
+        }
+        return new UserCursorPage(content, nextCursor, hasNext, size);
+    }
+
+    private static Specification<User> afterPosition(String sort, UserCursor position, boolean descending) {
+        if (position.value() == null) {
+            return UserSpecifications.after(sort, (String) null, position.id(), descending);
+        }
+        try {
+            return switch (sort) {
+                case "createdAt" -> UserSpecifications.after(sort, LocalDateTime.parse(position.value()), position.id(), descending);
+                case "id" -> UserSpecifications.after(sort, Long.parseLong(position.value()), position.id(), descending);
+                default -> UserSpecifications.after(sort, position.value(), position.id(), descending);
+            };
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de usuarios inválido", e);
+        }
+    }
+
+    private static Object sortValue(String sort, UserSummaryDto user) {
+        return switch (sort) {
+            case "createdAt" -> user.getCreatedAt();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "lastName" -> user.getLastName();
+            default -> user.getId();
+        };
+    }
+
+    /**
+     * Aplica una acción a un conjunto de usuarios con una sola sentencia UPDATE o DELETE, en una transacción.
+     * El conjunto se elige por IDs o por filtro; el usuario que ejecuta la acción nunca se incluye, y solo
+     * cuentan los usuarios que cambian (p. ej. DISABLE no toca a los ya desactivados).
+     * Los emails afectados se leen antes con bloqueo (SELECT ... FOR UPDATE), así la sentencia modifica
+     * exactamente esas filas, y sus cachés de seguridad se invalidan tras el commit.
+     * @param actingUserId Usuario que ejecuta la acción (se excluye del conjunto)
+     * @return Número de usuarios modificados o eliminados
+     * @throws IllegalArgumentException si la selección está vacía o es ambigua, o el rol no existe
+     */
+    @Transactional
+    public BulkUserActionResult bulkAction(BulkUserActionRequest request, Long actingUserId) {
+        BulkUserActionRequest.Action action = request.getAction();
+        Long targetRoleId = null;
+        if (action == BulkUserActionRequest.Action.CHANGE_ROLE) {
+            if (request.getRole() == null || request.getRole().isBlank()) {
+                throw new IllegalArgumentException("CHANGE_ROLE requiere el rol destino");
+            }
+            targetRoleId = roleRegistry.findByName(request.getRole())
+                    .orElseThrow(() -> new IllegalArgumentException("Rol no encontrado: " + request.getRole()))
+                    .getId();
+        }
+        Specification<User> target = bulkSelection(request, actingUserId).and(changes(action, targetRoleId));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> emailsQuery = cb.createQuery(String.class);
+        Root<User> selected = emailsQuery.from(User.class);
+        emailsQuery.select(selected.get("email")).where(target.toPredicate(selected, emailsQuery, cb));
+        List<String> emails = entityManager.createQuery(emailsQuery)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (emails.isEmpty()) {
+            return new BulkUserActionResult(action.name(), 0);
+        }
+
+        int affected;
+        if (action == BulkUserActionRequest.Action.DELETE) {
+            // Los refresh tokens no tienen FK a users: se borran aparte, con la misma selección
+            CriteriaDelete<RefreshToken> deleteTokens = cb.createCriteriaDelete(RefreshToken.class);
+            Root<RefreshToken> token = deleteTokens.from(RefreshToken.class);
+            Subquery<Long> userIds = deleteTokens.subquery(Long.class);
+            Root<User> owner = userIds.from(User.class);
+            userIds.select(owner.get("id")).where(target.toPredicate(owner, null, cb));
+            entityManager.createQuery(deleteTokens.where(token.get("userId").in(userIds))).executeUpdate();
+
+            CriteriaDelete<User> delete = cb.createCriteriaDelete(User.class);
+            Root<User> root = delete.from(User.class);
+            affected = entityManager.createQuery(delete.where(target.toPredicate(root, null, cb))).executeUpdate();
+        } else {
+            CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+            Root<User> root = update.from(User.class);
+            if (action == BulkUserActionRequest.Action.CHANGE_ROLE) {
+                update.set(root.<Role>get("role"), entityManager.getReference(Role.class, targetRoleId));
+            } else {
+                update.set(root.<Boolean>get("enabled"), action == BulkUserActionRequest.Action.ENABLE);
+            }
+            // Como en toggleUserStatus: los tokens emitidos antes del cambio dejan de valer
+            update.set(root.<Integer>get("securityVersion"), cb.sum(root.<Integer>get("securityVersion"), 1));
+            update.set(root.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+            affected = entityManager.createQuery(update.where(target.toPredicate(root, null, cb))).executeUpdate();
+        }
+
+        boolean deleted = action == BulkUserActionRequest.Action.DELETE;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String email : emails) {
+                    if (deleted) {
+                        securityVersionRegistry.revoke(email);
+                    } else {
+                        securityVersionRegistry.evict(email);
+                    }
+                    userDetailsCache.evict(email);
+                }
+            }
+        });
+        return new BulkUserActionResult(action.name(), affected);
+    }
+
+    private Specification<User> bulkSelection(BulkUserActionRequest request, Long actingUserId) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        BulkUserActionRequest.Filter filter = request.getFilter();
+        if (byIds == (filter != null)) {
+            throw new IllegalArgumentException("Indica los usuarios por IDs o por filtro (uno de los dos)");
+        }
+        Specification<User> notSelf = (root, query, cb) -> cb.notEqual(root.get("id"), actingUserId);
+        if (byIds) {
+            List<Long> ids = request.getIds();
+            return notSelf.and((root, query, cb) -> root.get("id").in(ids));
+        }
+        boolean empty = (filter.getRole() == null || filter.getRole().isBlank()) && filter.getEnabled() == null
+                && filter.getCreatedFrom() == null && filter.getCreatedTo() == null
+                && (filter.getQ() == null || filter.getQ().isBlank());
+        if (empty) {
+            throw new IllegalArgumentException("El filtro no puede estar vacío");
+        }
+        Long roleId = null;
+        if (filter.getRole() != null && !filter.getRole().isBlank()) {
+            roleId = roleRegistry.findByName(filter.getRole())
+                    .orElseThrow(() -> new IllegalArgumentException("Rol no encontrado: " + filter.getRole()))
+                    .getId();
+        }
+        return notSelf.and(UserSpecifications.filtered(roleId, filter.getEnabled(),
+                filter.getCreatedFrom() == null ? null : filter.getCreatedFrom().atStartOfDay(),
+                filter.getCreatedTo() == null ? null : filter.getCreatedTo().atTime(23, 59, 59),
+                filter.getQ()));
+    }
+
+    // Solo los usuarios a los que la acción cambia algo
+    private static Specification<User> changes(BulkUserActionRequest.Action action, Long targetRoleId) {
+        return switch (action) {
+            case ENABLE -> UserSpecifications.isEnabled(false);
+            case DISABLE -> UserSpecifications.isEnabled(true);
+            case CHANGE_ROLE -> (root, query, cb) -> cb.notEqual(root.get("role").get("id"), targetRoleId);
+            case DELETE -> (root, query, cb) -> null;
+        };
+    }
+
     /**
      * Busca un usuario por su ID.
      * @param id El ID del usuario.
@@ -54,11 +317,12 @@ public class UserService {
      * @return Verdadero si se elimina, falso si no existe.
      */
     public boolean deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+        return userRepository.findById(id).map(user -> {
+            userRepository.delete(user);
+            securityVersionRegistry.revoke(user.getEmail());
+            userDetailsCache.evict(user.getEmail());
             return true;
-        }
-        return false;
+        }).orElse(false);
     }
 
     /**
@@ -70,7 +334,11 @@ public class UserService {
         return userRepository.findById(id).map(user -> {
             user.setEnabled(!user.isEnabled());
             user.setUpdatedAt(LocalDateTime.now());
-            return userRepository.save(user);
+            user.setSecurityVersion(user.getSecurityVersion() + 1);
+            User saved = userRepository.save(user);
+            securityVersionRegistry.update(saved.getEmail(), saved.getSecurityVersion());
+            userDetailsCache.evict(saved.getEmail());
+            return saved;
         });
     }
 
@@ -82,9 +350,17 @@ public class UserService {
      * @param userId El ID del usuario a actualizar.
      * @param updatedUser El objeto User con los nuevos datos.
      * @return Un Optional que contiene el usuario actualizado, o un Optional vacío si no se encuentra.
+     * @throws IllegalArgumentException si el nuevo username, email o DNI ya lo usa otro usuario
      */
     public Optional<User> updateUserWithValidation(Long userId, User updatedUser) {
         return userRepository.findById(userId).map(existingUser -> {
+            String takenField = takenField(existingUser, updatedUser);
+            if (takenField != null) {
+                throw new IllegalArgumentException("El " + takenField + " ya está en uso");
+            }
+            String previousEmail = existingUser.getEmail();
+            boolean roleChanged = updatedUser.getRole() != null && !sameRole(existingUser.getRole(), updatedUser.getRole());
+
             // Actualizamos solo los campos que vienen con datos
             if (updatedUser.getFirstName() != null) {
                 existingUser.setFirstName(updatedUser.getFirstName());
@@ -111,11 +387,58 @@ public class UserService {
                 existingUser.setRole(updatedUser.getRole());
             }
 
+            boolean emailChanged = !Objects.equals(previousEmail, existingUser.getEmail());
+            if (roleChanged || emailChanged) {
+                // Los tokens emitidos con el rol o email anterior dejan de ser válidos
+                existingUser.setSecurityVersion(existingUser.getSecurityVersion() + 1);
+            }
+
             existingUser.setUpdatedAt(LocalDateTime.now());
-            return userRepository.save(existingUser);
+            User saved = userRepository.save(existingUser);
+            if (emailChanged) {
+                securityVersionRegistry.revoke(previousEmail);
+            }
+            securityVersionRegistry.update(saved.getEmail(), saved.getSecurityVersion());
+            userDetailsCache.evict(previousEmail);
+            userDetailsCache.evict(saved.getEmail());
+            availabilityIndex.add(saved);
+            return saved;
         });
     }
 
+    // Primer campo único que cambia a un valor ya usado (nulo si no hay conflicto). Solo se comprueban
+    // los que cambian, sin distinguir mayúsculas como el índice único: el propio usuario no cuenta.
+    private String takenField(User current, User requested) {
+        if (changes(current.getUsername(), requested.getUsername())
+                && availabilityIndex.isTaken(UserAvailabilityIndex.Field.USERNAME, requested.getUsername())) {
+            return "username";
+        }
+        if (changes(current.getEmail(), requested.getEmail())
+                && availabilityIndex.isTaken(UserAvailabilityIndex.Field.EMAIL, requested.getEmail())) {
+            return "email";
+        }
+        if (changes(current.getDni(), requested.getDni())
+                && availabilityIndex.isTaken(UserAvailabilityIndex.Field.DNI, requested.getDni())) {
+            return "DNI";
+        }
+        return null;
+    }
+
+    private static boolean changes(String current, String requested) {
+        return requested != null && !requested.equalsIgnoreCase(current);
+    }
+
+    // Compara roles por id o, si el cliente solo envió el nombre, por nombre
+    private boolean sameRole(Role current, Role requested) {
+        if (current == null) {
+            return false;
+        }
+        if (requested.getId() != null) {
+            return requested.getId().equals(current.getId());
+        }
+        return Objects.equals(requested.getName(), current.getName());
+    }
+
     /**
      * Actualiza la información del perfil de un usuario autenticado.
      * Solo permite la actualización de campos no sensibles como nombre, apellido, DNI, etc.
@@ -147,12 +470,17 @@ public class UserService {
             }
 
             user.setUpdatedAt(LocalDateTime.now());
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            // El principal cacheado incluye nombres, DNI y avatar
+            userDetailsCache.evict(saved.getEmail());
+            availabilityIndex.add(saved);
+            return saved;
         });
     }
 
     /**
-     * Permite a un usuario cambiar su contraseña.
+     * Permite a un usuario cambiar su contraseña. Cierra todas sus sesiones: revoca los refresh tokens
+     * y sube la versión de seguridad (los access tokens emitidos antes dejan de valer).
      * @param userId El ID del usuario.
      * @param currentPassword La contraseña actual, en texto plano.
      * @param newPassword La nueva contraseña, en texto plano.
@@ -164,7 +492,11 @@ public class UserService {
             if (passwordEncoder.matches(currentPassword, user.getPassword())) {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setUpdatedAt(LocalDateTime.now());
-                userRepository.save(user);
+                user.setSecurityVersion(user.getSecurityVersion() + 1);
+                User saved = userRepository.save(user);
+                refreshTokenService.revokeAll(saved.getId());
+                securityVersionRegistry.update(saved.getEmail(), saved.getSecurityVersion());
+                userDetailsCache.evict(saved.getEmail());
                 return true;
             }
             return false;
@@ -0,0 +1,22 @@
+package com.usersystem.sistemausuariosbackend;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Guarda cada sentencia SQL que prepara Hibernate en los tests anotados con {@link JpaSliceTest}.
+ * La lista es global: cada test la vacía antes de contar.
+ */
+public class CapturingInspector implements StatementInspector {
+
+	public static final List<String> SQL = Collections.synchronizedList(new ArrayList<>());
+
+	@Override
+	public String inspect(String sql) {
+		SQL.add(sql);
+		return sql;
+	}
+}
@@ -0,0 +1,31 @@
+package com.usersystem.sistemausuariosbackend;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@code @DataJpaTest} sobre H2 con lo que necesitan todos los tests de la capa JPA del proyecto:
+ * sustituye la carga inicial de datos de la aplicación (el CommandLineRunner "run" necesita el
+ * PasswordEncoder) y registra {@link CapturingInspector} para contar las sentencias SQL.
+ * Las propiedades propias de cada test van en {@code @TestPropertySource}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector="
+				+ "com.usersystem.sistemausuariosbackend.CapturingInspector"
+})
+@MockitoBean(name = "run", types = CommandLineRunner.class)
+public @interface JpaSliceTest {
+}
@@ -0,0 +1,74 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Formato compacto de log_entries: códigos numéricos, IP binaria y descripción como plantilla + parámetros.
+ * La entidad vuelve a leerse con los mismos valores de texto que se guardaron.
+ */
+@JpaSliceTest
+class LogEntryFormatTests {
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void storesCodesAndRendersTemplatesOnRead() {
+		LogEntry entry = new LogEntry();
+		entry.setEventType("USER_DELETED");
+		entry.setResult("SUCCESS");
+		entry.setIpAddress("192.168.1.20");
+		entry.applyDescription(AuditMessage.USER_DELETED.with("maria", 42L));
+		Long id = logEntryRepository.saveAndFlush(entry).getId();
+		entityManager.clear();
+
+		Map<String, Object> row = jdbcTemplate.queryForMap(
+				"SELECT event_code, result_code, ip, description_template, description_params FROM log_entries WHERE id = ?", id);
+		assertThat(((Number) row.get("event_code")).intValue()).isEqualTo(6);
+		assertThat(((Number) row.get("result_code")).intValue()).isEqualTo(1);
+		assertThat((byte[]) row.get("ip")).hasSize(4);
+		assertThat(((Number) row.get("description_template")).intValue()).isEqualTo(AuditMessage.USER_DELETED.getId());
+
+		LogEntry read = logEntryRepository.findById(id).orElseThrow();
+		assertThat(read.getEventType()).isEqualTo("USER_DELETED");
+		assertThat(read.getResult()).isEqualTo("SUCCESS");
+		assertThat(read.getIpAddress()).isEqualTo("192.168.1.20");
+		assertThat(read.getDescription()).isEqualTo("El usuario 'maria' (ID: 42) ha sido eliminado.");
+	}
+
+	@Test
+	void keepsFreeTextAndIpv6() {
+		LogEntry entry = new LogEntry();
+		entry.setEventType("LOGIN_THROTTLED");
+		entry.setResult("FAILURE");
+		entry.setIpAddress("0:0:0:0:0:0:0:1");
+		entry.setDescription("texto libre");
+		Long id = logEntryRepository.saveAndFlush(entry).getId();
+		entityManager.clear();
+
+		LogEntry read = logEntryRepository.findById(id).orElseThrow();
+		assertThat(read.getIpAddress()).isEqualTo("0:0:0:0:0:0:0:1");
+		assertThat(read.getDescription()).isEqualTo("texto libre");
+	}
+
+	@Test
+	void unregisteredEventTypeMatchesNothing() {
+		assertThat(logEntryRepository.findAll(LogEntrySpecifications.hasEventType("NOT_A_TYPE"))).isEmpty();
+	}
+}
@@ -0,0 +1,113 @@
+package com.usersystem.sistemausuariosbackend.repository;
+
+import com.usersystem.sistemausuariosbackend.CapturingInspector;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ejecuta cada combinación de filtros de /api/logs con LogEntrySpecifications, captura el SQL
+ * que genera Hibernate y comprueba con EXPLAIN (H2) que el plan usa un índice de log_entries
+ * y no un recorrido completo de la tabla.
+ */
+@JpaSliceTest
+class LogEntryQueryPlanTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+	private static final LocalDateTime END = LocalDateTime.of(2025, 1, 31, 23, 59, 59);
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			LogEntry entry = new LogEntry();
+			entry.setEventType(AuditCodes.eventTypes().get(i % AuditCodes.eventTypes().size()));
+			entry.setUsername("user" + (i % 50));
+			entry.setTargetUsername("target" + (i % 40));
+			entry.setResult("SUCCESS");
+			entries.add(entry);
+		}
+		logEntryRepository.saveAllAndFlush(entries);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	// En H2, ANALYZE confirma la transacción del test: las filas se borran para no dejarlas al resto del contexto
+	@AfterTransaction
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM log_entries");
+	}
+
+	@Test
+	void everyFilterCombinationUsesAnIndex() throws Exception {
+		// Todas las combinaciones no vacías de {eventType, username, targetUsername, rango de fechas}
+		for (int mask = 1; mask < 16; mask++) {
+			String eventType = (mask & 1) != 0 ? "USER_CREATED" : null;
+			String username = (mask & 2) != 0 ? "user7" : null;
+			String targetUsername = (mask & 4) != 0 ? "target9" : null;
+			boolean range = (mask & 8) != 0;
+
+			CapturingInspector.SQL.clear();
+			logEntryRepository.findAll(
+					LogEntrySpecifications.filtered(eventType, username, targetUsername,
+							range ? START : null, range ? END : null),
+					PageRequest.of(0, 10, Sort.by("timestamp").descending()));
+			String select = CapturingInspector.SQL.stream()
+					.filter(sql -> sql.startsWith("select") && sql.contains("log_entries") && !sql.contains("count("))
+					.findFirst().orElseThrow();
+
+			List<Object> params = new ArrayList<>();
+			if (eventType != null) params.add(eventType);
+			if (username != null) params.add(username);
+			if (targetUsername != null) params.add(targetUsername);
+			if (range) {
+				params.add(START);
+				params.add(END);
+			}
+			String plan = explain(select, params);
+			assertThat(plan).as("mask %d: %s", mask, plan)
+					.containsIgnoringCase("IDX_LOG_")
+					.doesNotContainIgnoringCase("tableScan");
+		}
+	}
+
+	private String explain(String sql, List<Object> params) throws Exception {
+		return jdbcTemplate.execute((java.sql.Connection connection) -> {
+			// Los parámetros de paginación (LIMIT/OFFSET) van después de los filtros
+			try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+				int index = 1;
+				for (Object param : params) {
+					ps.setObject(index++, param);
+				}
+				int total = ps.getParameterMetaData().getParameterCount();
+				while (index <= total) {
+					ps.setInt(index++, 10);
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					return rs.getString(1);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,71 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.usersystem.sistemausuariosbackend.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTests {
+
+	@Test
+	void failsFastWhenPoolAndQueueAreFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder slow = new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return rawPassword.toString().equals(encodedPassword);
+			}
+		};
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, registry);
+		AtomicInteger busy = new AtomicInteger();
+		ExecutorService callers = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 4; i++) {
+			callers.submit(() -> {
+				try {
+					encoder.encode("secret");
+				} catch (PasswordHashingBusyException e) {
+					busy.incrementAndGet();
+				}
+			});
+		}
+
+		Thread.sleep(300);
+		release.countDown();
+		callers.shutdown();
+		assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+		encoder.destroy();
+
+		assertEquals(2, busy.get());
+		assertEquals(2.0, registry.get("password.hashing.rejected").counter().count());
+	}
+
+	@Test
+	void upgradeEncodingFollowsConfiguredStrength() {
+		String weakHash = new BCryptPasswordEncoder(4).encode("secret");
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 1, new SimpleMeterRegistry());
+
+		assertTrue(encoder.upgradeEncoding(weakHash));
+		assertTrue(encoder.matches("secret", weakHash));
+		encoder.destroy();
+	}
+}
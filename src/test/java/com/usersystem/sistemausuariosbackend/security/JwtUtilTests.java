@@ -0,0 +1,80 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTests {
+
+	private static final String SECRET = "547cf10bfa6dac7b909252a0bd5868042415f699110c186734619a748ef2c39a";
+
+	private JwtUtil jwtUtil;
+	private UserDetails admin;
+
+	@BeforeEach
+	void setUp() {
+		jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+		ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+		jwtUtil.init();
+		admin = new User("admin@test.com", "x", List.of(new SimpleGrantedAuthority("ADMIN")));
+	}
+
+	@Test
+	void verifyReturnsSubjectAndRoles() {
+		String token = jwtUtil.generateToken(admin);
+
+		VerifiedClaims claims = jwtUtil.verify(token);
+
+		assertEquals("admin@test.com", claims.getSubject());
+		assertEquals(List.of("ADMIN"), claims.getRoles());
+		assertFalse(claims.isExpired());
+		assertTrue(jwtUtil.validateToken(claims, admin));
+	}
+
+	@Test
+	void verifyCarriesSecurityVersion() {
+		VerifiedClaims claims = jwtUtil.verify(jwtUtil.generateToken(admin, 3));
+
+		assertEquals(3, claims.getSecurityVersion());
+	}
+
+	@Test
+	void principalTokensCarryUserIdRoleAndUsername() {
+		AuthenticatedUser principal = new AuthenticatedUser(42L, "admin@test.com", "x", "admin",
+				"Ada", "Lovelace", "12345678", "ADMIN", null, true, false, 1);
+
+		VerifiedClaims claims = jwtUtil.verify(jwtUtil.generateToken(principal));
+		AuthenticatedUser fromClaims = AuthenticatedUser.fromClaims(claims);
+
+		assertEquals("ADMIN", claims.getRole());
+		assertEquals(42L, fromClaims.getId());
+		assertEquals("admin", fromClaims.getAppUsername());
+		assertEquals("ADMIN", fromClaims.getRole());
+		assertEquals(1, fromClaims.getSecurityVersion());
+	}
+
+	@Test
+	void verifyRejectsTamperedToken() {
+		String token = jwtUtil.generateToken(admin);
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+		assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+	}
+
+	@Test
+	void validateTokenRejectsOtherUser() {
+		VerifiedClaims claims = jwtUtil.verify(jwtUtil.generateToken(admin));
+		UserDetails other = new User("other@test.com", "x", List.of());
+
+		assertFalse(jwtUtil.validateToken(claims, other));
+	}
+}
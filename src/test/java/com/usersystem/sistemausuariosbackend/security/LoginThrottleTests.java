@@ -0,0 +1,37 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.service.LogService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginThrottleTests {
+
+	private final LogService logService = mock(LogService.class);
+	private final LoginThrottle throttle = new LoginThrottle(10, 1, 2, 1, 1000, 15, logService, new SimpleMeterRegistry());
+
+	@Test
+	void rejectsEmailOnceBucketIsEmpty() {
+		assertTrue(throttle.tryAcquire("10.0.0.1", "a@test.com"));
+		assertTrue(throttle.tryAcquire("10.0.0.2", "A@test.com "));
+		assertFalse(throttle.tryAcquire("10.0.0.3", "a@test.com"));
+		assertTrue(throttle.tryAcquire("10.0.0.3", "b@test.com"));
+	}
+
+	@Test
+	void rejectionsAreReportedAsOneAggregatedRow() {
+		for (int i = 0; i < 5; i++) {
+			throttle.tryAcquire("10.0.0.1", "a@test.com");
+		}
+
+		throttle.reportRejections();
+		throttle.reportRejections();
+
+		verify(logService, times(1)).log(eq("LOGIN_THROTTLED"), isNull(), isNull(), isNull(), isNull(),
+				eq(AuditMessage.LOGIN_THROTTLED.with(3)), eq("FAILURE"), isNull());
+	}
+}
@@ -0,0 +1,47 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SecurityVersionRegistryTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	@Test
+	void cachedVersionIsServedWithoutQueryingAgain() {
+		SecurityVersionRegistry registry = new SecurityVersionRegistry(userRepository, 100, 60, new SimpleMeterRegistry());
+		when(userRepository.findSecurityVersionByEmail("a@test.com")).thenReturn(Optional.of(3));
+
+		assertTrue(registry.isCurrent("a@test.com", 3));
+		assertFalse(registry.isCurrent("a@test.com", 2));
+
+		verify(userRepository, times(1)).findSecurityVersionByEmail("a@test.com");
+	}
+
+	@Test
+	void expiredEntryPicksUpABumpMadeOnAnotherNode() {
+		SecurityVersionRegistry registry = new SecurityVersionRegistry(userRepository, 100, 0, new SimpleMeterRegistry());
+		when(userRepository.findSecurityVersionByEmail("a@test.com")).thenReturn(Optional.of(3), Optional.of(4));
+
+		assertTrue(registry.isCurrent("a@test.com", 3));
+		// Otro nodo ha subido la versión en la base de datos
+		assertFalse(registry.isCurrent("a@test.com", 3));
+	}
+
+	@Test
+	void revokedOrUnknownEmailMatchesNoToken() {
+		SecurityVersionRegistry registry = new SecurityVersionRegistry(userRepository, 100, 60, new SimpleMeterRegistry());
+		when(userRepository.findSecurityVersionByEmail(anyString())).thenReturn(Optional.empty());
+
+		assertFalse(registry.isCurrent("nadie@test.com", 0));
+		registry.update("b@test.com", 1);
+		registry.revoke("b@test.com");
+		assertFalse(registry.isCurrent("b@test.com", 1));
+	}
+}
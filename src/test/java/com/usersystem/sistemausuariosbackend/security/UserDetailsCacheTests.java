@@ -0,0 +1,72 @@
+package com.usersystem.sistemausuariosbackend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTests {
+
+	private final UserDetailsCache cache = new UserDetailsCache(100, 60, new SimpleMeterRegistry());
+
+	@Test
+	void concurrentMissesLoadOnce() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			pool.submit(() -> {
+				start.await();
+				return cache.get("a@test.com", email -> {
+					loads.incrementAndGet();
+					sleep();
+					return new User(email, "hash", List.of());
+				});
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void erasingReturnedCredentialsDoesNotTouchCachedEntry() {
+		UserDetails first = cache.get("a@test.com", email -> new User(email, "hash", List.of()));
+		((CredentialsContainer) first).eraseCredentials();
+
+		UserDetails second = cache.get("a@test.com", email -> fail("should be cached"));
+
+		assertEquals("hash", second.getPassword());
+		assertEquals(1, cache.stats().hitCount());
+	}
+
+	@Test
+	void evictForcesReload() {
+		cache.get("a@test.com", email -> new User(email, "old", List.of()));
+		cache.evict("a@test.com");
+
+		UserDetails reloaded = cache.get("a@test.com", email -> new User(email, "new", List.of()));
+
+		assertEquals("new", reloaded.getPassword());
+	}
+
+	private static void sleep() {
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
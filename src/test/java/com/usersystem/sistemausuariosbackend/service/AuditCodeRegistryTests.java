@@ -0,0 +1,119 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.payload.AuditIngestResult;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import com.usersystem.sistemausuariosbackend.security.IngestRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Códigos de tipos de evento y resultados de otros servicios: se asignan en su primer uso y se guardan
+ * en audit_codes (en una transacción propia, por eso se borran al terminar cada test).
+ */
+@JpaSliceTest
+@Import(IdBlockAllocator.class)
+class AuditCodeRegistryTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private IdBlockAllocator idBlockAllocator;
+
+	private AuditCodeRegistry registry;
+
+	@AfterEach
+	void tearDown() {
+		committed(() -> jdbcTemplate.update("DELETE FROM audit_codes"));
+		registry.reload();
+		registry.stop();
+	}
+
+	@Test
+	void ingestStoresAnotherServicesEventTypes() throws Exception {
+		registry = registry(1_000);
+		AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, logEntryRepository, idBlockAllocator, List.of(),
+				16, 100, 50, AuditLogWriter.Backpressure.CALLER_RUNS, 100, new SimpleMeterRegistry());
+		AuditIngestService ingest = new AuditIngestService(writer, registry, transactionManager,
+				new IngestRateLimiter(1_000, 1_000, new SimpleMeterRegistry()), new ObjectMapper().findAndRegisterModules(),
+				new SimpleMeterRegistry(), 100, 4_096, 1_000, 30);
+
+		AuditIngestResult result = ingest.ingest("billing", new ByteArrayInputStream(String.join("\n",
+				"{\"eventType\":\"INVOICE_PAID\",\"username\":\"billing\",\"result\":\"SUCCESS\"}",
+				"{\"eventType\":\"INVOICE_PAID\",\"username\":\"billing\",\"result\":\"RETRIED\"}",
+				"{\"eventType\":\"USER_CREATED\",\"username\":\"billing\",\"result\":\"SUCCESS\"}")
+				.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.getAccepted()).isEqualTo(3);
+		assertThat(result.getErrors()).isEmpty();
+		assertThat(jdbcTemplate.queryForList("SELECT DISTINCT event_code FROM log_entries WHERE username = 'billing'",
+				Short.class)).containsExactlyInAnyOrder(AuditCodes.FIRST_CUSTOM_EVENT_CODE, AuditCodes.eventCode("USER_CREATED"));
+		assertThat(logEntryRepository.findAll().stream().filter(entry -> "billing".equals(entry.getUsername()))
+				.map(entry -> entry.getEventType() + "/" + entry.getResult()))
+				.containsExactlyInAnyOrder("INVOICE_PAID/SUCCESS", "INVOICE_PAID/RETRIED", "USER_CREATED/SUCCESS");
+	}
+
+	@Test
+	void codeAssignedByAnotherNodeIsFoundOnFirstMiss() {
+		registry = registry(1_000);
+		committed(() -> jdbcTemplate.update("INSERT INTO audit_codes (kind, code, name) VALUES ('EVENT', 1000, 'SHIPMENT_SENT')"));
+
+		assertThat(AuditCodes.eventType(AuditCodes.FIRST_CUSTOM_EVENT_CODE)).isEqualTo("SHIPMENT_SENT");
+		// El siguiente nombre nuevo no reutiliza el código del otro nodo
+		assertThat(registry.eventCode("SHIPMENT_LOST")).isEqualTo((short) (AuditCodes.FIRST_CUSTOM_EVENT_CODE + 1));
+		assertThat(registry.eventCode("SHIPMENT_SENT")).isEqualTo(AuditCodes.FIRST_CUSTOM_EVENT_CODE);
+	}
+
+	@Test
+	void rejectsInvalidNamesAndStopsAtTheConfiguredLimit() {
+		registry = registry(1);
+
+		assertThatThrownBy(() -> registry.eventCode("invoice-paid")).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("no válido");
+		assertThatThrownBy(() -> registry.resultCode("R".repeat(AuditCodeRegistry.RESULT_NAME_LENGTH + 1)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> registry.eventCode(null)).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(registry.eventCode("INVOICE_PAID")).isEqualTo(AuditCodes.FIRST_CUSTOM_EVENT_CODE);
+		assertThatThrownBy(() -> registry.eventCode("INVOICE_VOIDED")).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("no quedan códigos libres");
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_codes", Integer.class)).isEqualTo(1);
+	}
+
+	private AuditCodeRegistry registry(int maxCustomEvents) {
+		AuditCodeRegistry created = new AuditCodeRegistry(jdbcTemplate, transactionManager, maxCustomEvents);
+		created.start();
+		return created;
+	}
+
+	// Fuera de la transacción del test, como lo haría otro nodo
+	private void committed(Runnable action) {
+		TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+		requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		requiresNew.executeWithoutResult(status -> action.run());
+	}
+}
@@ -0,0 +1,151 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.payload.AuditIngestResult;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import com.usersystem.sistemausuariosbackend.security.IngestRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuditIngestServiceTests {
+
+	private static final String VALID = "{\"eventType\":\"USER_CREATED\",\"username\":\"svc\",\"result\":\"SUCCESS\",\"ipAddress\":\"10.0.0.1\"}";
+
+	private final AuditLogWriter writer = mock(AuditLogWriter.class);
+	// Solo se usan nombres propios o no válidos: no llega a consultar la base de datos
+	private final AuditCodeRegistry codes = new AuditCodeRegistry(mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), 1_000);
+	// El servicio reutiliza la lista del lote: se copian los eventos al escribir
+	private final List<LogEntry> written = new ArrayList<>();
+
+	private AuditIngestService service(long eventsPerSecond, long burst, int batchSize) {
+		doAnswer(invocation -> written.addAll(invocation.getArgument(0))).when(writer).insertBatch(anyList());
+		return new AuditIngestService(writer, codes, mock(PlatformTransactionManager.class),
+				new IngestRateLimiter(eventsPerSecond, burst, new SimpleMeterRegistry()),
+				new ObjectMapper().registerModule(new JavaTimeModule()), new SimpleMeterRegistry(), batchSize, 512, 1_000_000, 30);
+	}
+
+	private static ByteArrayInputStream body(String... lines) {
+		return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void invalidLinesAreReportedWithoutRejectingTheRest() throws Exception {
+		AuditIngestResult result = service(1_000, 1_000, 2).ingest("svc", body(
+				VALID,
+				"{not json",
+				"{\"eventType\":\"user created\",\"result\":\"SUCCESS\"}",
+				"",
+				"{\"eventType\":\"USER_CREATED\",\"result\":\"SUCCESS\",\"ipAddress\":\"localhost\"}",
+				"{\"eventType\":\"USER_CREATED\",\"result\":\"SUCCESS\",\"extra\":1}",
+				"{\"eventType\":\"USER_CREATED\",\"result\":\"SUCCESS\",\"description\":\"" + "x".repeat(600) + "\"}",
+				VALID + "\r",
+				"{\"eventType\":\"USER_CREATED\",\"result\":\"SUCCESS\",\"timestamp\":\"2020-01-01T00:00:00\"}",
+				VALID));
+
+		assertEquals(3, result.getAccepted());
+		assertEquals(6, result.getRejected());
+		assertEquals(List.of(2L, 3L, 5L, 6L, 7L, 9L), result.getErrors().stream().map(AuditIngestResult.LineError::getLine).toList());
+		assertNull(result.getStoppedBy());
+		assertEquals(3, written.size());
+		assertEquals("10.0.0.1", written.get(0).getIpAddress());
+		verify(writer, times(2)).insertBatch(anyList());
+	}
+
+	@Test
+	void stopsAtTheFirstBatchOverTheRateLimit() throws Exception {
+		String[] lines = new String[10];
+		Arrays.fill(lines, VALID);
+
+		AuditIngestResult result = service(1, 4, 2).ingest("svc", body(lines));
+
+		assertEquals(4, result.getAccepted());
+		assertEquals(AuditIngestService.STOPPED_RATE_LIMITED, result.getStoppedBy());
+		assertEquals(5, result.getResumeFromLine());
+	}
+
+	@Test
+	void databaseFailureStopsWithTheLineToResumeFrom() throws Exception {
+		AuditIngestService service = service(1_000, 1_000, 2);
+		doAnswer(invocation -> {
+			throw new DataAccessResourceFailureException("down");
+		}).when(writer).insertBatch(argThat(batch -> !written.isEmpty()));
+
+		AuditIngestResult result = service.ingest("svc", body(VALID, VALID, VALID, VALID));
+
+		assertEquals(2, result.getAccepted());
+		assertEquals(AuditIngestService.STOPPED_DATABASE_UNAVAILABLE, result.getStoppedBy());
+		assertEquals(3, result.getResumeFromLine());
+	}
+
+	@Test
+	void listenersHearOnlyAboutBatchesThatCommitted() throws Exception {
+		List<LogEntry> notified = new ArrayList<>();
+		IdBlockAllocator ids = mock(IdBlockAllocator.class);
+		when(ids.allocate(anyString(), anyInt())).thenReturn(1L);
+		AuditLogWriter realWriter = new AuditLogWriter(mock(JdbcTemplate.class), mock(LogEntryRepository.class), ids,
+				List.of(notified::addAll), 16, 100, 50, AuditLogWriter.Backpressure.CALLER_RUNS, 100, new SimpleMeterRegistry());
+		// El segundo commit falla: su lote se deshace después de haberse insertado
+		CommitFailingTransactionManager transactionManager = new CommitFailingTransactionManager(2);
+		AuditIngestService service = new AuditIngestService(realWriter, codes, transactionManager,
+				new IngestRateLimiter(1_000, 1_000, new SimpleMeterRegistry()),
+				new ObjectMapper().registerModule(new JavaTimeModule()), new SimpleMeterRegistry(), 2, 512, 1_000_000, 30);
+
+		AuditIngestResult result = service.ingest("svc", body(VALID, VALID, VALID, VALID));
+
+		assertEquals(2, result.getAccepted());
+		assertEquals(AuditIngestService.STOPPED_DATABASE_UNAVAILABLE, result.getStoppedBy());
+		assertEquals(3, result.getResumeFromLine());
+		assertEquals(2, notified.size());
+	}
+
+	// Transacciones sin recurso detrás, con sincronización activa; el commit número failingCommit falla
+	private static class CommitFailingTransactionManager extends AbstractPlatformTransactionManager {
+
+		private final int failingCommit;
+		private int commits;
+
+		CommitFailingTransactionManager(int failingCommit) {
+			this.failingCommit = failingCommit;
+		}
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+			if (++commits == failingCommit) {
+				throw new TransactionSystemException("commit failed");
+			}
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Recuperación del journal local: un proceso que se mata mientras escribe no pierde nada de lo que
+ * llegó a sincronizar, y un lote que se corta a mitad de la inserción no se duplica al reproducirse.
+ */
+@JpaSliceTest
+@Import(IdBlockAllocator.class)
+class AuditJournalTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private IdBlockAllocator idBlockAllocator;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void killedWriterLosesNothingItSynced() throws Exception {
+		Process writer = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"), JournalWriterProcess.class.getName(), dir.toString())
+				.redirectErrorStream(true)
+				.start();
+		long lastSynced = -1;
+		try (BufferedReader output = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while (lastSynced < 3_000 && (line = output.readLine()) != null) {
+				if (line.startsWith("synced ")) {
+					lastSynced = Long.parseLong(line.substring(7));
+				}
+			}
+			// SIGKILL en plena escritura: sin @PreDestroy ni sincronización final
+			writer.destroyForcibly();
+			assertThat(writer.waitFor(30, TimeUnit.SECONDS)).isTrue();
+		}
+		assertThat(lastSynced).isGreaterThanOrEqualTo(3_000);
+
+		AuditJournal recovered = journal(writer());
+		recovered.recover();
+		while (recovered.replayOnce()) {
+			// Reproduce todo lo recuperado
+		}
+		List<Integer> numbers = jdbcTemplate.queryForList("SELECT username FROM log_entries", String.class).stream()
+				.map(username -> Integer.parseInt(username.substring(4))).sorted().toList();
+		// Todo lo sincronizado está, una sola vez y sin huecos (lo escrito después puede haberse perdido)
+		assertThat(numbers).doesNotHaveDuplicates();
+		assertThat(numbers.size()).isGreaterThan((int) lastSynced);
+		assertThat(numbers.get(numbers.size() - 1)).isEqualTo(numbers.size() - 1);
+
+		// Una segunda reproducción no inserta nada
+		AuditJournal again = journal(writer());
+		again.recover();
+		assertThat(again.replayOnce()).isFalse();
+		assertThat(logEntryRepository.count()).isEqualTo(numbers.size());
+	}
+
+	@Test
+	void flushInterruptedMidBatchIsNotDuplicated() throws Exception {
+		AuditLogWriter crashing = spy(writer());
+		doAnswer(invocation -> {
+			List<LogEntry> batch = invocation.getArgument(0);
+			// La mitad del lote llega a la base de datos y el proceso "muere" antes del checkpoint
+			invocation.callRealMethod();
+			jdbcTemplate.update("DELETE FROM log_entries WHERE journal_id IN (?, ?, ?, ?, ?)",
+					batch.subList(5, 10).stream().map(LogEntry::getJournalId).toArray());
+			throw new IllegalStateException("crash");
+		}).when(crashing).insertBatch(anyList());
+
+		AuditJournal first = journal(crashing);
+		first.recover();
+		for (int i = 0; i < 10; i++) {
+			first.append(entry(i));
+		}
+		first.sync();
+		assertThatThrownBy(first::replayOnce).hasMessage("crash");
+		assertThat(logEntryRepository.count()).isEqualTo(5);
+
+		AuditJournal restarted = journal(writer());
+		restarted.recover();
+		assertThat(restarted.replayOnce()).isTrue();
+		assertThat(restarted.replayOnce()).isFalse();
+
+		assertThat(logEntryRepository.count()).isEqualTo(10);
+		assertThat(jdbcTemplate.queryForList("SELECT DISTINCT journal_id FROM log_entries", Long.class)).hasSize(10);
+		LogEntry replayed = logEntryRepository.findAll().stream()
+				.filter(entry -> "user7".equals(entry.getUsername())).findFirst().orElseThrow();
+		assertThat(replayed.getDescription()).isEqualTo("Intento de login fallido: clave 7");
+		assertThat(replayed.getIpAddress()).isEqualTo("10.0.0.7");
+	}
+
+	@Test
+	void rejectedRowGoesToDeadLetterAndReplayMovesOn() throws Exception {
+		AuditJournal journal = journal(writer());
+		journal.recover();
+		for (int i = 0; i < 10; i++) {
+			LogEntry entry = entry(i);
+			if (i == 6) {
+				// Más largo que la columna username (journal escrito antes de que LogService recortara)
+				entry.setUsername("x".repeat(LogEntry.USERNAME_LENGTH + 50) + "@test.com");
+			}
+			journal.append(entry);
+		}
+		journal.sync();
+
+		assertThat(journal.replayOnce()).isTrue();
+		assertThat(journal.replayOnce()).isFalse();
+
+		assertThat(jdbcTemplate.queryForList("SELECT username FROM log_entries", String.class))
+				.hasSize(9).doesNotContain("user6");
+		assertThat(Files.size(dir.resolve("dead-letter.log"))).isPositive();
+
+		// Tras un reinicio se reanuda desde el checkpoint, sin volver a la fila descartada
+		AuditJournal restarted = journal(writer());
+		restarted.recover();
+		assertThat(restarted.replayOnce()).isFalse();
+		assertThat(logEntryRepository.count()).isEqualTo(9);
+	}
+
+	@Test
+	void replayExportsTheSameMetricsAsTheRingBuffer() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AuditJournal journal = new AuditJournal(jdbcTemplate, writer(), true, dir.toString(), 5, 4_096, 100, 1_000, registry);
+		journal.recover();
+		for (int i = 0; i < 7; i++) {
+			journal.append(entry(i));
+		}
+		journal.sync();
+		assertThat(registry.get("audit.queue.size").tag("pipeline", "journal").gauge().value()).isEqualTo(7);
+
+		assertThat(journal.replayOnce()).isTrue();
+
+		assertThat(registry.get("audit.queue.size").tag("pipeline", "journal").gauge().value()).isZero();
+		assertThat(registry.get("audit.batch.size").tag("pipeline", "journal").summary().totalAmount()).isEqualTo(7);
+		assertThat(registry.get("audit.flush.latency").tag("pipeline", "journal").timer().count()).isEqualTo(1);
+	}
+
+	private AuditLogWriter writer() {
+		return new AuditLogWriter(jdbcTemplate, logEntryRepository, idBlockAllocator, List.of(),
+				16, 100, 50, AuditLogWriter.Backpressure.CALLER_RUNS, 100, new SimpleMeterRegistry());
+	}
+
+	private AuditJournal journal(AuditLogWriter writer) {
+		return new AuditJournal(jdbcTemplate, writer, true, dir.toString(), 5, 4_096, 100, 1_000, new SimpleMeterRegistry());
+	}
+
+	static LogEntry entry(int i) {
+		LogEntry entry = new LogEntry();
+		entry.setEventType("LOGIN_ATTEMPT");
+		entry.setUsername("user" + i);
+		entry.setResult("FAILURE");
+		entry.setIpAddress("10.0.0." + (i % 250));
+		entry.applyDescription(AuditMessage.LOGIN_FAILED.with("clave " + i));
+		return entry;
+	}
+
+	/** Proceso aparte que escribe en el journal sin parar hasta que lo matan; avisa de cada sincronización. */
+	public static class JournalWriterProcess {
+		public static void main(String[] args) throws Exception {
+			AuditJournal journal = new AuditJournal(null, null, true, args[0], 5, 4_096, 100, 1_000, new SimpleMeterRegistry());
+			journal.recover();
+			for (int i = 0; ; i++) {
+				journal.append(entry(i));
+				if (i % 50 == 0) {
+					journal.sync();
+					System.out.println("synced " + i);
+				}
+			}
+		}
+	}
+}
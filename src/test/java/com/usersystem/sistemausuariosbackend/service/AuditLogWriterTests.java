@@ -0,0 +1,72 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuditLogWriterTests {
+
+	@Test
+	void shutdownDrainsEverythingInBatches() throws Exception {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		AtomicInteger written = new AtomicInteger();
+		AtomicInteger batches = new AtomicInteger();
+		when(jdbcTemplate.batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), anyInt(), any()))
+				.thenAnswer(invocation -> {
+					Collection<?> rows = invocation.getArgument(1);
+					assertTrue(rows.size() <= 100);
+					written.addAndGet(rows.size());
+					batches.incrementAndGet();
+					return new int[0][];
+				});
+		AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, mock(LogEntryRepository.class), mock(IdBlockAllocator.class), List.of(),
+				2048, 100, 50, AuditLogWriter.Backpressure.CALLER_RUNS, 100, new SimpleMeterRegistry());
+		writer.start();
+
+		for (int i = 0; i < 1000; i++) {
+			writer.submit(entry(i));
+		}
+		writer.shutdown();
+
+		assertEquals(1000, written.get());
+		assertTrue(batches.get() >= 10);
+	}
+
+	@Test
+	void dropPolicyCountsInsteadOfBlocking() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		LogEntryRepository repository = mock(LogEntryRepository.class);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AuditLogWriter stalled = new AuditLogWriter(jdbcTemplate, repository, mock(IdBlockAllocator.class), List.of(),
+				2, 100, 60_000, AuditLogWriter.Backpressure.DROP, 100, registry);
+		// Aceptando entradas pero sin hilo escritor: el buffer se llena enseguida
+		ReflectionTestUtils.setField(stalled, "running", true);
+
+		for (int i = 0; i < 5; i++) {
+			stalled.submit(entry(i));
+		}
+
+		assertEquals(3.0, registry.get("audit.dropped").counter().count());
+		verifyNoInteractions(repository);
+	}
+
+	private static LogEntry entry(int i) {
+		LogEntry entry = new LogEntry();
+		entry.setEventType("USER_LOGIN");
+		entry.setUsername("user" + i);
+		entry.setResult("SUCCESS");
+		return entry;
+	}
+}
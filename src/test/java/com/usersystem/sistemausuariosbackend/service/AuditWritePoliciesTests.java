@@ -0,0 +1,70 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditWritePoliciesTests {
+
+	private final AuditWritePolicies policies = new AuditWritePolicies(
+			new String[]{"USER_LOGIN:SAMPLE:3", "LOGIN_ATTEMPT:COALESCE:60", "USER_DELETED:SAMPLE:10"},
+			Set.of("USER_DELETED"), 100);
+
+	@Test
+	void samplesOneInNAndRecordsTheRate() {
+		int admitted = 0;
+		for (int i = 0; i < 9; i++) {
+			LogEntry entry = entry("USER_LOGIN", "10.0.0.1");
+			if (policies.admit(entry)) {
+				admitted++;
+				assertThat(entry.getSampleRate()).isEqualTo(3);
+			}
+		}
+		assertThat(admitted).isEqualTo(3);
+	}
+
+	@Test
+	void coalescesABurstPerKeyIntoOneRow() {
+		LogEntry first = entry("LOGIN_ATTEMPT", "10.0.0.1");
+		assertThat(policies.admit(first)).isFalse();
+		for (int i = 0; i < 4; i++) {
+			assertThat(policies.admit(entry("LOGIN_ATTEMPT", "10.0.0.1"))).isFalse();
+		}
+		// Otra IP es otra clave: otra ventana y otra fila
+		assertThat(policies.admit(entry("LOGIN_ATTEMPT", "10.0.0.2"))).isFalse();
+
+		assertThat(policies.drainClosedWindows(LocalDateTime.now())).isEmpty();
+		List<LogEntry> rows = policies.drainClosedWindows(LocalDateTime.MAX);
+		assertThat(rows).hasSize(2);
+		LogEntry burst = rows.stream().filter(row -> row.getIpAddress().equals("10.0.0.1")).findFirst().orElseThrow();
+		assertThat(burst.getOccurrenceCount()).isEqualTo(5);
+		assertThat(burst.getTimestamp()).isEqualTo(first.getTimestamp());
+		assertThat(burst.getLastTimestamp()).isAfterOrEqualTo(burst.getTimestamp());
+		LogEntry single = rows.stream().filter(row -> row.getIpAddress().equals("10.0.0.2")).findFirst().orElseThrow();
+		assertThat(single.getOccurrenceCount()).isEqualTo(1);
+		assertThat(single.getLastTimestamp()).isNull();
+	}
+
+	@Test
+	void securityEventsStayExact() {
+		for (int i = 0; i < 5; i++) {
+			LogEntry entry = entry("USER_DELETED", "10.0.0.1");
+			assertThat(policies.admit(entry)).isTrue();
+			assertThat(entry.getSampleRate()).isNull();
+		}
+	}
+
+	private static LogEntry entry(String eventType, String ip) {
+		LogEntry entry = new LogEntry();
+		entry.setEventType(eventType);
+		entry.setUsername("ana@example.com");
+		entry.setIpAddress(ip);
+		entry.setResult("FAILURE");
+		return entry;
+	}
+}
@@ -0,0 +1,155 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@JpaSliceTest
+class LogArchiveServiceTests {
+
+	private static final LocalDateTime OLD = LocalDateTime.of(2020, 3, 1, 12, 0);
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@TempDir
+	Path archiveDir;
+
+	private LogArchiveService archive;
+	private LogService logService;
+
+	@BeforeEach
+	void setUp() {
+		ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+		// Segmentos de 3 filas y borrado de 2 en 2 para que haya varios de cada
+		archive = new LogArchiveService(entityManager, jdbcTemplate, transactionManager, objectMapper,
+				true, 30, archiveDir.toString(), 3, 2, 100);
+		logService = new LogService(logEntryRepository, mock(AuditLogWriter.class),
+				new AuditWritePolicies(new String[0], Set.of(), 100), false, entityManager, jdbcTemplate, 5,
+				objectMapper, 100, archive, mock(AuditJournal.class),
+				mock(AuditCodeRegistry.class));
+		for (int i = 0; i < 7; i++) {
+			insertOld(1_000 + i, OLD.plusDays(i), i % 2 == 0 ? "USER_LOGIN" : "USER_DELETED");
+		}
+		for (int i = 0; i < 3; i++) {
+			LogEntry entry = new LogEntry();
+			entry.setEventType("USER_LOGIN");
+			entry.setResult("SUCCESS");
+			entry.setUsername("recent");
+			logEntryRepository.save(entry);
+		}
+		logEntryRepository.flush();
+	}
+
+	@Test
+	void movesExpiredRowsIntoIndexedSegments() throws IOException {
+		assertThat(archive.archiveExpired()).isEqualTo(7);
+
+		assertThat(logEntryRepository.count()).isEqualTo(3);
+		assertThat(files(".ndjson.gz")).hasSize(3);
+		assertThat(files(".idx.json")).hasSize(3);
+		assertThat(archive.reaches(OLD)).isTrue();
+		assertThat(archive.reaches(LocalDateTime.now().minusDays(1))).isFalse();
+
+		LogArchiveService.Filter deletions = new LogArchiveService.Filter("USER_DELETED", null, null, OLD, null);
+		assertThat(archive.count(deletions)).isEqualTo(3);
+		assertThat(archive.slice(deletions, 0, 10, false, 3)).extracting(LogEntry::getId)
+				.containsExactly(1_001L, 1_003L, 1_005L);
+
+		// Tras un reinicio el archivo se reconstruye a partir de los índices
+		LogArchiveService restarted = new LogArchiveService(entityManager, jdbcTemplate, transactionManager,
+				new ObjectMapper().findAndRegisterModules(), true, 30, archiveDir.toString(), 3, 2, 100);
+		restarted.loadSegments();
+		assertThat(restarted.count(deletions)).isEqualTo(3);
+	}
+
+	@Test
+	void getLogsMergesTableAndArchiveAcrossTheHorizon() {
+		archive.archiveExpired();
+
+		Page<LogEntry> newest = logService.getLogs(null, null, null, OLD, null,
+				PageRequest.of(0, 4, Sort.by("timestamp").descending()));
+		assertThat(newest.getTotalElements()).isEqualTo(10);
+		assertThat(newest.getContent()).extracting(LogEntry::getUsername).containsExactly("recent", "recent", "recent", null);
+		assertThat(newest.getContent().get(3).getId()).isEqualTo(1_006L);
+
+		Page<LogEntry> oldest = logService.getLogs(null, null, null, OLD, null,
+				PageRequest.of(2, 4, Sort.by("timestamp").descending()));
+		assertThat(oldest.getContent()).extracting(LogEntry::getId).containsExactly(1_001L, 1_000L);
+
+		Page<LogEntry> ascending = logService.getLogs(null, null, null, OLD, null,
+				PageRequest.of(1, 4, Sort.by("timestamp").ascending()));
+		assertThat(ascending.getContent()).extracting(LogEntry::getUsername).containsExactly(null, null, null, "recent");
+
+		// Sin fecha de inicio (o posterior al archivo) solo se consulta la tabla
+		assertThat(logService.getLogs(null, null, null, null, null, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(3);
+	}
+
+	@Test
+	void nextRunFinishesAnInterruptedDelete() throws IOException {
+		archive.archiveExpired();
+		// Simula una caída entre la escritura del segmento y el borrado de sus filas
+		insertOld(1_006, OLD.plusDays(6), "USER_LOGIN");
+
+		assertThat(archive.archiveExpired()).isZero();
+		assertThat(logEntryRepository.count()).isEqualTo(3);
+		assertThat(files(".ndjson.gz")).hasSize(3);
+	}
+
+	@Test
+	void interruptedDeleteKeepsLateRowsThatWereNotArchived() {
+		archive.archiveExpired();
+		// Fila que llega tarde con un timestamp dentro del rango ya archivado: no está en ningún segmento
+		insertOld(2_000, OLD.plusDays(1), "USER_LOGIN");
+
+		archive.archiveExpired();
+
+		assertThat(logEntryRepository.existsById(2_000L)).isTrue();
+	}
+
+	private void insertOld(long id, LocalDateTime timestamp, String eventType) {
+		jdbcTemplate.update("INSERT INTO log_entries (id, timestamp, event_code, result_code, description_template, "
+						+ "description_params, occurrence_count) VALUES (?, ?, ?, ?, 0, ?, 1)",
+				id, Timestamp.valueOf(timestamp), AuditCodes.eventCode(eventType), AuditCodes.resultCode("SUCCESS"),
+				"evento " + id);
+	}
+
+	private List<Path> files(String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(archiveDir)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(suffix)).toList();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.controller.LogController;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class LogEventBroadcasterTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final LogEntryRepository repository = mock(LogEntryRepository.class);
+
+	@Test
+	void deliversOnlyMatchingEventsToEachSubscriber() throws Exception {
+		LogEventBroadcaster broadcaster = new LogEventBroadcaster(repository, 16, 10, 100, 60_000, registry);
+		MockMvc mvc = mockMvc(broadcaster);
+		MvcResult logins = mvc.perform(get("/api/logs/stream").param("eventType", "USER_LOGIN"))
+				.andExpect(request().asyncStarted()).andReturn();
+		MvcResult failures = mvc.perform(get("/api/logs/stream").param("result", "FAILURE"))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		broadcaster.publish(List.of(entry(1, "USER_LOGIN", "SUCCESS"), entry(2, "USER_UPDATED", "FAILURE"),
+				entry(3, "USER_LOGIN", "FAILURE")));
+
+		String loginStream = awaitContent(logins, "id:3");
+		assertThat(loginStream).contains("id:1").doesNotContain("id:2");
+		String failureStream = awaitContent(failures, "id:3");
+		assertThat(failureStream).contains("id:2").doesNotContain("id:1");
+	}
+
+	@Test
+	void resumesAfterLastEventId() throws Exception {
+		LogEventBroadcaster broadcaster = new LogEventBroadcaster(repository, 16, 10, 100, 60_000, registry);
+		broadcaster.publish(List.of(entry(1, "USER_LOGIN", "SUCCESS"), entry(2, "USER_LOGIN", "SUCCESS")));
+
+		MvcResult resumed = mockMvc(broadcaster).perform(get("/api/logs/stream").header("Last-Event-ID", "1"))
+				.andExpect(request().asyncStarted()).andReturn();
+		broadcaster.publish(List.of(entry(3, "USER_LOGIN", "SUCCESS")));
+
+		assertThat(awaitContent(resumed, "id:3")).contains("id:2").doesNotContain("id:1\n");
+	}
+
+	@Test
+	void evictsSubscriberWhoseQueueOverflows() throws Exception {
+		// La reanudación desde la BD queda bloqueada: el suscriptor no consume su cola mientras tanto
+		CountDownLatch release = new CountDownLatch(1);
+		when(repository.findById(anyLong())).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return Optional.empty();
+		});
+		LogEventBroadcaster broadcaster = new LogEventBroadcaster(repository, 2, 10, 100, 60_000, registry);
+		mockMvc(broadcaster).perform(get("/api/logs/stream").header("Last-Event-ID", "99"))
+				.andExpect(request().asyncStarted());
+		assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+
+		broadcaster.publish(List.of(entry(1, "USER_LOGIN", "SUCCESS"), entry(2, "USER_LOGIN", "SUCCESS"),
+				entry(3, "USER_LOGIN", "SUCCESS")));
+
+		assertThat(broadcaster.subscriberCount()).isZero();
+		assertThat(registry.counter("audit.stream.evicted").count()).isEqualTo(1);
+		release.countDown();
+	}
+
+	@Test
+	void onlyTheExportGetsTheLongAsyncTimeout() throws Exception {
+		LogEventBroadcaster broadcaster = new LogEventBroadcaster(repository, 16, 10, 100, 60_000, registry);
+		MockMvc mvc = mockMvc(broadcaster);
+
+		MvcResult export = mvc.perform(get("/api/logs/export")).andExpect(request().asyncStarted()).andReturn();
+		MvcResult stream = mvc.perform(get("/api/logs/stream")).andExpect(request().asyncStarted()).andReturn();
+
+		assertThat(export.getRequest().getAsyncContext().getTimeout()).isEqualTo(3_600_000);
+		assertThat(stream.getRequest().getAsyncContext().getTimeout()).isEqualTo(60_000);
+	}
+
+	private static MockMvc mockMvc(LogEventBroadcaster broadcaster) {
+		return MockMvcBuilders.standaloneSetup(new LogController(mock(LogService.class), broadcaster, mock(LogRollupService.class), 3_600_000)).build();
+	}
+
+	private static String awaitContent(MvcResult result, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5_000;
+		String content = result.getResponse().getContentAsString();
+		while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+			content = result.getResponse().getContentAsString();
+		}
+		return content;
+	}
+
+	private static LogEntry entry(long id, String eventType, String result) {
+		LogEntry entry = new LogEntry();
+		entry.setId(id);
+		entry.setEventType(eventType);
+		entry.setUsername("user");
+		entry.setResult(result);
+		return entry;
+	}
+}
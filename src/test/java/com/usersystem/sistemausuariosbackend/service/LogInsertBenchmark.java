@@ -0,0 +1,80 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserta 100.000 entradas de log en dos tablas temporales de MySQL: con IDs IDENTITY
+ * (una sentencia por fila, como hacía Hibernate) y con IDs por bloques + JDBC batch.
+ * No lo ejecuta surefire por defecto y necesita una base de datos de pruebas:
+ * mvn test -Dtest=LogInsertBenchmark -Dbenchmark.db.url=jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true
+ *     -Dbenchmark.db.user=root -Dbenchmark.db.password=...
+ */
+class LogInsertBenchmark {
+
+	private static final int ROWS = 100_000;
+	private static final int BATCH_SIZE = 500;
+	private static final String COLUMNS = "timestamp DATETIME(6) NOT NULL, event_type VARCHAR(255) NOT NULL, "
+			+ "username VARCHAR(255), description VARCHAR(255), result VARCHAR(255) NOT NULL, ip_address VARCHAR(255)";
+
+	@Test
+	void compareInsertsPerSecond() {
+		String url = System.getProperty("benchmark.db.url");
+		Assumptions.assumeTrue(url != null, "benchmark.db.url no configurada");
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(url,
+				System.getProperty("benchmark.db.user", "root"), System.getProperty("benchmark.db.password", ""));
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+		jdbc.execute("DROP TABLE IF EXISTS bench_identity");
+		jdbc.execute("DROP TABLE IF EXISTS bench_pooled");
+		jdbc.execute("CREATE TABLE bench_identity (id BIGINT AUTO_INCREMENT PRIMARY KEY, " + COLUMNS + ")");
+		jdbc.execute("CREATE TABLE bench_pooled (id BIGINT PRIMARY KEY, " + COLUMNS + ")");
+		jdbc.execute("CREATE TABLE IF NOT EXISTS " + IdBlockAllocator.TABLE
+				+ " (sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT)");
+		jdbc.update("DELETE FROM " + IdBlockAllocator.TABLE + " WHERE sequence_name = 'bench_pooled'");
+		IdBlockAllocator allocator = new IdBlockAllocator(jdbc, transactionManager);
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+			tx.executeWithoutResult(status -> {
+				for (int j = 0; j < BATCH_SIZE; j++) {
+					jdbc.update("INSERT INTO bench_identity (timestamp, event_type, username, description, result, ip_address) "
+							+ "VALUES (?, 'USER_LOGIN', 'bench', 'benchmark', 'SUCCESS', '127.0.0.1')", now);
+				}
+			});
+		}
+		double identity = ROWS / ((System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+			long nextId = allocator.allocate("bench_pooled", BATCH_SIZE);
+			batch.clear();
+			for (int j = 0; j < BATCH_SIZE; j++) {
+				batch.add(new Object[]{nextId++, now});
+			}
+			tx.executeWithoutResult(status -> jdbc.batchUpdate(
+					"INSERT INTO bench_pooled (id, timestamp, event_type, username, description, result, ip_address) "
+							+ "VALUES (?, ?, 'USER_LOGIN', 'bench', 'benchmark', 'SUCCESS', '127.0.0.1')", batch));
+		}
+		double pooled = ROWS / ((System.nanoTime() - start) / 1e9);
+
+		System.out.printf("identity (fila a fila): %,.0f inserts/s%npooled-lo + batch:      %,.0f inserts/s%nspeedup: %,.1fx%n",
+				identity, pooled, pooled / identity);
+		jdbc.execute("DROP TABLE bench_identity");
+		jdbc.execute("DROP TABLE bench_pooled");
+	}
+}
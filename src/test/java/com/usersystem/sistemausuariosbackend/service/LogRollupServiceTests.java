@@ -0,0 +1,141 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditCodes;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.model.RollupGranularity;
+import com.usersystem.sistemausuariosbackend.payload.LogStatsPoint;
+import com.usersystem.sistemausuariosbackend.repository.LogRollupRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// H2 en modo MySQL: el volcado usa INSERT ... ON DUPLICATE KEY UPDATE
+@JpaSliceTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LogRollupServiceTests {
+
+	@Autowired
+	private LogRollupRepository logRollupRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private LogRollupService rollups;
+
+	@BeforeEach
+	void setUp() {
+		rollups = new LogRollupService(logRollupRepository, jdbcTemplate, entityManager, transactionManager, 100, 180);
+	}
+
+	@Test
+	void flushesCountersAdditivelyIntoEveryGranularity() {
+		rollups.onPersisted(entries(5, "LOGIN_ATTEMPT", "FAILURE"));
+		rollups.onPersisted(entries(2, "USER_LOGIN", "SUCCESS"));
+		rollups.flush();
+		rollups.onPersisted(entries(3, "LOGIN_ATTEMPT", "FAILURE"));
+		rollups.flush();
+
+		LocalDateTime from = LocalDateTime.now().minusDays(1);
+		LocalDateTime to = LocalDateTime.now().plusDays(1);
+		assertThat(total(rollups.getStats(RollupGranularity.DAY, from, to, "LOGIN_ATTEMPT", "FAILURE"))).isEqualTo(8);
+		assertThat(total(rollups.getStats(RollupGranularity.HOUR, from, to, "LOGIN_ATTEMPT", null))).isEqualTo(8);
+		assertThat(total(rollups.getStats(RollupGranularity.MINUTE, from, to, null, null))).isEqualTo(10);
+	}
+
+	@Test
+	void backfillRebuildsPastDaysFromHistory() {
+		LocalDate day = LocalDate.now().minusDays(3);
+		insertHistory(day.atTime(9, 15), "LOGIN_ATTEMPT", "FAILURE", 4);
+		insertHistory(day.atTime(10, 0), "LOGIN_ATTEMPT", "FAILURE", 1);
+		insertHistory(day.atTime(10, 0), "USER_LOGIN", "SUCCESS", 2);
+
+		rollups.backfill(day, day.plusDays(1));
+		// Repetirlo reemplaza en lugar de duplicar
+		rollups.backfill(day, day.plusDays(1));
+
+		List<LogStatsPoint> hourly = rollups.getStats(RollupGranularity.HOUR, day.atStartOfDay(),
+				day.plusDays(1).atStartOfDay(), "LOGIN_ATTEMPT", "FAILURE");
+		assertThat(hourly).extracting(LogStatsPoint::getCount).containsExactly(4L, 1L);
+		assertThat(total(rollups.getStats(RollupGranularity.DAY, day.atStartOfDay(),
+				day.plusDays(1).atStartOfDay(), null, null))).isEqualTo(7);
+	}
+
+	@Test
+	void backfillDropsTheDaysInMemoryCountersInsteadOfAddingThemAgain() {
+		LocalDate day = LocalDate.now().minusDays(2);
+		insertHistory(day.atTime(11, 0), "USER_LOGIN", "SUCCESS", 3);
+		// Las mismas filas, ya contadas en memoria al guardarse y aún sin volcar
+		rollups.onPersisted(entries(3, day.atTime(11, 0), "USER_LOGIN", "SUCCESS"));
+
+		rollups.backfill(day, day.plusDays(1));
+		rollups.flush();
+
+		assertThat(total(rollups.getStats(RollupGranularity.DAY, day.atStartOfDay(),
+				day.plusDays(1).atStartOfDay(), "USER_LOGIN", null))).isEqualTo(3);
+	}
+
+	@Test
+	void refusesToBackfillDaysThatMayBeArchived() {
+		LocalDate archived = LocalDate.now().minusDays(200);
+
+		assertThatThrownBy(() -> rollups.startBackfill(archived, archived.plusDays(1)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(rollups.firstBackfillDay()).isAfter(LocalDate.now().minusDays(181));
+	}
+
+	private void insertHistory(LocalDateTime timestamp, String eventType, String result, int count) {
+		for (int i = 0; i < count; i++) {
+			jdbcTemplate.update("INSERT INTO log_entries (id, timestamp, event_code, result_code, description_template) "
+					+ "VALUES (?, ?, ?, ?, 0)",
+					System.nanoTime(), Timestamp.valueOf(timestamp), AuditCodes.eventCode(eventType), AuditCodes.resultCode(result));
+		}
+	}
+
+	private static List<LogEntry> entries(int count, LocalDateTime timestamp, String eventType, String result) {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LogEntry entry = LogEntry.restored(timestamp);
+			entry.setEventType(eventType);
+			entry.setResult(result);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static List<LogEntry> entries(int count, String eventType, String result) {
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LogEntry entry = new LogEntry();
+			entry.setEventType(eventType);
+			entry.setResult(result);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static long total(List<LogStatsPoint> points) {
+		return points.stream().mapToLong(LogStatsPoint::getCount).sum();
+	}
+}
@@ -0,0 +1,127 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.AuditMessage;
+import com.usersystem.sistemausuariosbackend.model.LogEntry;
+import com.usersystem.sistemausuariosbackend.payload.LogCountEstimate;
+import com.usersystem.sistemausuariosbackend.payload.LogCursorPage;
+import com.usersystem.sistemausuariosbackend.repository.LogEntryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@JpaSliceTest
+class LogServiceTests {
+
+	@Autowired
+	private LogEntryRepository logEntryRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private LogService logService;
+
+	@BeforeEach
+	void setUp() {
+		logService = new LogService(logEntryRepository, mock(AuditLogWriter.class),
+				new AuditWritePolicies(new String[0], Set.of(), 100), false, entityManager, jdbcTemplate, 5,
+				new ObjectMapper().findAndRegisterModules(), 100, mock(LogArchiveService.class), mock(AuditJournal.class),
+				mock(AuditCodeRegistry.class));
+		List<LogEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 23; i++) {
+			LogEntry entry = new LogEntry();
+			// Muchas entradas comparten timestamp: el id desempata
+			entry.setEventType(i % 2 == 0 ? "USER_LOGIN" : "USER_UPDATED");
+			entry.setUsername("user");
+			entry.setResult("SUCCESS");
+			entries.add(entry);
+		}
+		logEntryRepository.saveAllAndFlush(entries);
+	}
+
+	@Test
+	void truncatesUsernamesLongerThanTheColumn() {
+		String email = "x".repeat(LogEntry.USERNAME_LENGTH + 50) + "@test.com";
+
+		LogEntry saved = logService.log("LOGIN_ATTEMPT", email, null, null, null,
+				AuditMessage.LOGIN_FAILED.with("clave"), "FAILURE", "10.0.0.1");
+
+		assertThat(logEntryRepository.findById(saved.getId())).get()
+				.extracting(LogEntry::getUsername).isEqualTo(email.substring(0, LogEntry.USERNAME_LENGTH));
+	}
+
+	@Test
+	void walksEveryFilteredEntryOnceInDescendingOrder() {
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			LogCursorPage page = logService.getLogsByCursor("USER_LOGIN", null, null, null, null, cursor, 5);
+			page.getContent().forEach(entry -> {
+				assertThat(entry.getEventType()).isEqualTo("USER_LOGIN");
+				seen.add(entry.getId());
+			});
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(12).doesNotHaveDuplicates();
+		assertThat(seen).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+	}
+
+	@Test
+	void countIsCappedAndRejectsBadCursor() {
+		LogCountEstimate capped = logService.countLogs("USER_UPDATED", null, null, null, null);
+		assertThat(capped.isExact()).isFalse();
+		assertThat(capped.getTotal()).isEqualTo(5);
+		assertThat(logService.countLogs(null, "nobody", null, null, null).getTotal()).isZero();
+		assertThatThrownBy(() -> logService.getLogsByCursor(null, null, null, null, null, "not-a-cursor", 5))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void exportsEveryFilteredRowAsCsvAndNdjson() throws IOException {
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		long rows = logService.exportLogs("USER_UPDATED", null, null, null, null, LogExportFormat.CSV, csv);
+		String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(rows).isEqualTo(11);
+		assertThat(lines).hasSize(12);
+		assertThat(lines[0]).startsWith("id,timestamp,eventType");
+
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		logService.exportLogs(null, null, null, null, null, LogExportFormat.NDJSON, ndjson);
+		assertThat(ndjson.toString(StandardCharsets.UTF_8).split("\n")).hasSize(23)
+				.allSatisfy(line -> assertThat(line).startsWith("{\"id\":"));
+		assertThat(LogService.csv("a,\"b\"")).isEqualTo("\"a,\"\"b\"\"\"");
+		assertThat(LogService.csv("=cmd()")).isEqualTo("'=cmd()");
+	}
+
+	@Test
+	void exportStopsWhenTheClientDisconnects() {
+		// Simula el cierre de la conexión: la escritura falla en cuanto se vacía el primer buffer
+		OutputStream disconnected = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+		};
+		assertThatThrownBy(() -> logService.exportLogs(null, null, null, null, null, LogExportFormat.CSV, disconnected))
+				.isInstanceOf(IOException.class);
+	}
+}
@@ -0,0 +1,69 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compara el coste de CPU de un login (BCrypt + firma JWT) frente a una renovación
+ * con refresh token (SHA-256 + firma JWT). No lo ejecuta surefire por defecto:
+ * mvn test -Dtest=LoginVsRefreshBenchmark
+ */
+class LoginVsRefreshBenchmark {
+
+	private static final long DURATION_MS = 5_000;
+
+	@Test
+	void compareThroughput() throws Exception {
+		JwtUtil jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "secret", "547cf10bfa6dac7b909252a0bd5868042415f699110c186734619a748ef2c39a");
+		ReflectionTestUtils.setField(jwtUtil, "expiration", 900_000L);
+		ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+		String storedHash = encoder.encode("MAR@ssword123");
+		String storedRefreshHash = RefreshTokenService.hash("refresh-token-value");
+		UserDetails user = new User("marcelita@gmail.com", storedHash, List.of(new SimpleGrantedAuthority("ADMIN")));
+
+		double login = opsPerSecond(() -> {
+			if (encoder.matches("MAR@ssword123", storedHash)) {
+				jwtUtil.generateToken(user, 0);
+			}
+		});
+		double refresh = opsPerSecond(() -> {
+			if (RefreshTokenService.hash("refresh-token-value").equals(storedRefreshHash)) {
+				jwtUtil.generateToken(user, 0);
+			}
+		});
+
+		System.out.printf("login:   %,.0f ops/s%nrefresh: %,.0f ops/s%nspeedup: %,.0fx%n", login, refresh, refresh / login);
+	}
+
+	private static double opsPerSecond(Runnable operation) throws InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		LongAdder ops = new LongAdder();
+		long deadline = System.currentTimeMillis() + DURATION_MS;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; i++) {
+			pool.submit(() -> {
+				while (System.currentTimeMillis() < deadline) {
+					operation.run();
+					ops.increment();
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(DURATION_MS * 2, TimeUnit.MILLISECONDS);
+		return ops.sum() * 1000.0 / DURATION_MS;
+	}
+}
@@ -0,0 +1,68 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTests {
+
+	@Test
+	void rejectsWhenFull() {
+		MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(99));
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(4, buffer.drainTo(drained, 10));
+		assertEquals(List.of(0, 1, 2, 3), drained);
+		assertTrue(buffer.offer(4));
+	}
+
+	@Test
+	void concurrentProducersLoseNothing() throws Exception {
+		MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1024);
+		int producers = 4;
+		int perProducer = 50_000;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(producers);
+		for (int p = 0; p < producers; p++) {
+			int base = p * perProducer;
+			pool.submit(() -> {
+				start.await();
+				for (int i = 0; i < perProducer; i++) {
+					while (!buffer.offer(base + i)) {
+						Thread.onSpinWait();
+					}
+				}
+				return null;
+			});
+		}
+		start.countDown();
+
+		Set<Integer> seen = new HashSet<>();
+		List<Integer> chunk = new ArrayList<>();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+			chunk.clear();
+			buffer.drainTo(chunk, 256);
+			for (Integer value : chunk) {
+				assertTrue(seen.add(value), "duplicate " + value);
+			}
+		}
+		pool.shutdown();
+
+		assertEquals(producers * perProducer, seen.size());
+	}
+}
@@ -0,0 +1,196 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.CapturingInspector;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.UserCursorPage;
+import com.usersystem.sistemausuariosbackend.payload.UserSummaryDto;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cuenta las sentencias SQL del listado de usuarios y del login (UserDetailsServiceImpl) para comprobar
+ * que el rol se resuelve desde RoleRegistry o la caché de segundo nivel, sin JOIN ni consultas a roles.
+ * Los datos se confirman (sin transacción de test) para que la caché de segundo nivel los vea.
+ */
+@JpaSliceTest
+@TestPropertySource(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+		"spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+		"spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+		"spring.jpa.properties.hibernate.javax.cache.uri=hibernate-cache.conf",
+		"spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail",
+		"spring.jpa.properties.jakarta.persistence.sharedCache.mode=ENABLE_SELECTIVE"
+})
+@Import({UserService.class, RoleRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RoleResolutionQueryCountTests {
+
+	@MockitoBean
+	private SecurityVersionRegistry securityVersionRegistry;
+
+	@MockitoBean
+	private UserDetailsCache userDetailsCache;
+
+	@MockitoBean
+	private UserAvailabilityIndex availabilityIndex;
+
+	@MockitoBean
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private RoleRegistry roleRegistry;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeEach
+	void seed() {
+		Role admin = roleRepository.save(new Role(null, "ADMIN"));
+		Role employee = roleRepository.save(new Role(null, "EMPLEADO"));
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			User user = new User();
+			user.setUsername("user" + i);
+			user.setEmail("user" + i + "@test.com");
+			user.setPassword("Secret#123");
+			user.setFirstName("Nombre");
+			user.setLastName("Apellido" + i);
+			user.setRole(i < 2 ? admin : employee);
+			users.add(user);
+		}
+		userRepository.saveAll(users);
+		roleRegistry.refresh();
+		CapturingInspector.SQL.clear();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		userRepository.deleteAllInBatch();
+		roleRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void userListIsASingleSelectWithoutRolesJoin() {
+		UserCursorPage page = userService.listUsers(null, null, null, null, null, false, "username", false, null, 50);
+
+		assertThat(CapturingInspector.SQL).hasSize(1);
+		assertThat(CapturingInspector.SQL.get(0)).contains("users").doesNotContain("roles").doesNotContain("join");
+		assertThat(page.getContent()).hasSize(12);
+		assertThat(page.getContent()).filteredOn(row -> row.getUsername().equals("user0"))
+				.extracting(UserSummaryDto::getRole).containsExactly("ADMIN");
+		assertThat(page.getContent()).filteredOn(row -> row.getUsername().equals("user5"))
+				.extracting(UserSummaryDto::getRole).containsExactly("EMPLEADO");
+	}
+
+	@Test
+	void supervisorScopedListFiltersByRoleIdWithoutQueryingRoles() {
+		UserCursorPage page = userService.listUsers(null, null, null, null, null, true, "username", false, null, 50);
+
+		assertThat(CapturingInspector.SQL).hasSize(1);
+		assertThat(CapturingInspector.SQL.get(0)).doesNotContain("roles");
+		assertThat(page.getContent()).hasSize(10).allMatch(row -> row.getRole().equals("EMPLEADO"));
+	}
+
+	@Test
+	void entityListResolvesLazyRolesFromTheSecondLevelCache() {
+		List<String> roleNames = new TransactionTemplate(transactionManager).execute(status ->
+				userService.getAllUsers().stream().map(user -> user.getRole().getName()).toList());
+
+		assertThat(roleNames).hasSize(12).containsOnly("ADMIN", "EMPLEADO");
+		assertThat(CapturingInspector.SQL).hasSize(1);
+		assertThat(CapturingInspector.SQL.get(0)).doesNotContain("roles");
+	}
+
+	@Test
+	void loginLoadsTheUserWithOneStatementOutsideAnySession() {
+		// Igual que JwtAuthFilter: sin transacción ni sesión abierta
+		UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository,
+				new UserDetailsCache(100, 60, new SimpleMeterRegistry()), roleRegistry);
+
+		UserDetails user = userDetailsService.loadUserByUsername("user0@test.com");
+
+		assertThat(user.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ADMIN");
+		assertThat(CapturingInspector.SQL).hasSize(1);
+		assertThat(CapturingInspector.SQL.get(0)).contains("users").doesNotContain("roles");
+
+		// La segunda vez sale de la caché de usuarios
+		userDetailsService.loadUserByUsername("user0@test.com");
+		assertThat(CapturingInspector.SQL).hasSize(1);
+	}
+
+	@Test
+	void registryLookupsDoNotQueryAndUnknownNamesReloadOnce() {
+		assertThat(roleRegistry.findByName("EMPLEADO")).map(Role::getName).contains("EMPLEADO");
+		assertThat(roleRegistry.findAll()).extracting(Role::getName).containsExactly("ADMIN", "EMPLEADO");
+		assertThat(CapturingInspector.SQL).isEmpty();
+
+		assertThat(roleRegistry.findByName("AUDITOR")).isEmpty();
+		assertThat(CapturingInspector.SQL).hasSize(1);
+
+		// El desconocido se recuerda hasta la siguiente recarga: repetirlo no vuelve a consultar
+		assertThat(roleRegistry.findByName("AUDITOR")).isEmpty();
+		assertThat(roleRegistry.findById(-1L)).isEmpty();
+		assertThat(roleRegistry.findById(-1L)).isEmpty();
+		assertThat(CapturingInspector.SQL).hasSize(2);
+
+		roleRepository.save(new Role(null, "AUDITOR"));
+		roleRegistry.refresh();
+		assertThat(roleRegistry.findByName("AUDITOR")).map(Role::getName).contains("AUDITOR");
+	}
+
+	@Test
+	void namesMatchRegardlessOfCase() {
+		assertThat(roleRegistry.findByName("admin")).map(Role::getName).contains("ADMIN");
+		assertThat(roleRegistry.findByName("Empleado")).map(Role::getName).contains("EMPLEADO");
+		assertThat(CapturingInspector.SQL).isEmpty();
+
+		assertThat(roleRegistry.findByName("auditor")).isEmpty();
+		assertThat(roleRegistry.findByName("AUDITOR")).isEmpty();
+		assertThat(CapturingInspector.SQL).hasSize(1);
+	}
+
+	@Test
+	void unknownNamesStopReloadingOnceTheMissLimitIsReached() {
+		for (int i = 0; i < RoleRegistry.MAX_MISSES; i++) {
+			roleRegistry.findByName("INVENTADO" + i);
+		}
+		CapturingInspector.SQL.clear();
+
+		assertThat(roleRegistry.findByName("OTRO")).isEmpty();
+		assertThat(CapturingInspector.SQL).isEmpty();
+		assertThat(roleRegistry.findByName("EMPLEADO")).isPresent();
+	}
+}
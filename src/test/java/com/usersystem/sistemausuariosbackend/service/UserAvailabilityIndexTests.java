@@ -0,0 +1,153 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.CapturingInspector;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.service.UserAvailabilityIndex.Field;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba que UserAvailabilityIndex responde los valores libres sin consultas (contando el SQL con un
+ * StatementInspector), confirma los ocupados en la base de datos y se mantiene al día con altas y bajas.
+ * Los datos se confirman (sin transacción de test), como en producción.
+ */
+@JpaSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserAvailabilityIndexTests {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Role employee;
+	private UserAvailabilityIndex index;
+
+	@BeforeEach
+	void seed() {
+		employee = roleRepository.save(new Role(null, "EMPLEADO"));
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			users.add(user("user" + i, String.format("%08d", 20_000_000 + i)));
+		}
+		userRepository.saveAll(users);
+		index = new UserAvailabilityIndex(userRepository, entityManager, transactionManager,
+				new SimpleMeterRegistry(), 1_000, 0.01, 100);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		userRepository.deleteAllInBatch();
+		roleRepository.deleteAllInBatch();
+	}
+
+	private User user(String username, String dni) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@test.com");
+		user.setPassword("Secret#123");
+		user.setFirstName("Nombre");
+		user.setLastName("Apellido");
+		user.setDni(dni);
+		user.setRole(employee);
+		return user;
+	}
+
+	@Test
+	void buildsWithOneQueryAndAnswersFreeValuesWithoutTheDatabase() {
+		CapturingInspector.SQL.clear();
+		index.rebuild();
+		assertThat(CapturingInspector.SQL).hasSize(1);
+
+		CapturingInspector.SQL.clear();
+		int available = 0;
+		for (int i = 0; i < 200; i++) {
+			if (!index.isTaken(Field.USERNAME, "nuevo" + i) && !index.isTaken(Field.EMAIL, "nuevo" + i + "@test.com")) {
+				available++;
+			}
+		}
+		assertThat(available).isEqualTo(200);
+		// Solo los falsos positivos del filtro (~1 %) llegan a consultar
+		assertThat(CapturingInspector.SQL).hasSizeLessThan(20);
+	}
+
+	@Test
+	void probablePositivesAreConfirmedAgainstTheDatabase() {
+		index.rebuild();
+		CapturingInspector.SQL.clear();
+
+		assertThat(index.isTaken(Field.USERNAME, "user7")).isTrue();
+		assertThat(index.isTaken(Field.EMAIL, "user8@test.com")).isTrue();
+		assertThat(index.isTaken(Field.DNI, "20000009")).isTrue();
+		assertThat(CapturingInspector.SQL).hasSize(3);
+	}
+
+	@Test
+	void tracksCreatedUsersAndDropsDeletedOnesOnRebuild() {
+		index.rebuild();
+		assertThat(index.isTaken(Field.USERNAME, "ana")).isFalse();
+
+		User ana = userRepository.save(user("ana", "30000000"));
+		index.add(ana);
+		assertThat(index.isTaken(Field.USERNAME, "ana")).isTrue();
+		assertThat(index.isTaken(Field.DNI, "30000000")).isTrue();
+
+		// Tras la baja el filtro aún dice "puede estar", pero la confirmación lo descarta
+		userRepository.delete(ana);
+		assertThat(index.isTaken(Field.USERNAME, "ana")).isFalse();
+
+		index.rebuild();
+		CapturingInspector.SQL.clear();
+		assertThat(index.isTaken(Field.USERNAME, "ana")).isFalse();
+		assertThat(CapturingInspector.SQL).isEmpty();
+	}
+
+	@Test
+	void answersFromTheDatabaseUntilTheFirstBuild() {
+		CapturingInspector.SQL.clear();
+
+		assertThat(index.isTaken(Field.USERNAME, "user1")).isTrue();
+		assertThat(index.isTaken(Field.USERNAME, "nadie")).isFalse();
+		assertThat(CapturingInspector.SQL).hasSize(2);
+	}
+
+	@Test
+	void bloomFilterHasNoFalseNegativesAndKeepsItsFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("present" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("present" + i)).isTrue();
+			if (filter.mightContain("absent" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(200);
+	}
+}
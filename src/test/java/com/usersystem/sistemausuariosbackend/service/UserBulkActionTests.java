@@ -0,0 +1,166 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.CapturingInspector;
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.RefreshToken;
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.BulkUserActionRequest;
+import com.usersystem.sistemausuariosbackend.repository.RefreshTokenRepository;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@JpaSliceTest
+@Import({UserService.class, RoleRegistry.class})
+class UserBulkActionTests {
+
+	@MockitoBean
+	private SecurityVersionRegistry securityVersionRegistry;
+
+	@MockitoBean
+	private UserDetailsCache userDetailsCache;
+
+	@MockitoBean
+	private UserAvailabilityIndex availabilityIndex;
+
+	@MockitoBean
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private RoleRegistry roleRegistry;
+
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Role employee;
+	private Role supervisor;
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void seed() {
+		Role admin = roleRepository.save(new Role(null, "ADMIN"));
+		employee = roleRepository.save(new Role(null, "EMPLEADO"));
+		supervisor = roleRepository.save(new Role(null, "SUPERVISOR"));
+		roleRegistry.refresh();
+		for (int i = 0; i < 20; i++) {
+			User user = new User();
+			user.setUsername("user" + i);
+			user.setEmail("user" + i + "@test.com");
+			user.setPassword("Secret#123");
+			user.setFirstName("Nombre");
+			user.setLastName(i < 10 ? "Ventas" + i : "Almacen" + i);
+			user.setRole(i == 0 ? admin : employee);
+			user.setEnabled(i % 5 != 0);
+			ids.add(userRepository.save(user).getId());
+		}
+		RefreshToken token = new RefreshToken();
+		token.setTokenHash("h".repeat(64));
+		token.setUserId(ids.get(3));
+		token.setCreatedAt(LocalDateTime.now());
+		token.setExpiresAt(LocalDateTime.now().plusDays(1));
+		refreshTokenRepository.save(token);
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private static BulkUserActionRequest request(BulkUserActionRequest.Action action) {
+		BulkUserActionRequest request = new BulkUserActionRequest();
+		request.setAction(action);
+		return request;
+	}
+
+	@Test
+	void disablesAFilteredSetWithOneUpdateAndInvalidatesCachesAfterCommit() {
+		BulkUserActionRequest request = request(BulkUserActionRequest.Action.DISABLE);
+		BulkUserActionRequest.Filter filter = new BulkUserActionRequest.Filter();
+		filter.setQ("Ventas");
+		request.setFilter(filter);
+
+		CapturingInspector.SQL.clear();
+		// user0 es quien ejecuta la acción; user5 ya estaba desactivado
+		assertThat(userService.bulkAction(request, ids.get(0)).getAffected()).isEqualTo(8);
+		assertThat(CapturingInspector.SQL.stream().filter(sql -> sql.startsWith("update users"))).hasSize(1);
+
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+		verify(userDetailsCache).evict("user1@test.com");
+		verify(securityVersionRegistry).evict("user9@test.com");
+		verify(userDetailsCache, never()).evict("user0@test.com");
+		verify(userDetailsCache, never()).evict("user5@test.com");
+		verify(userDetailsCache, never()).evict("user11@test.com");
+
+		assertThat(userRepository.findByUsername("user1").orElseThrow().isEnabled()).isFalse();
+		assertThat(userRepository.findByUsername("user1").orElseThrow().getSecurityVersion()).isEqualTo(1);
+		assertThat(userRepository.findByUsername("user11").orElseThrow().isEnabled()).isTrue();
+		userRepository.deleteAll();
+		roleRepository.deleteAll();
+	}
+
+	@Test
+	void changesRoleOnlyForUsersThatHaveADifferentOne() {
+		BulkUserActionRequest request = request(BulkUserActionRequest.Action.CHANGE_ROLE);
+		request.setIds(ids.subList(0, 4));
+		request.setRole("SUPERVISOR");
+
+		assertThat(userService.bulkAction(request, ids.get(19)).getAffected()).isEqualTo(4);
+		assertThat(userService.bulkAction(request, ids.get(19)).getAffected()).isZero();
+		entityManager.clear();
+		assertThat(userRepository.findById(ids.get(2)).orElseThrow().getRole().getId()).isEqualTo(supervisor.getId());
+	}
+
+	@Test
+	void deletesUsersAndTheirRefreshTokens() {
+		BulkUserActionRequest request = request(BulkUserActionRequest.Action.DELETE);
+		request.setIds(List.of(ids.get(0), ids.get(3), ids.get(4)));
+
+		assertThat(userService.bulkAction(request, ids.get(0)).getAffected()).isEqualTo(2);
+		entityManager.clear();
+		assertThat(userRepository.findById(ids.get(3))).isEmpty();
+		assertThat(userRepository.findById(ids.get(0))).isPresent();
+		assertThat(refreshTokenRepository.count()).isZero();
+	}
+
+	@Test
+	void rejectsAmbiguousOrEmptySelections() {
+		BulkUserActionRequest none = request(BulkUserActionRequest.Action.DELETE);
+		assertThatThrownBy(() -> userService.bulkAction(none, ids.get(0))).isInstanceOf(IllegalArgumentException.class);
+
+		BulkUserActionRequest emptyFilter = request(BulkUserActionRequest.Action.DELETE);
+		emptyFilter.setFilter(new BulkUserActionRequest.Filter());
+		assertThatThrownBy(() -> userService.bulkAction(emptyFilter, ids.get(0))).isInstanceOf(IllegalArgumentException.class);
+
+		BulkUserActionRequest unknownRole = request(BulkUserActionRequest.Action.CHANGE_ROLE);
+		unknownRole.setIds(List.of(ids.get(1)));
+		unknownRole.setRole("GERENTE");
+		assertThatThrownBy(() -> userService.bulkAction(unknownRole, ids.get(0))).isInstanceOf(IllegalArgumentException.class);
+	}
+}
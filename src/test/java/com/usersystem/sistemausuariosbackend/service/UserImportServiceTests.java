@@ -0,0 +1,186 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.UserImportResult;
+import com.usersystem.sistemausuariosbackend.repository.IdBlockAllocator;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JpaSliceTest
+@TestPropertySource(properties = {
+		"security.bcrypt.strength=4",
+		"users.import.chunk-size=2"
+})
+@Import({UserImportService.class, IdBlockAllocator.class, RoleRegistry.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+class UserImportServiceTests {
+
+	@MockitoBean
+	private SecurityVersionRegistry securityVersionRegistry;
+
+	@MockitoBean
+	private UserDetailsCache userDetailsCache;
+
+	@MockitoBean
+	private UserAvailabilityIndex availabilityIndex;
+
+	@Autowired
+	private UserImportService importService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private RoleRegistry roleRegistry;
+
+	@BeforeEach
+	void seed() {
+		roleRepository.save(new Role(null, "ADMIN"));
+		Role employee = roleRepository.save(new Role(null, "EMPLEADO"));
+		roleRegistry.refresh();
+		User existing = new User();
+		existing.setUsername("taken");
+		existing.setEmail("taken@test.com");
+		existing.setPassword("Secret#123");
+		existing.setFirstName("Ya");
+		existing.setLastName("Existe");
+		existing.setDni("11111111");
+		existing.setRole(employee);
+		userRepository.saveAndFlush(existing);
+	}
+
+	@Test
+	void importsValidRowsAndReportsEachRejectedRow() throws Exception {
+		String csv = String.join("\r\n",
+				"\uFEFFusername;email;password;firstName;lastName;dni;dateOfBirth;role",
+				"ana;ana@test.com;Secret#123;Ana;\"Pérez; García\";22222222;1990-05-01;empleado",
+				"luis;luis@test.com;Secret#123;Luis;Soto;33333333;;EMPLEADO",
+				"TAKEN;other@test.com;Secret#123;Otro;Usuario;;;EMPLEADO",
+				"marta;ANA@test.com;Secret#123;Marta;Ruiz;;;EMPLEADO",
+				"dniclash;dni@test.com;Secret#123;Dni;Repetido;11111111;;EMPLEADO",
+				"bad;not-an-email;weak;Bad;Row;;;EMPLEADO",
+				"norole;norole@test.com;Secret#123;No;Rol;;;GERENTE",
+				"baddate;baddate@test.com;Secret#123;Mala;Fecha;;01/02/1990;EMPLEADO",
+				"",
+				"eva;eva@test.com;Secret#123;Eva;Diaz;44444444;;ADMIN",
+				"");
+
+		UserImportResult result = importService.importUsers(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV);
+
+		assertThat(result.getRows()).isEqualTo(9);
+		assertThat(result.getCreated()).isEqualTo(3);
+		assertThat(result.getRejected()).isEqualTo(6);
+		assertThat(result.getErrors()).extracting(UserImportResult.RowError::getRow)
+				.containsExactly(4L, 5L, 6L, 7L, 8L, 9L);
+		assertThat(result.getErrors().get(0).getMessage()).isEqualTo("username: ya existe");
+		assertThat(result.getErrors().get(1).getMessage()).isEqualTo("email: ya existe");
+		assertThat(result.getErrors().get(2).getMessage()).isEqualTo("dni: ya existe");
+		assertThat(result.getErrors().get(3).getMessage()).contains("email:", "password:");
+
+		User ana = userRepository.findByUsername("ana").orElseThrow();
+		assertThat(ana.getLastName()).isEqualTo("Pérez; García");
+		assertThat(ana.getDateOfBirth()).isEqualTo(LocalDate.of(1990, 5, 1));
+		assertThat(ana.getRole().getName()).isEqualTo("EMPLEADO");
+		assertThat(ana.getCreatedAt()).isNotNull();
+		assertThat(new BCryptPasswordEncoder().matches("Secret#123", ana.getPassword())).isTrue();
+		assertThat(userRepository.findByUsername("eva").orElseThrow().getRole().getName()).isEqualTo("ADMIN");
+	}
+
+	@Test
+	void readsTheFirstSheetOfAnXlsxFile() throws Exception {
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet("Usuarios");
+			String[][] rows = {
+					{"email", "username", "password", "firstName", "lastName", "role", "dni"},
+					{"xl1@test.com", "xl1", "Secret#123", "Uno", "Excel", "EMPLEADO", null},
+					{"xl2@test.com", "xl2", "Secret#123", "Dos", "Excel", "EMPLEADO", "55555555"},
+					{"xl3@test.com", "x", "Secret#123", "Tres", "Excel", "EMPLEADO", null}
+			};
+			for (int r = 0; r < rows.length; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < rows[r].length; c++) {
+					if (rows[r][c] != null) {
+						row.createCell(c).setCellValue(rows[r][c]);
+					}
+				}
+			}
+			sheet.getRow(2).createCell(6).setCellValue(55555555d); // DNI como número
+			workbook.write(file);
+		}
+
+		UserImportResult result = importService.importUsers(
+				new ByteArrayInputStream(file.toByteArray()), UserImportService.Format.XLSX);
+
+		assertThat(result.getCreated()).isEqualTo(2);
+		assertThat(result.getErrors()).extracting(UserImportResult.RowError::getRow).containsExactly(4L);
+		assertThat(userRepository.findByUsername("xl2").orElseThrow().getDni()).isEqualTo("55555555");
+		assertThat(userRepository.findByUsername("xl1").orElseThrow().getDni()).isNull();
+	}
+
+	@Test
+	void progressSurvivesAnImportCutHalfway() {
+		byte[] head = String.join("\n",
+				"username,email,password,firstName,lastName,role",
+				"uno,uno@test.com,Secret#123,Uno,Corte,EMPLEADO",
+				"dos,dos@test.com,Secret#123,Dos,Corte,EMPLEADO",
+				"tres,tres@test.com,Secret#123,Tres,Corte,EMPLEADO",
+				"").getBytes(StandardCharsets.UTF_8);
+		// La conexión del cliente se corta tras el primer bloque
+		InputStream cut = new SequenceInputStream(new ByteArrayInputStream(head), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("connection reset");
+			}
+		});
+		UserImportResult progress = new UserImportResult();
+
+		assertThatThrownBy(() -> importService.importUsers(cut, UserImportService.Format.CSV, progress))
+				.isInstanceOf(IOException.class);
+
+		assertThat(progress.getCreated()).isEqualTo(2);
+		assertThat(userRepository.findByUsername("dos")).isPresent();
+	}
+
+	@Test
+	void rejectsFilesWithoutTheRequiredColumns() {
+		byte[] csv = "username,email\nana,ana@test.com\n".getBytes(StandardCharsets.UTF_8);
+
+		assertThatThrownBy(() -> importService.importUsers(new ByteArrayInputStream(csv), UserImportService.Format.CSV))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("password");
+		assertThatThrownBy(() -> importService.importUsers(new ByteArrayInputStream(csv), UserImportService.Format.XLSX))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,145 @@
+package com.usersystem.sistemausuariosbackend.service;
+
+import com.usersystem.sistemausuariosbackend.JpaSliceTest;
+import com.usersystem.sistemausuariosbackend.model.Role;
+import com.usersystem.sistemausuariosbackend.model.User;
+import com.usersystem.sistemausuariosbackend.payload.UserCursorPage;
+import com.usersystem.sistemausuariosbackend.payload.UserSummaryDto;
+import com.usersystem.sistemausuariosbackend.repository.RoleRepository;
+import com.usersystem.sistemausuariosbackend.repository.UserRepository;
+import com.usersystem.sistemausuariosbackend.security.SecurityVersionRegistry;
+import com.usersystem.sistemausuariosbackend.security.UserDetailsCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JpaSliceTest
+@Import({UserService.class, RoleRegistry.class})
+class UserListingTests {
+
+	@MockitoBean
+	private SecurityVersionRegistry securityVersionRegistry;
+
+	@MockitoBean
+	private UserDetailsCache userDetailsCache;
+
+	@MockitoBean
+	private UserAvailabilityIndex availabilityIndex;
+
+	@MockitoBean
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private RoleRegistry roleRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		Role admin = roleRepository.save(new Role(null, "ADMIN"));
+		Role employee = roleRepository.save(new Role(null, "EMPLEADO"));
+		roleRegistry.refresh();
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 45; i++) {
+			User user = new User();
+			user.setUsername(String.format("user%02d", i));
+			user.setEmail(String.format("user%02d@test.com", i));
+			user.setPassword("Secret#123");
+			user.setFirstName(i % 3 == 0 ? "Ana" : "Luis");
+			user.setLastName("Perez" + (i % 5));
+			user.setDni(String.format("%08d", 10_000_000 + i));
+			user.setEnabled(i % 4 != 0);
+			user.setRole(i < 5 ? admin : employee);
+			users.add(user);
+		}
+		userRepository.saveAllAndFlush(users);
+	}
+
+	@Test
+	void cursorPagesWalkTheWholeFilteredListInOrder() {
+		List<UserSummaryDto> all = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserCursorPage page = userService.listUsers(null, true, null, null, null, false, "lastName", false, cursor, 7);
+			all.addAll(page.getContent());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(all).hasSize(33).allMatch(UserSummaryDto::isEnabled);
+		assertThat(all).isSortedAccordingTo(Comparator.comparing(UserSummaryDto::getLastName)
+				.thenComparing(UserSummaryDto::getId));
+		assertThat(all).extracting(UserSummaryDto::getId).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void cursorPagesCrossUsersWithoutCreationDate() {
+		// Usuarios anteriores a la columna created_at
+		jdbcTemplate.update("UPDATE users SET created_at = NULL WHERE username LIKE 'user1%'");
+
+		for (boolean descending : new boolean[]{false, true}) {
+			List<UserSummaryDto> all = new ArrayList<>();
+			String cursor = null;
+			do {
+				UserCursorPage page = userService.listUsers(null, null, null, null, null, false, "createdAt", descending, cursor, 4);
+				all.addAll(page.getContent());
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+
+			assertThat(all).hasSize(45).extracting(UserSummaryDto::getId).doesNotHaveDuplicates();
+			assertThat(all).filteredOn(user -> user.getCreatedAt() == null).hasSize(10);
+		}
+	}
+
+	@Test
+	void prefixMatchesNameEmailOrDniWithoutWildcards() {
+		assertThat(userService.listUsers(null, null, null, null, "user1", false, "username", false, null, 100).getContent())
+				.extracting(UserSummaryDto::getUsername).containsExactly("user10", "user11", "user12", "user13",
+						"user14", "user15", "user16", "user17", "user18", "user19");
+		assertThat(userService.listUsers(null, null, null, null, "10000042", false, "id", true, null, 100).getContent())
+				.extracting(UserSummaryDto::getUsername).containsExactly("user42");
+		assertThat(userService.listUsers(null, null, null, null, "an", false, "id", true, null, 100).getContent())
+				.isEmpty();
+		assertThat(userService.listUsers(null, null, null, null, "user_", false, "id", true, null, 100).getContent())
+				.isEmpty();
+	}
+
+	@Test
+	void supervisorScopeIsPartOfTheQuery() {
+		UserCursorPage employees = userService.listUsers(null, null, null, null, null, true, "createdAt", true, null, 100);
+		assertThat(employees.getContent()).hasSize(40).allMatch(user -> user.getRole().equals("EMPLEADO"));
+
+		assertThat(userService.listUsers("ADMIN", null, null, null, null, true, "createdAt", true, null, 100).getContent())
+				.isEmpty();
+		assertThat(userService.listUsers("ADMIN", null, null, null, null, false, "createdAt", true, null, 100).getContent())
+				.hasSize(5);
+	}
+
+	@Test
+	void rejectsUnknownSortAndCursorFromAnotherSort() {
+		assertThatThrownBy(() -> userService.listUsers(null, null, null, null, null, false, "password", true, null, 10))
+				.isInstanceOf(IllegalArgumentException.class);
+		String cursor = userService.listUsers(null, null, null, null, null, false, "email", true, null, 10).getNextCursor();
+		assertThatThrownBy(() -> userService.listUsers(null, null, null, null, null, false, "username", true, cursor, 10))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}